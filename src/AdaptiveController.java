@@ -0,0 +1,166 @@
+import java.util.Random;
+
+/**
+ * Class AdaptiveController tunes the mutation rate, the choice of mutation operator
+ * and the fraction of the population that is crossed over, from the success of the
+ * offspring of one island. An offspring is a success when it is shorter than the
+ * tour it was made from: the better parent for crossover, the unmutated tour for
+ * mutation. Success rates are smoothed over the generations, so the controller
+ * follows the population as it converges.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class AdaptiveController {
+
+	public static final int SWAP		= 0;	// Swap two cities
+	public static final int INVERSION	= 1;	// Reverse a section of the tour
+	public static final int INSERTION	= 2;	// Move one city to another position
+	public static final int OPERATORS	= 3;	// Number of mutation operators
+
+	private static final double LEARNING_RATE	= 0.3;	// Weight of the latest generation in the success rates
+	private static final double MIN_PROBABILITY	= 0.05;	// Every operator keeps being tried
+	private static final double STALL_RATE		= 0.01;	// Crossover success rate below which crossover is cut back
+
+	private double mutationRate			= 10;	// Percentage of the offspring that is mutated
+	private double minMutationRate		= 1;
+	private double maxMutationRate		= 50;
+	private double crossoverFraction	= 1.0;	// Fraction of populationSize/2 pairs that is crossed over
+	private double minCrossoverFraction	= 0.1;
+
+	private double[] operatorSuccess = new double[OPERATORS];	// Smoothed success rate of every mutation operator
+	private double crossoverSuccess;							// Smoothed success rate of crossover
+	private double mutationSuccess;								// Smoothed success rate of mutation
+	private int[] operatorTrials	= new int[OPERATORS];		// Trials in the current generation
+	private int[] operatorImproved	= new int[OPERATORS];		// Successes in the current generation
+	private int crossoverTrials;
+	private int crossoverImproved;
+
+	/**
+	 * Default constructor, starts with a 10% mutation rate, full crossover and
+	 * all the mutation operators equally likely
+	 */
+	public AdaptiveController(){
+		for (int i = 0; i < OPERATORS; i++)
+			operatorSuccess[i] = 0.5;
+		crossoverSuccess = 0.5;
+		mutationSuccess = 0.5;
+	}
+
+	/**
+	 * Parameterized constructor, starts from the given mutation rate. A zero
+	 * width range keeps the mutation rate fixed.
+	 *
+	 * @param mutationRate initial mutation rate in percent
+	 * @param minMutationRate smallest mutation rate in percent
+	 * @param maxMutationRate largest mutation rate in percent
+	 */
+	public AdaptiveController(double mutationRate, double minMutationRate, double maxMutationRate){
+		this();
+		this.minMutationRate = minMutationRate;
+		this.maxMutationRate = maxMutationRate;
+		this.mutationRate = Math.max(minMutationRate, Math.min(maxMutationRate, mutationRate));
+	}
+
+	/**
+	 * Returns the current mutation rate
+	 *
+	 * @return mutation rate in percent
+	 */
+	public int getMutationRate(){
+		return (int) Math.round(mutationRate);
+	}
+
+	/**
+	 * Returns the number of crossovers to perform in the current generation, at
+	 * most one per two tours of the population
+	 *
+	 * @param populationSize number of tours in the population
+	 * @return number of pairs to cross over
+	 */
+	public int getCrossoverPairs(int populationSize){
+		return Math.max(1, Math.min(populationSize/2, (int) Math.round(crossoverFraction*populationSize/2)));
+	}
+
+	/**
+	 * This method picks a mutation operator with probability proportional to its
+	 * recent success rate
+	 *
+	 * @param prng pseudorandom number generator of the island
+	 * @return the mutation operator
+	 */
+	public int selectMutation(Random prng){
+		double total = 0;
+		for (int i = 0; i < OPERATORS; i++)
+			total += operatorSuccess[i];
+		double pick = prng.nextDouble();
+		double cumulative = 0;
+		for (int i = 0; i < OPERATORS - 1; i++) {
+			double share = total == 0 ? 1.0/OPERATORS : operatorSuccess[i]/total;
+			cumulative += MIN_PROBABILITY + (1 - OPERATORS*MIN_PROBABILITY)*share;
+			if (pick < cumulative) return i;
+		}
+		return OPERATORS - 1;
+	}
+
+	/**
+	 * This method records the outcome of a mutation
+	 *
+	 * @param operator the mutation operator
+	 * @param improved true if the mutated tour is shorter than before
+	 */
+	public void recordMutation(int operator, boolean improved){
+		operatorTrials[operator]++;
+		if (improved) operatorImproved[operator]++;
+	}
+
+	/**
+	 * This method records the outcome of a crossover
+	 *
+	 * @param improved true if the child is shorter than the better parent
+	 */
+	public void recordCrossover(boolean improved){
+		crossoverTrials++;
+		if (improved) crossoverImproved++;
+	}
+
+	/**
+	 * This method updates the rates at the end of a generation. Mutation is used
+	 * more while it pays off more often than crossover and less otherwise; once
+	 * crossover stops producing better children, fewer pairs are crossed over.
+	 */
+	public void endGeneration(){
+		int mutationTrials = 0, mutationImproved = 0;
+		for (int i = 0; i < OPERATORS; i++) {
+			if (operatorTrials[i] > 0)
+				operatorSuccess[i] = smooth(operatorSuccess[i], (double) operatorImproved[i]/operatorTrials[i]);
+			mutationTrials += operatorTrials[i];
+			mutationImproved += operatorImproved[i];
+			operatorTrials[i] = 0;
+			operatorImproved[i] = 0;
+		}
+		if (mutationTrials > 0)
+			mutationSuccess = smooth(mutationSuccess, (double) mutationImproved/mutationTrials);
+		if (crossoverTrials > 0)
+			crossoverSuccess = smooth(crossoverSuccess, (double) crossoverImproved/crossoverTrials);
+		crossoverTrials = 0;
+		crossoverImproved = 0;
+
+		mutationRate *= mutationSuccess > crossoverSuccess ? 1.1 : 0.9;
+		mutationRate = Math.max(minMutationRate, Math.min(maxMutationRate, mutationRate));
+
+		crossoverFraction *= crossoverSuccess < STALL_RATE ? 0.9 : 1.1;
+		crossoverFraction = Math.max(minCrossoverFraction, Math.min(1.0, crossoverFraction));
+	}
+
+	/**
+	 * Returns the smoothed success rate
+	 *
+	 * @param average previous smoothed rate
+	 * @param latest rate of the latest generation
+	 * @return new smoothed rate
+	 */
+	private static double smooth(double average, double latest){
+		return (1 - LEARNING_RATE)*average + LEARNING_RATE*latest;
+	}
+}
@@ -0,0 +1,370 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class AntColony solves the travelling salesman problem with the MAX-MIN Ant
+ * System. Every iteration each ant builds a tour city by city, choosing among the
+ * unvisited candidates of the current city with probability proportional to
+ * pheromone * (1/distance)^2, and improves it by 2-opt. Then all the pheromone
+ * evaporates, the best tour of the iteration, or every few iterations the best
+ * tour so far, deposits pheromone on its edges, and the trails are kept between
+ * the MAX-MIN limits. Trails that stop improving the best tour are reset.
+ * <P>
+ * Pheromone is only kept for the edges to the candidates of a city, so an update
+ * is linear in the number of cities. The ants are split into one chunk per
+ * thread, each with its own tour buffers and local search, and every ant has its
+ * own random stream, so a run does not depend on the number of threads. The
+ * pheromone update is striped: the rows of the pheromone matrix are split into one
+ * stripe per thread, and each thread evaporates and deposits only on its own rows,
+ * so the update needs neither locks nor atomic operations.
+ * <P>
+ * Colonies on other nodes exchange their best tours through receive.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class AntColony {
+
+	private static final int NEIGHBOURS				= 15;	// Candidates per city
+	private static final double EVAPORATION			= 0.02;	// Fraction of the pheromone that evaporates per iteration
+	private static final double P_BEST				= 0.05;	// Chance of building the best tour at convergence
+	private static final int GLOBAL_BEST_PERIOD		= 5;	// Every so many iterations the best tour so far deposits
+	private static final int RESTART				= 200;	// Iterations without improvement before the trails are reset
+	private static final int LOCAL_SEARCH_DEPTH		= 10000; // 2-opt moves per ant
+
+	private int citySize;					// Number of cities
+	private int[] ids;						// Ids of the cities
+	private City[] cityById;				// City objects indexed by city id
+	private CityCoordinates coordinates;	// Coordinates of the cities indexed by city id
+	private CandidateLists candidates;		// Nearest neighbours of every city
+	private int k;							// Candidates per city, the row length of the matrices
+	private double[] pheromone;				// Pheromone of the edge from city c to its j-th candidate at c*k + j
+	private double[] heuristic;				// (1/distance)^2 of the candidate edges
+	private double[] choice;				// pheromone*heuristic of the candidate edges
+	private double tauMax, tauMin;			// Limits of the pheromone
+	private boolean trailsSet;				// False until the limits are known
+
+	private int[][] tours;					// Tour of every ant, city ids
+	private double[] lengths;				// Length of the tour of every ant
+	private Random[] prngs;					// Random stream of every ant
+	private Chunk[] chunks;					// Ants and pheromone rows of every thread
+	private ForkJoinPool pool;				// Runs the chunks, null for one chunk
+
+	private int[] bestTour;					// Best tour so far
+	private double bestLength = Double.POSITIVE_INFINITY;
+	private int[] depositTour;				// Tour depositing pheromone in the current iteration
+	private int iterations;					// Number of iterations run so far
+	private int lastImprovement;			// Iteration of the latest improvement of the best tour
+	private int lastRestart;				// Iteration of the latest reset of the trails
+
+	/**
+	 * Parameterized constructor
+	 *
+	 * @param tour contains the cities, at least four
+	 * @param antCount number of ants
+	 * @param threads number of threads building the tours
+	 * @param seed seed from which the random streams of the ants are derived
+	 * @param streamId id of this colony, e.g. the rank of the worker task
+	 */
+	public AntColony(TravelingPath tour, int antCount, int threads, long seed, long streamId){
+		ArrayList<City> cityList = tour.getCityList();
+		this.citySize = cityList.size();
+		this.coordinates = new CityCoordinates(cityList);
+		this.ids = new int[citySize];
+		this.cityById = new City[coordinates.size()];
+		for (int i = 0; i < citySize; i++) {
+			ids[i] = cityList.get(i).id;
+			cityById[ids[i]] = cityList.get(i);
+		}
+		this.candidates = new CandidateLists(coordinates, ids, Math.min(NEIGHBOURS, citySize - 1));
+		this.k = candidates.getK();
+		this.pheromone = new double[coordinates.size()*k];
+		this.heuristic = new double[coordinates.size()*k];
+		this.choice = new double[coordinates.size()*k];
+		for (int i = 0; i < citySize; i++) {
+			int city = ids[i];
+			for (int j = 0; j < candidates.count(city); j++) {
+				double distance = Math.max(1e-9, coordinates.distance(city, candidates.get(city, j)));
+				heuristic[city*k + j] = 1/(distance*distance);
+				pheromone[city*k + j] = 1;
+				choice[city*k + j] = heuristic[city*k + j];
+			}
+		}
+
+		this.tours = new int[antCount][citySize];
+		this.lengths = new double[antCount];
+		this.prngs = new Random[antCount];
+		for (int ant = 0; ant < antCount; ant++)
+			prngs[ant] = SplitRandom.stream(seed, streamId, ant);
+		int chunkCount = Math.max(1, Math.min(threads, antCount));
+		this.chunks = new Chunk[chunkCount];
+		for (int c = 0; c < chunkCount; c++)
+			chunks[c] = new Chunk(c*antCount/chunkCount, (c + 1)*antCount/chunkCount,
+					c*citySize/chunkCount, (c + 1)*citySize/chunkCount);
+		this.pool = chunkCount > 1 ? new ForkJoinPool(chunkCount) : null;
+	}
+
+	/**
+	 * This method runs iterations of the colony
+	 *
+	 * @param iterationCount number of iterations
+	 */
+	public void iterate(int iterationCount){
+		for (int i = 0; i < iterationCount; i++) {
+			invokeChunks(false, false);
+
+			// Best tour of the iteration, the lowest ant among equals
+			int best = 0;
+			for (int ant = 1; ant < tours.length; ant++)
+				if (lengths[ant] < lengths[best]) best = ant;
+			if (lengths[best] < bestLength) {
+				improve(tours[best], lengths[best]);
+			}
+			iterations++;
+
+			// The limits follow the best tour, the trails start at the upper limit
+			tauMax = 1/(EVAPORATION*bestLength);
+			double root = Math.pow(P_BEST, 1.0/citySize);
+			tauMin = Math.min(tauMax, tauMax*(1 - root)/((k/2.0 - 1)*root));
+			boolean reset = !trailsSet || (iterations - Math.max(lastImprovement, lastRestart) > RESTART);
+			if (reset) lastRestart = iterations;
+			trailsSet = true;
+			depositTour = iterations % GLOBAL_BEST_PERIOD == 0 ? bestTour : tours[best];
+			invokeChunks(true, reset);
+		}
+	}
+
+	/**
+	 * This method takes in a tour from another colony. A tour shorter than the best
+	 * tour becomes the best tour and deposits pheromone at the next global update.
+	 *
+	 * @param tour the tour, of the cities of this colony
+	 */
+	public void receive(TravelingPath tour){
+		ArrayList<City> cityList = tour.getCityList();
+		int[] row = new int[citySize];
+		for (int i = 0; i < citySize; i++)
+			row[i] = cityList.get(i).id;
+		double length = coordinates.tourLength(row, 0, citySize);
+		if (length < bestLength) improve(row, length);
+	}
+
+	/**
+	 * This method makes a tour the best tour
+	 *
+	 * @param tour the tour
+	 * @param length length of the tour
+	 */
+	private void improve(int[] tour, double length){
+		if (bestTour == null) bestTour = new int[citySize];
+		System.arraycopy(tour, 0, bestTour, 0, citySize);
+		bestLength = length;
+		lastImprovement = iterations;
+	}
+
+	/**
+	 * Returns the best tour so far
+	 *
+	 * @return a copy of the best tour, null before the first iteration
+	 */
+	public TravelingPath getBestTour(){
+		if (bestTour == null) return null;
+		ArrayList<City> cityList = new ArrayList<City>(citySize);
+		for (int i = 0; i < citySize; i++)
+			cityList.add(cityById[bestTour[i]]);
+		TravelingPath path = new TravelingPath(cityList);
+		path.calculateDistance();
+		return path;
+	}
+
+	/**
+	 * Returns the length of the best tour so far
+	 *
+	 * @return length, infinite before the first iteration
+	 */
+	public double getBestLength(){
+		return bestLength;
+	}
+
+	/**
+	 * Returns the number of iterations run so far
+	 *
+	 * @return iterations
+	 */
+	public int getIterations(){
+		return iterations;
+	}
+
+	/**
+	 * This method stops the threads of the colony
+	 */
+	public void shutdown(){
+		if (pool != null) pool.shutdown();
+	}
+
+	/**
+	 * This method runs the tour construction or the pheromone update of all the
+	 * chunks, in parallel if there are several
+	 *
+	 * @param update false to build the tours, true to update the pheromone
+	 * @param reset true to set the trails to the upper limit before the update
+	 */
+	private void invokeChunks(final boolean update, final boolean reset){
+		final RecursiveAction[] actions = new RecursiveAction[chunks.length];
+		for (int c = 0; c < chunks.length; c++) {
+			final Chunk chunk = chunks[c];
+			actions[c] = new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+				protected void compute(){
+					if (update) chunk.updatePheromone(reset);
+					else chunk.buildTours();
+				}
+			};
+		}
+		IslandEngine.invokeActions(pool, actions);
+	}
+
+	/**
+	 * Class Chunk builds the tours of a range of ants and updates the pheromone of
+	 * a range of cities. It is run by one thread at a time.
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private class Chunk {
+
+		private int firstAnt, endAnt;		// Ants of this chunk
+		private int firstCity, endCity;		// Positions in ids of the cities whose pheromone rows this chunk updates
+		private boolean[] inStripe;			// True for the cities of the stripe, indexed by city id
+		private int[] visited;				// Stamp of the tour that visited a city
+		private int stamp;
+		private double[] weights;			// Choice of the unvisited candidates of the current city
+		private LocalSearch localSearch;	// 2-opt of the tours of this chunk
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param firstAnt first ant of the chunk
+		 * @param endAnt one past the last ant
+		 * @param firstCity first position in ids of the stripe
+		 * @param endCity one past the last position
+		 */
+		public Chunk(int firstAnt, int endAnt, int firstCity, int endCity){
+			this.firstAnt = firstAnt;
+			this.endAnt = endAnt;
+			this.firstCity = firstCity;
+			this.endCity = endCity;
+			this.inStripe = new boolean[coordinates.size()];
+			for (int i = firstCity; i < endCity; i++)
+				inStripe[ids[i]] = true;
+			this.visited = new int[coordinates.size()];
+			this.weights = new double[k];
+			this.localSearch = new LocalSearch(coordinates, ids, 8);
+		}
+
+		/**
+		 * This method builds and improves the tours of the ants of the chunk
+		 */
+		public void buildTours(){
+			for (int ant = firstAnt; ant < endAnt; ant++) {
+				buildTour(tours[ant], prngs[ant]);
+				localSearch.twoOpt(tours[ant], LOCAL_SEARCH_DEPTH);
+				lengths[ant] = coordinates.tourLength(tours[ant], 0, citySize);
+			}
+		}
+
+		/**
+		 * This method builds the tour of one ant. From the current city the ant moves
+		 * to an unvisited candidate, chosen by roulette wheel on the choice of the
+		 * edges, or to the nearest unvisited city once all the candidates are visited.
+		 *
+		 * @param tour receives the tour
+		 * @param prng random stream of the ant
+		 */
+		private void buildTour(int[] tour, Random prng){
+			int mark = ++stamp;
+			int city = ids[prng.nextInt(citySize)];
+			tour[0] = city;
+			visited[city] = mark;
+			for (int step = 1; step < citySize; step++) {
+				double total = 0;
+				int count = candidates.count(city);
+				for (int j = 0; j < count; j++) {
+					weights[j] = visited[candidates.get(city, j)] == mark ? 0 : choice[city*k + j];
+					total += weights[j];
+				}
+				int next = -1;
+				if (total > 0) {
+					double pick = prng.nextDouble()*total;
+					for (int j = 0; j < count; j++) {
+						if (weights[j] == 0) continue;
+						next = candidates.get(city, j);
+						pick -= weights[j];
+						if (pick <= 0) break;
+					}
+				}
+				else {
+					double nearest = Double.POSITIVE_INFINITY;
+					for (int i = 0; i < citySize; i++) {
+						if (visited[ids[i]] == mark) continue;
+						double distance = coordinates.distance(city, ids[i]);
+						if (distance < nearest) {
+							nearest = distance;
+							next = ids[i];
+						}
+					}
+				}
+				tour[step] = next;
+				visited[next] = mark;
+				city = next;
+			}
+		}
+
+		/**
+		 * This method evaporates the pheromone of the rows of the stripe, lets the
+		 * deposit tour deposit on them and keeps them within the limits
+		 *
+		 * @param reset true to set the trails to the upper limit first
+		 */
+		public void updatePheromone(boolean reset){
+			for (int i = firstCity; i < endCity; i++) {
+				int row = ids[i]*k;
+				for (int j = 0; j < k; j++)
+					pheromone[row + j] = reset ? tauMax : (1 - EVAPORATION)*pheromone[row + j];
+			}
+			// Both directions of an edge are deposited, each by the stripe of its row
+			double deposit = 1/coordinates.tourLength(depositTour, 0, citySize);
+			for (int i = 0; i < citySize; i++) {
+				int city1 = depositTour[i];
+				int city2 = depositTour[i + 1 == citySize ? 0 : i + 1];
+				if (inStripe[city1]) deposit(city1, city2, deposit);
+				if (inStripe[city2]) deposit(city2, city1, deposit);
+			}
+			for (int i = firstCity; i < endCity; i++) {
+				int row = ids[i]*k;
+				for (int j = 0; j < k; j++) {
+					pheromone[row + j] = Math.max(tauMin, Math.min(tauMax, pheromone[row + j]));
+					choice[row + j] = pheromone[row + j]*heuristic[row + j];
+				}
+			}
+		}
+
+		/**
+		 * This method adds pheromone to the edge from a city to one of its candidates
+		 *
+		 * @param city the city, in the stripe
+		 * @param to the other end of the edge, not stored unless it is a candidate
+		 * @param amount pheromone added
+		 */
+		private void deposit(int city, int to, double amount){
+			for (int j = 0; j < candidates.count(city); j++) {
+				if (candidates.get(city, j) == to) {
+					pheromone[city*k + j] += amount;
+					return;
+				}
+			}
+		}
+	}
+}
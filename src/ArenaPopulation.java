@@ -0,0 +1,181 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class ArenaPopulation runs the same genetic algorithm as Population, roulette
+ * wheel sampling, crossover and adaptive mutation, on tours stored as rows
+ * of two PopulationArena buffers. Children are appended to the current buffer; the
+ * next selection copies the survivors to the other buffer and the two are swapped.
+ * Lengths, fitness, the mating pool and the crossover bookkeeping are primitive
+ * arrays allocated once, so a generation creates no objects.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class ArenaPopulation extends RowPopulation {
+
+	private PopulationArena next;				// Receives the survivors of the next selection
+	private int childStart;						// Index of the first child in current
+	private int[] matingPool;					// Tour indexes, fitter tours more often
+	private int matingSize;
+	private int[] parentVisited;				// Stamp of the crossover that used a mating pool entry
+	private int visitStamp;
+
+	/**
+	 * Parameterized constructor to initialize tour, population arenas and the
+	 * pseudorandom number generator
+	 *
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size
+	 * @param prng pseudorandom number generator, owned by this population
+	 * @param offHeap true to keep the rows outside the Java heap
+	 */
+	public ArenaPopulation(TravelingPath tour, int populationSize, Random prng, boolean offHeap){
+		// Survivors, children of at most populationSize/2+1 pairs and migrants
+		super(tour, populationSize, prng, offHeap, 2*populationSize + 32);
+		int capacity = current.getCapacity();
+		this.next = offHeap ? PopulationArena.offHeap(capacity, citySize) : PopulationArena.onHeap(capacity, citySize);
+		this.matingPool = new int[3*capacity];
+		this.parentVisited = new int[3*capacity];
+	}
+
+	/**
+	 * This method starts the population over on another instance, reusing both
+	 * arenas and the mating pool. A thread that solves many small instances in turn
+	 * keeps one population this way instead of allocating one per instance.
+	 *
+	 * @param tour contains the initial tour of the instance
+	 * @param prng pseudorandom number generator, owned by this population
+	 */
+	public void reset(TravelingPath tour, Random prng){
+		super.reset(tour, prng);
+		next = next.reuse(citySize);
+		childStart = 0;
+		matingSize = 0;
+	}
+
+	/**
+	 * This method creates the initial population from seed tours
+	 *
+	 * @param seeds tours of the cities of this population
+	 * @param seededFraction fraction of the population made from the seeds, 0 to 1
+	 */
+	public void createPopulation(List<TravelingPath> seeds, double seededFraction){
+		super.createPopulation(seeds, seededFraction);
+		childStart = current.size;
+	}
+
+	/**
+	 * This method is the core method which starts the GA process.
+	 *
+	 * @param gaIterCount The iterations for genetic algorithm to run
+	 */
+	public void startGA(int gaIterCount){
+		for (int i = 0; i < gaIterCount; i++) {
+			selection();
+			crossover();
+			mutation(controller.getMutationRate());
+			trimLengthCache();
+			controller.endGeneration();
+		}
+	}
+
+	/**
+	 * This method keeps the best tours, moving them to the other arena, and fills the
+	 * mating pool. A tour of fitness f = maxDistance - length is sampled
+	 * round(f/sum(f)*populationSize) + 1 times, like in Population.
+	 */
+	private void selection(){
+		sortByLength();
+		int keep = Math.min(populationSize, current.size);
+		members.clear();
+		for (int i = 0; i < keep; i++) {
+			int tour = order[i];
+			current.read(tour, row1);
+			next.write(i, row1);
+			next.lengths[i] = current.lengths[tour];
+			next.hashes[i] = current.hashes[tour];
+			members.put(next.hashes[i], next.lengths[i]);
+		}
+		next.size = keep;
+		current.size = 0;
+		PopulationArena swap = current;
+		current = next;
+		next = swap;
+		childStart = keep;
+
+		// Roulette wheel sampling into the mating pool
+		double maxDistance = keep > 0 ? current.lengths[keep - 1] : 0;
+		double overallFitness = 0;
+		for (int i = 0; i < keep; i++)
+			overallFitness += maxDistance - current.lengths[i];
+		matingSize = 0;
+		for (int i = 0; i < keep; i++) {
+			int sampling = 1;
+			if (overallFitness > 0)
+				sampling += (int) Math.round((maxDistance - current.lengths[i])/overallFitness*populationSize);
+			for (int j = 0; j < sampling && matingSize < matingPool.length; j++)
+				matingPool[matingSize++] = i;
+		}
+	}
+
+	/**
+	 * This method performs the crossover operation. The number of pairs crossed
+	 * over is chosen by the adaptive controller, and a pair of mating pool entries
+	 * that were both used before is drawn again.
+	 */
+	private void crossover(){
+		if (matingSize < 3) return;
+		int pairs = controller.getCrossoverPairs(current.size);
+		int visited = ++visitStamp;
+		for (int i = 0; i < pairs && current.size + 2 <= current.getCapacity(); i++) {
+			int parent1 = prng.nextInt(matingSize - 1);
+			int parent2 = prng.nextInt(matingSize - 1);
+			for (int attempts = 0; (parent1 == parent2 ||
+					(parentVisited[parent1] == visited && parentVisited[parent2] == visited)) && attempts < 100; attempts++) {
+				parent1 = prng.nextInt(matingSize - 1);
+				parent2 = prng.nextInt(matingSize - 1);
+			}
+			int tour1 = matingPool[parent1], tour2 = matingPool[parent2];
+			double bestParent = Math.min(current.lengths[tour1], current.lengths[tour2]);
+			crossover(tour1, tour2);
+
+			// A child succeeds when it is new and shorter than the better parent
+			boolean admitted1 = append(child1);
+			controller.recordCrossover(admitted1 && current.lengths[current.size - 1] < bestParent);
+			boolean admitted2 = append(child2);
+			controller.recordCrossover(admitted2 && current.lengths[current.size - 1] < bestParent);
+			parentVisited[parent1] = visited;
+			parentVisited[parent2] = visited;
+		}
+	}
+
+	/**
+	 * This method performs the mutation of the children. Each mutation applies the
+	 * operator picked by the adaptive controller to a copy of the row, which is only
+	 * written back if the mutated tour is not in the population yet.
+	 *
+	 * @param mutationRate This tells the mutation rate
+	 */
+	private void mutation(int mutationRate){
+		int childCount = current.size - childStart;
+		if (childCount == 0) return;
+		int mutationSize = childCount*mutationRate/100;
+		for (int i = 0; i < mutationSize; i++) {
+			int tour = childStart + prng.nextInt(childCount);
+			current.read(tour, row1);
+			int operator = mutate(row1);
+			long hash = tourHash.hash(row1, 0, citySize);
+			if (members.contains(hash)) {
+				controller.recordMutation(operator, false);
+				continue;
+			}
+			double before = current.lengths[tour];
+			current.write(tour, row1);
+			current.hashes[tour] = hash;
+			current.lengths[tour] = lengthOf(hash, row1);
+			members.put(hash, current.lengths[tour]);
+			controller.recordMutation(operator, current.lengths[tour] < before);
+		}
+	}
+}
@@ -0,0 +1,274 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class BackboneReducer shrinks an instance to the part on which elite tours still
+ * disagree. An edge that is in every elite tour is fixed; the paths of fixed edges
+ * are contracted into super-nodes, and the genetic algorithm continues on the
+ * super-nodes, which are far fewer than the cities late in a run. A super-node
+ * keeps the two end cities of its path, with their ids, and loses the cities
+ * inside, so the reduced instance is measured with the metric of the job; a
+ * reduced tour that keeps the ends of every path together costs the same as its
+ * expansion, less the length of the paths and plus the edges between their ends.
+ * The operators of the islands may still separate two ends, which costs nothing
+ * on the reduced instance, so reduced lengths only rank tours that keep their
+ * paths whole. Expansion visits the paths in the order in which the reduced tour
+ * first reaches them, in the direction that gives the shortest tour, so a reduced
+ * tour that separates two ends still expands to a valid tour, and contracting the
+ * expansion joins the ends up again. IslandEngine ranks the tours of the islands
+ * by their expanded length and joins up the tours they send each other.
+ * <P>
+ * The edge frequencies are kept in a compact per-city counter: the two neighbours
+ * of every city in the first elite and the number of elites in which each of them
+ * is still a neighbour.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class BackboneReducer {
+
+	private int citySize;					// Number of cities of the full instance
+	private City[] cityById;				// Cities of the full instance indexed by city id
+	private CityCoordinates coordinates;	// Coordinates of the cities indexed by city id
+	private int[] neighbour;				// Neighbours of city c in the first elite at 2c and 2c + 1
+	private int[] count;					// Number of elites with those edges
+	private int fixedEdges;					// Number of edges in every elite
+	private int[] segmentOf;				// Super-node of every city, indexed by city id
+	private ArrayList<int[]> segments;		// Cities of every super-node, in path order
+	private ArrayList<City> superNodes;		// End cities of the super-nodes
+
+	/**
+	 * Parameterized constructor, counts the edges of the elite tours and contracts the
+	 * edges that are in all of them
+	 *
+	 * @param elites elite tours of the full instance, at least one
+	 */
+	public BackboneReducer(List<TravelingPath> elites){
+		ArrayList<City> first = elites.get(0).getCityList();
+		this.citySize = first.size();
+		this.coordinates = new CityCoordinates(first);
+		int idCount = coordinates.size();
+		this.cityById = new City[idCount];
+		this.neighbour = new int[2*idCount];
+		this.count = new int[2*idCount];
+		for (int i = 0; i < citySize; i++) {
+			int city = first.get(i).id;
+			cityById[city] = first.get(i);
+			neighbour[2*city] = first.get((i - 1 + citySize) % citySize).id;
+			neighbour[2*city + 1] = first.get((i + 1) % citySize).id;
+			count[2*city] = 1;
+			count[2*city + 1] = 1;
+		}
+		for (int e = 1; e < elites.size(); e++) {
+			ArrayList<City> tour = elites.get(e).getCityList();
+			for (int i = 0; i < citySize; i++) {
+				int city = tour.get(i).id;
+				int previous = tour.get((i - 1 + citySize) % citySize).id;
+				int next = tour.get((i + 1) % citySize).id;
+				for (int slot = 2*city; slot < 2*city + 2; slot++)
+					if (neighbour[slot] == previous || neighbour[slot] == next) count[slot]++;
+			}
+		}
+
+		// An edge is fixed if it is counted in every elite, at both of its cities
+		int all = elites.size();
+		boolean[] fixed = new boolean[2*idCount];
+		for (int i = 0; i < citySize; i++) {
+			int city = first.get(i).id;
+			for (int slot = 2*city; slot < 2*city + 2; slot++)
+				fixed[slot] = count[slot] == all;
+			if (fixed[2*city + 1]) fixedEdges++;
+		}
+		// If every edge is fixed the elites are one tour; its last edge is left free
+		if (fixedEdges == citySize) {
+			int last = first.get(citySize - 1).id;
+			fixed[2*last + 1] = false;
+			fixed[2*first.get(0).id] = false;
+			fixedEdges--;
+		}
+		contract(first, fixed);
+	}
+
+	/**
+	 * This method contracts the paths of fixed edges into super-nodes. The paths
+	 * are taken in the order of the first elite, so the first elite contracts to
+	 * super-nodes 0, 1, 2 ...
+	 *
+	 * @param first the first elite
+	 * @param fixed fixed slots of the neighbour counter
+	 */
+	private void contract(ArrayList<City> first, boolean[] fixed){
+		this.segmentOf = new int[cityById.length];
+		this.segments = new ArrayList<int[]>();
+		this.superNodes = new ArrayList<City>();
+
+		// Start at a city whose edge to its predecessor is free, so no path is cut in two
+		int start = 0;
+		while (start < citySize && fixed[2*first.get(start).id]) start++;
+		int[] path = new int[citySize];
+		int length = 0;
+		for (int k = 0; k < citySize; k++) {
+			int city = first.get((start + k) % citySize).id;
+			path[length++] = city;
+			if (!fixed[2*city + 1]) {
+				int[] segment = new int[length];
+				System.arraycopy(path, 0, segment, 0, length);
+				for (int c : segment)
+					segmentOf[c] = segments.size();
+				superNodes.add(cityById[segment[0]]);
+				if (length > 1) superNodes.add(cityById[segment[length - 1]]);
+				segments.add(segment);
+				length = 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the fraction of the edges of a tour that are fixed
+	 *
+	 * @return fraction, 0 to 1
+	 */
+	public double getFixedFraction(){
+		return (double) fixedEdges/citySize;
+	}
+
+	/**
+	 * Returns the number of super-nodes
+	 *
+	 * @return number of super-nodes
+	 */
+	public int size(){
+		return segments.size();
+	}
+
+	/**
+	 * Returns the cities of the reduced instance, the end cities of the super-nodes
+	 *
+	 * @return the reduced instance as a tour
+	 */
+	public TravelingPath getReducedTour(){
+		TravelingPath tour = new TravelingPath(superNodes);
+		tour.calculateDistance();
+		return tour;
+	}
+
+	/**
+	 * This method contracts a tour of the full instance. A super-node takes the
+	 * place where the tour first reaches one of its cities, its end cities in the
+	 * direction in which the tour runs through it, so a tour that keeps the fixed
+	 * edges contracts to a tour of the same length, less the length of the paths.
+	 *
+	 * @param tour tour of the full instance
+	 * @return tour of the reduced instance
+	 */
+	public TravelingPath contract(TravelingPath tour){
+		boolean[] seen = new boolean[segments.size()];
+		ArrayList<City> reduced = new ArrayList<City>(segments.size());
+		ArrayList<City> cityList = tour.getCityList();
+		for (int i = 0; i < cityList.size(); i++) {
+			int segment = segmentOf[cityList.get(i).id];
+			if (seen[segment]) continue;
+			seen[segment] = true;
+			int direction = cityList.get(i).id == exit(segment, 0) ? 1 : 0;
+			reduced.add(cityById[entry(segment, direction)]);
+			if (segments.get(segment).length > 1) reduced.add(cityById[exit(segment, direction)]);
+		}
+		TravelingPath path = new TravelingPath(reduced);
+		path.calculateDistance();
+		return path;
+	}
+
+	/**
+	 * This method expands a tour of the reduced instance. The paths are visited in
+	 * the order in which the tour first reaches their end cities, and the direction
+	 * of every path is chosen by dynamic programming around the tour, which gives
+	 * the shortest tour that visits the paths in that order. The expanded tour has
+	 * its length and its hash set, so it can enter an EliteArchive.
+	 *
+	 * @param tour tour of the reduced instance
+	 * @return tour of the full instance
+	 */
+	public TravelingPath expand(TravelingPath tour){
+		ArrayList<City> reduced = tour.getCityList();
+		int m = segments.size();
+		int[] order = new int[m];
+		boolean[] seen = new boolean[m];
+		for (int i = 0, k = 0; i < reduced.size(); i++) {
+			int segment = segmentOf[reduced.get(i).id];
+			if (seen[segment]) continue;
+			seen[segment] = true;
+			order[k++] = segment;
+		}
+
+		// Direction 0 enters a path at its first city, direction 1 at its last one
+		boolean[] reversed = new boolean[m];
+		double best = Double.POSITIVE_INFINITY;
+		for (int firstDirection = 0; firstDirection < 2; firstDirection++) {
+			double[] cost = new double[2];
+			cost[firstDirection] = 0;
+			cost[1 - firstDirection] = Double.POSITIVE_INFINITY;
+			byte[] from = new byte[2*m];
+			for (int i = 1; i < m; i++) {
+				double[] next = new double[2];
+				for (int d = 0; d < 2; d++) {
+					next[d] = Double.POSITIVE_INFINITY;
+					for (int p = 0; p < 2; p++) {
+						double c = cost[p] + coordinates.distance(exit(order[i - 1], p), entry(order[i], d));
+						if (c < next[d]) {
+							next[d] = c;
+							from[2*i + d] = (byte) p;
+						}
+					}
+				}
+				cost = next;
+			}
+			for (int d = 0; d < 2; d++) {
+				double c = cost[d] + coordinates.distance(exit(order[m - 1], d), entry(order[0], firstDirection));
+				if (c < best) {
+					best = c;
+					int direction = d;
+					for (int i = m - 1; i > 0; i--) {
+						reversed[i] = direction == 1;
+						direction = from[2*i + direction];
+					}
+					reversed[0] = firstDirection == 1;
+				}
+			}
+		}
+
+		ArrayList<City> cityList = new ArrayList<City>(citySize);
+		for (int i = 0; i < m; i++) {
+			int[] segment = segments.get(order[i]);
+			for (int k = 0; k < segment.length; k++)
+				cityList.add(cityById[segment[reversed[i] ? segment.length - 1 - k : k]]);
+		}
+		TravelingPath path = new TravelingPath(cityList);
+		path.calculateDistance();
+		path.setHash(TourHash.shared(cityById.length).hash(cityList));
+		return path;
+	}
+
+	/**
+	 * Returns the city at which a path is entered
+	 *
+	 * @param segment index of the super-node
+	 * @param direction 0 for the path order, 1 for the reverse order
+	 * @return id of the city
+	 */
+	private int entry(int segment, int direction){
+		int[] cities = segments.get(segment);
+		return direction == 0 ? cities[0] : cities[cities.length - 1];
+	}
+
+	/**
+	 * Returns the city at which a path is left
+	 *
+	 * @param segment index of the super-node
+	 * @param direction 0 for the path order, 1 for the reverse order
+	 * @return id of the city
+	 */
+	private int exit(int segment, int direction){
+		int[] cities = segments.get(segment);
+		return direction == 0 ? cities[cities.length - 1] : cities[0];
+	}
+}
@@ -0,0 +1,222 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class BatchTSPMain solves a stream of small traveling sales man instances
+ * concurrently. Each instance is one task for a work-stealing pool and is solved by
+ * a single island on the thread that runs it; results are written as soon as they
+ * are found, so they appear in completion order. Every thread keeps one
+ * ArenaPopulation, its coordinates and its hash tables in a workspace and resets
+ * it for the next instance, so its buffers are only allocated again when an
+ * instance has more cities than any before.
+ * <P>
+ * Usage: java BatchTSPMain {@literal <populationsize> <GAiterations> <epochs>} [threads={@literal <k>}] [seed={@literal <s>}] [metric={@literal <m>}] {@literal < <instances>} <br>
+ * {@literal <populationsize>} = The size of the population. <br>
+ * {@literal <GAiterations>} = The iterations of the genetic algorithm per epoch. <br>
+ * {@literal <epochs>} = The number of epochs per instance. <br>
+ * threads={@literal <k>} = Number of instances solved at the same time (default: cores). <br>
+ * seed={@literal <s>} = Seed from which the random streams of the instances are derived. <br>
+ * metric=EUC_2D|EUC_3D|CEIL_2D|MAN_2D|GEO = How distances are measured, see DistanceMetrics (default EUC_2D).
+ * <P>
+ * Every instance on the standard input starts with a line {@literal "<name> <N>"}, followed by
+ * N lines {@literal "<x> <y>"} or {@literal "<x> <y> <z>"}. For every instance one line {@literal "<name> <distance> <id> <id> ..."}
+ * is written to the standard output, the ids being the positions of the cities in the input.
+ * An instance that cannot be read is reported as {@literal "<name> FAILED <reason>"} and
+ * the stream goes on with the next line.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class BatchTSPMain {
+
+	// Workspace of every thread of the pool
+	private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>(){
+		protected Workspace initialValue(){
+			return new Workspace();
+		}
+	};
+
+	/**
+	 * Batch main program.
+	 *
+	 * @param args Command line arguments
+	 * @throws Exception Thrown if the input cannot be read
+	 */
+	public static void main(String[] args) throws Exception {
+		if( args.length < 3 )
+			usage();
+		final int popSize, iterGA, epochs;
+		final SolverOptions options;
+		try {
+			popSize = Integer.parseInt(args[0]);
+			iterGA = Integer.parseInt(args[1]);
+			epochs = Integer.parseInt(args[2]);
+			options = new SolverOptions(args, 3);
+			options.getInt("threads", 0);
+			options.getLong("seed", 0);
+			if( !DistanceMetrics.isMetric(options.getString("metric", "EUC_2D")) || options.getString("metric", "").equals("EXPLICIT") )
+				throw new IllegalArgumentException("Illegal metric " + options.getString("metric", ""));
+		}
+		catch( IllegalArgumentException e ) {
+			usage();
+			return;
+		}
+		int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+		final long seed = options.getLong("seed", System.nanoTime());
+		final PrintStream out = System.out;
+		DistanceMetrics.select(options.getString("metric", "EUC_2D"), null);
+
+		// Bound the instances in flight, so a long input is not read into memory at once.
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		final Semaphore inFlight = new Semaphore(4*threads);
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+		String header;
+		long instanceIndex = 0;
+		while( ( header = reader.readLine() ) != null ) {
+			if( header.trim().isEmpty() ) continue;
+			final String[] fields = header.trim().split("\\s+");
+			final ArrayList<City> cityList;
+			try {
+				if( fields.length < 2 )
+					throw new IOException("Header \"" + header.trim() + "\" has no city count");
+				cityList = readCities(reader, Integer.parseInt(fields[1]));
+			}
+			catch( IOException | IllegalArgumentException e ) {
+				// Report the instance and go on with the rest of the stream
+				out.println(fields[0] + " FAILED " + e);
+				continue;
+			}
+			final long instanceSeed = SplitRandom.stream(seed, instanceIndex++).nextLong();
+
+			inFlight.acquire();
+			pool.execute(new Runnable(){
+				public void run(){
+					try {
+						TSPResult result = WORKSPACE.get().solve(cityList, popSize, iterGA, epochs, instanceSeed);
+						StringBuilder line = new StringBuilder(fields[0]);
+						line.append(String.format(" %.3f", result.getLength()));
+						for( int i = 0; i < result.getTour().size(); i++ ) {
+							line.append(' ').append(result.getTour().get(i).id);
+						}
+						out.println(line);
+					}
+					catch( RuntimeException e ) {
+						out.println(fields[0] + " FAILED " + e);
+					}
+					finally {
+						inFlight.release();
+					}
+				}
+			});
+		}
+
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		out.flush();
+	}
+
+	/**
+	 * This method reads the cities of one instance. All the lines of the instance
+	 * are read before they are parsed, so a bad line does not leave the rest of the
+	 * instance to be read as headers.
+	 *
+	 * @param reader the input
+	 * @param n number of cities
+	 * @return cities, numbered by their position in the input
+	 * @throws IOException Thrown if the input cannot be read, ends early or holds a bad line
+	 */
+	private static ArrayList<City> readCities(BufferedReader reader, int n) throws IOException {
+		if( n < 0 )
+			throw new IOException("Negative city count " + n);
+		String[] lines = new String[n];
+		for( int i = 0; i < n; i++ ) {
+			lines[i] = reader.readLine();
+			if( lines[i] == null )
+				throw new IOException("Instance ends after " + i + " of " + n + " cities");
+		}
+		ArrayList<City> cityList = new ArrayList<City>(n);
+		for( int i = 0; i < n; i++ ) {
+			String[] coordinates = lines[i].trim().split("\\s+");
+			try {
+				double z = coordinates.length > 2 ? Double.parseDouble(coordinates[2]) : 0;
+				cityList.add(new City(Double.parseDouble(coordinates[0]), Double.parseDouble(coordinates[1]), z, i));
+			}
+			catch( RuntimeException e ) {
+				throw new IOException("Bad city line \"" + lines[i].trim() + "\"");
+			}
+		}
+		return cityList;
+	}
+
+	/**
+	 * Class Workspace holds the island of one thread of the pool. The island is
+	 * made for the first instance the thread solves and reset for every later one.
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static class Workspace {
+
+		private ArenaPopulation population;		// Island of the thread, null before the first instance
+		private int populationSize;				// Population size of the island
+
+		/**
+		 * This method solves an instance on the island of the workspace
+		 *
+		 * @param cityList cities of the instance, numbered from 0
+		 * @param popSize the population size
+		 * @param iterGA generations per epoch
+		 * @param epochs number of epochs
+		 * @param seed seed of the instance
+		 * @return best tour of the instance
+		 */
+		public TSPResult solve(ArrayList<City> cityList, int popSize, int iterGA, int epochs, long seed){
+			long start = System.currentTimeMillis();
+			int n = cityList.size();
+
+			// Too few cities for crossover, any order is optimal.
+			if( n < 4 ) {
+				TravelingPath path = new TravelingPath(cityList);
+				if( n > 0 ) path.calculateDistance();
+				return new TSPResult(new ArrayList<City>(cityList), path.getEuclideanDistance(), 0, 0,
+						System.currentTimeMillis() - start);
+			}
+
+			TravelingPath tour = new TravelingPath(cityList);
+			SplitRandom prng = SplitRandom.stream(seed, 0, 0);
+			if( population == null || populationSize != popSize ) {
+				population = new ArenaPopulation(tour, popSize, prng, false);
+				populationSize = popSize;
+			}
+			else {
+				population.reset(tour, prng);
+			}
+			population.createPopulation(new ArrayList<TravelingPath>(), 0);
+			for( int epoch = 0; epoch < epochs; epoch++ ) {
+				population.startGA(iterGA);
+			}
+			TravelingPath best = population.getBestPopulation(1).get(0);
+			return new TSPResult(best.getCityList(), best.getEuclideanDistance(), epochs, epochs*iterGA,
+					System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Print a usage message and exit.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java BatchTSPMain <populationsize> <GAiterations> <epochs> [threads=<k>] [seed=<s>] [metric=<m>] < <instances>");
+		System.err.println("<populationsize> The size of the population.");
+		System.err.println("<GAiterations> Number of genetic algorithm iterations per epoch.");
+		System.err.println("<epochs> Number of epochs per instance.");
+		System.err.println("Every instance is a line \"<name> <N>\" followed by N lines \"<x> <y>\" or \"<x> <y> <z>\".");
+		System.exit(1);
+	}
+}
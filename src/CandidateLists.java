@@ -0,0 +1,60 @@
+/**
+ * Class CandidateLists holds the k nearest neighbours of every city in one flat
+ * array, nearest first. Construction heuristics and local searches only consider
+ * edges to candidates, which keeps them near linear in the number of cities.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class CandidateLists {
+
+	private int k;					// Maximum number of candidates per city
+	private int[] neighbours;		// Candidates of city c at [c*k, c*k + count[c])
+	private int[] count;			// Number of candidates of every city
+
+	/**
+	 * Parameterized constructor, finds the candidates of the given cities
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities
+	 * @param k number of candidates per city
+	 */
+	public CandidateLists(CityCoordinates coordinates, int[] ids, int k){
+		this.k = k;
+		this.neighbours = new int[coordinates.size()*k];
+		this.count = new int[coordinates.size()];
+		SpatialGrid grid = new SpatialGrid(coordinates, ids, 2);
+		for (int i = 0; i < ids.length; i++)
+			count[ids[i]] = grid.kNearest(ids[i], k, neighbours, ids[i]*k);
+	}
+
+	/**
+	 * Returns the maximum number of candidates per city
+	 *
+	 * @return k
+	 */
+	public int getK(){
+		return k;
+	}
+
+	/**
+	 * Returns the number of candidates of a city
+	 *
+	 * @param city id of the city
+	 * @return number of candidates
+	 */
+	public int count(int city){
+		return count[city];
+	}
+
+	/**
+	 * Returns a candidate of a city
+	 *
+	 * @param city id of the city
+	 * @param index rank of the candidate, 0 for the nearest
+	 * @return id of the candidate
+	 */
+	public int get(int city, int index){
+		return neighbours[city*k + index];
+	}
+}
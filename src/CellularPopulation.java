@@ -0,0 +1,397 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class CellularPopulation runs a cellular genetic algorithm. The tours sit on the
+ * cells of a two dimensional torus and a tour only mates with its four neighbours:
+ * in every generation each cell is crossed over with the better of two random
+ * neighbours, the shorter child is mutated at the mutation rate and replaces the
+ * cell if it is shorter. There is no global sort, fitness sum or maximum distance,
+ * so good tours spread by diffusion and the population keeps its diversity longer.
+ * <P>
+ * The rows of the grid are split into bands, one per thread. Within a call of
+ * startGA a band only writes its own cells and sees the rows next to it as they
+ * were at the start of the call, so the bands run all the generations of an epoch
+ * without synchronising and the result does not depend on the thread schedule.
+ * Every band has its own random stream, operators and adaptive controller. The
+ * best tours are read out between the epochs.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class CellularPopulation extends RowPopulation {
+
+	private static final int TOURNAMENT = 4;	// Cells a migrant competes for
+
+	private int width;				// Cells per grid row
+	private int height;				// Grid rows
+	private Band[] bands;			// Bands of grid rows, one per thread
+	private ForkJoinPool pool;		// Runs the bands outside a pool, null until first needed
+
+	/**
+	 * Parameterized constructor, lays out the grid and its bands
+	 *
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size, rounded up to a full grid
+	 * @param prng pseudorandom number generator, owned by this population
+	 * @param threads number of threads updating the grid
+	 */
+	public CellularPopulation(TravelingPath tour, int populationSize, Random prng, int threads){
+		super(tour, gridWidth(populationSize)*gridHeight(populationSize), prng, false,
+				gridWidth(populationSize)*gridHeight(populationSize));
+		this.width = gridWidth(populationSize);
+		this.height = gridHeight(populationSize);
+		int bandCount = Math.max(1, Math.min(threads, height));
+		this.bands = new Band[bandCount];
+		for (int b = 0; b < bandCount; b++)
+			bands[b] = new Band(b*height/bandCount, (b + 1)*height/bandCount, new SplitRandom(prng.nextLong()));
+	}
+
+	/**
+	 * Returns the width of the grid of a population size, the grid is about square
+	 *
+	 * @param populationSize the population size
+	 * @return cells per grid row
+	 */
+	private static int gridWidth(int populationSize){
+		return Math.max(2, (int) Math.ceil(Math.sqrt(populationSize)));
+	}
+
+	/**
+	 * Returns the height of the grid of a population size
+	 *
+	 * @param populationSize the population size
+	 * @return grid rows
+	 */
+	private static int gridHeight(int populationSize){
+		return Math.max(2, (populationSize + gridWidth(populationSize) - 1)/gridWidth(populationSize));
+	}
+
+	/**
+	 * This method creates the initial population from seed tours. Tiny instances
+	 * have fewer distinct tours than cells; the cells left empty get copies.
+	 *
+	 * @param seeds tours of the cities of this population
+	 * @param seededFraction fraction of the population made from the seeds, 0 to 1
+	 */
+	public void createPopulation(List<TravelingPath> seeds, double seededFraction){
+		super.createPopulation(seeds, seededFraction);
+		int distinct = current.size;
+		for (int cell = distinct; cell < populationSize; cell++) {
+			int copy = prng.nextInt(distinct);
+			current.read(copy, row1);
+			current.write(cell, row1);
+			current.lengths[cell] = current.lengths[copy];
+			current.hashes[cell] = current.hashes[copy];
+		}
+		current.size = populationSize;
+
+		// Cells sit on the grid by position, not by quality
+		for (int cell = populationSize - 1; cell > 0; cell--)
+			swapCells(cell, prng.nextInt(cell + 1));
+	}
+
+	/**
+	 * This method swaps the tours of two cells
+	 *
+	 * @param cell1 index of cell one
+	 * @param cell2 index of cell two
+	 */
+	private void swapCells(int cell1, int cell2){
+		current.read(cell1, row1);
+		current.read(cell2, row2);
+		current.write(cell1, row2);
+		current.write(cell2, row1);
+		double length = current.lengths[cell1];
+		current.lengths[cell1] = current.lengths[cell2];
+		current.lengths[cell2] = length;
+		long hash = current.hashes[cell1];
+		current.hashes[cell1] = current.hashes[cell2];
+		current.hashes[cell2] = hash;
+	}
+
+	/**
+	 * This method runs the genetic algorithm. The bands take a copy of the rows next
+	 * to them and then run all the generations in parallel.
+	 *
+	 * @param gaIterCount The iterations for genetic algorithm to run
+	 */
+	public void startGA(final int gaIterCount){
+		for (int b = 0; b < bands.length; b++)
+			bands[b].copyHalo();
+		final RecursiveAction[] actions = new RecursiveAction[bands.length];
+		for (int b = 0; b < bands.length; b++) {
+			final Band band = bands[b];
+			actions[b] = new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+				protected void compute(){
+					band.run(gaIterCount);
+				}
+			};
+		}
+		// The pool of its own is only made for an island that runs outside a pool;
+		// inside the pool of an IslandEngine the bands share its threads
+		if (pool == null && bands.length > 1 && !ForkJoinTask.inForkJoinPool())
+			pool = new ForkJoinPool(bands.length);
+		IslandEngine.invokeActions(pool, actions);
+	}
+
+	/**
+	 * This method receives the tour migrated from the peer node. The bands do not
+	 * keep the hashes of the grid up to date, so they are collected once per call; a
+	 * migrant already on the grid is rejected. Otherwise it replaces the longest of
+	 * TOURNAMENT random cells if it is shorter, which keeps the migrants from always
+	 * hitting the same cells.
+	 *
+	 * @param migrationPopulation Contains the migrated population
+	 */
+	public void receiveMigratingTours(ArrayList<TravelingPath> migrationPopulation){
+		members.clear();
+		for (int cell = 0; cell < current.size; cell++)
+			members.put(current.hashes[cell], current.lengths[cell]);
+		for (int i = 0; i < Math.min(10, migrationPopulation.size()); i++) {
+			toRow(migrationPopulation.get(i), row1);
+			long hash = tourHash.hash(row1, 0, citySize);
+			if (members.contains(hash)) continue;
+			double length = lengthOf(hash, row1);
+			int worst = prng.nextInt(current.size);
+			for (int k = 1; k < TOURNAMENT; k++) {
+				int cell = prng.nextInt(current.size);
+				if (current.lengths[cell] > current.lengths[worst]) worst = cell;
+			}
+			if (length >= current.lengths[worst]) continue;
+			members.put(hash, length);
+			current.write(worst, row1);
+			current.lengths[worst] = length;
+			current.hashes[worst] = hash;
+		}
+	}
+
+	/**
+	 * This method returns the adaptive controller of the first band
+	 *
+	 * @return adaptive controller
+	 */
+	public AdaptiveController getController(){
+		return bands[0].controller;
+	}
+
+	/**
+	 * This method configures every band from a profile of a portfolio
+	 *
+	 * @param profile the profile
+	 */
+	public void configure(IslandProfile profile){
+		super.configure(profile);
+		for (int b = 0; b < bands.length; b++) {
+			bands[b].controller = profile.createController();
+			bands[b].operators.setCrossover(profile.getCrossover());
+		}
+	}
+
+	/**
+	 * This method stops the threads of the bands, if the population made a pool of its own
+	 */
+	public void shutdown(){
+		if (pool != null) pool.shutdown();
+	}
+
+	/**
+	 * Class Band updates the cells of a range of grid rows
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private class Band {
+
+		private int firstRow, endRow;			// Grid rows firstRow .. endRow-1
+		private Random prng;					// pseudorandom number generator of this band
+		private TourOperators operators;		// Crossover and mutation of this band
+		private AdaptiveController controller = new AdaptiveController();	// Tunes the rates of this band
+		private TourHashTable lengthCache;		// Lengths of the tours evaluated recently, by hash
+		private PopulationArena halo;			// Copy of the row above, then of the row below
+		private int[] parent1, parent2, child1, child2, neighbour;	// Tour rows
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param firstRow first grid row of the band
+		 * @param endRow grid row past the end of the band
+		 * @param prng pseudorandom number generator, owned by this band
+		 */
+		public Band(int firstRow, int endRow, Random prng){
+			this.firstRow = firstRow;
+			this.endRow = endRow;
+			this.prng = prng;
+			this.operators = new TourOperators(citySize, coordinates.size(), prng);
+			this.lengthCache = new TourHashTable(8*width*(endRow - firstRow));
+			this.halo = PopulationArena.onHeap(2*width, citySize);
+			this.parent1 = new int[citySize];
+			this.parent2 = new int[citySize];
+			this.child1 = new int[citySize];
+			this.child2 = new int[citySize];
+			this.neighbour = new int[citySize];
+		}
+
+		/**
+		 * This method copies the rows above and below the band. A band that covers
+		 * the whole grid reads its own rows instead.
+		 */
+		public void copyHalo(){
+			if (bands.length == 1) return;
+			int above = (firstRow - 1 + height) % height;
+			int below = endRow % height;
+			for (int col = 0; col < width; col++) {
+				copyToHalo(above*width + col, col);
+				copyToHalo(below*width + col, width + col);
+			}
+		}
+
+		/**
+		 * This method copies a cell into the halo
+		 *
+		 * @param cell index of the cell
+		 * @param slot index in the halo
+		 */
+		private void copyToHalo(int cell, int slot){
+			current.read(cell, neighbour);
+			halo.write(slot, neighbour);
+			halo.lengths[slot] = current.lengths[cell];
+			halo.hashes[slot] = current.hashes[cell];
+		}
+
+		/**
+		 * This method runs the generations of the band, sweeping its cells row by row
+		 *
+		 * @param gaIterCount number of generations
+		 */
+		public void run(int gaIterCount){
+			for (int i = 0; i < gaIterCount; i++) {
+				for (int row = firstRow; row < endRow; row++)
+					for (int col = 0; col < width; col++)
+						update(row, col);
+				if (lengthCache.size() > 64*width*(endRow - firstRow)) lengthCache.clear();
+				controller.endGeneration();
+			}
+		}
+
+		/**
+		 * This method mates the tour of a cell with the better of two of its four
+		 * neighbours and replaces it by the shorter child if that is shorter
+		 *
+		 * @param row grid row of the cell
+		 * @param col grid column of the cell
+		 */
+		private void update(int row, int col){
+			int cell = row*width + col;
+			int mate1 = prng.nextInt(4);
+			int mate2 = prng.nextInt(3);
+			if (mate2 >= mate1) mate2++;
+			double length1 = neighbourLength(row, col, mate1);
+			double length2 = neighbourLength(row, col, mate2);
+			int mate = length1 <= length2 ? mate1 : mate2;
+			double mateLength = Math.min(length1, length2);
+			long mateHash = readNeighbour(row, col, mate, parent2);
+			current.read(cell, parent1);
+			double cellLength = current.lengths[cell];
+			if (current.hashes[cell] == mateHash) return;
+
+			operators.crossover(parent1, parent2, child1, child2);
+			long hash1 = tourHash.hash(child1, 0, citySize);
+			long hash2 = tourHash.hash(child2, 0, citySize);
+			double childLength1 = lengthOf(hash1, child1);
+			double childLength2 = lengthOf(hash2, child2);
+			int[] child = childLength1 <= childLength2 ? child1 : child2;
+			long hash = childLength1 <= childLength2 ? hash1 : hash2;
+			double length = Math.min(childLength1, childLength2);
+			controller.recordCrossover(length < Math.min(cellLength, mateLength));
+
+			if (prng.nextInt(100) < controller.getMutationRate()) {
+				int operator = operators.mutate(child, controller);
+				long mutatedHash = tourHash.hash(child, 0, citySize);
+				double mutatedLength = lengthOf(mutatedHash, child);
+				controller.recordMutation(operator, mutatedLength < length);
+				hash = mutatedHash;
+				length = mutatedLength;
+			}
+
+			// Replace if better, but do not clone the mate into the cell
+			if (length < cellLength && hash != mateHash) {
+				current.write(cell, child);
+				current.lengths[cell] = length;
+				current.hashes[cell] = hash;
+			}
+		}
+
+		/**
+		 * Returns the index of a neighbour of a cell, in the grid or in the halo
+		 *
+		 * @param row grid row of the cell
+		 * @param col grid column of the cell
+		 * @param direction 0 to 3 for west, east, north and south
+		 * @return index of the neighbour, halo slots as -1-slot
+		 */
+		private int neighbourIndex(int row, int col, int direction){
+			if (direction == 0) return row*width + (col - 1 + width) % width;
+			if (direction == 1) return row*width + (col + 1) % width;
+			if (bands.length > 1) {
+				if (direction == 2 && row == firstRow) return -1 - col;
+				if (direction == 3 && row == endRow - 1) return -1 - (width + col);
+			}
+			if (direction == 2) return (row - 1 + height) % height*width + col;
+			return (row + 1) % height*width + col;
+		}
+
+		/**
+		 * Returns the length of the tour of a neighbour
+		 *
+		 * @param row grid row of the cell
+		 * @param col grid column of the cell
+		 * @param direction 0 to 3 for west, east, north and south
+		 * @return length of the tour
+		 */
+		private double neighbourLength(int row, int col, int direction){
+			int index = neighbourIndex(row, col, direction);
+			return index >= 0 ? current.lengths[index] : halo.lengths[-1 - index];
+		}
+
+		/**
+		 * This method reads the tour of a neighbour
+		 *
+		 * @param row grid row of the cell
+		 * @param col grid column of the cell
+		 * @param direction 0 to 3 for west, east, north and south
+		 * @param tour receives the tour
+		 * @return hash of the tour
+		 */
+		private long readNeighbour(int row, int col, int direction, int[] tour){
+			int index = neighbourIndex(row, col, direction);
+			if (index >= 0) {
+				current.read(index, tour);
+				return current.hashes[index];
+			}
+			halo.read(-1 - index, tour);
+			return halo.hashes[-1 - index];
+		}
+
+		/**
+		 * This method returns the length of a tour, from the cache of the band if possible
+		 *
+		 * @param hash hash of the tour
+		 * @param tour the tour
+		 * @return length of the tour
+		 */
+		private double lengthOf(long hash, int[] tour){
+			double length = lengthCache.get(hash);
+			if (Double.isNaN(length)) {
+				length = coordinates.tourLength(tour, 0, citySize);
+				lengthCache.put(hash, length);
+			}
+			return length;
+		}
+	}
+}
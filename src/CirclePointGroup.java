@@ -0,0 +1,87 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Class CirclePointGroup provides a group of points at random angles on a circle.
+ * The points are in convex position, so the optimal tour visits them in the order
+ * of their angles and its length is the sum of the chords between neighbouring
+ * angles. The points are generated in random order.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class CirclePointGroup implements ReferencePointGroup {
+
+	private double[] xs, ys;	// Coordinates in the order they are generated
+	private double optimum;		// Length of the optimal tour
+	private int generated;
+
+	/**
+	 * Construct a new circle point group
+	 *
+	 * @param N Number of points, at least three
+	 * @param radius Radius of the circle
+	 * @param seed Seed for pseudorandom number generator
+	 */
+	public CirclePointGroup(int N, double radius, long seed){
+		if (N < 3)
+			throw new IllegalArgumentException("CirclePointGroup needs at least 3 points");
+		Random prng = new Random(seed);
+		double[] angles = new double[N];
+		for (int i = 0; i < N; i++)
+			angles[i] = 2*Math.PI*prng.nextDouble();
+		Arrays.sort(angles);
+		for (int i = 0; i < N; i++) {
+			double delta = (i + 1 < N ? angles[i + 1] : angles[0] + 2*Math.PI) - angles[i];
+			optimum += 2*radius*Math.sin(delta/2);
+		}
+
+		// Generate the points in random order
+		for (int i = N - 1; i > 0; i--) {
+			int j = prng.nextInt(i + 1);
+			double t = angles[i];
+			angles[i] = angles[j];
+			angles[j] = t;
+		}
+		xs = new double[N];
+		ys = new double[N];
+		for (int i = 0; i < N; i++) {
+			xs[i] = radius*Math.cos(angles[i]);
+			ys[i] = radius*Math.sin(angles[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of points in this group, N.
+	 */
+	public int N(){
+		return xs.length;
+	}
+
+	/**
+	 * Obtain the next point in this point group
+	 *
+	 * @param city City object in which to store the coordinates.
+	 *
+	 * @exception NoSuchElementException
+	 *     (unchecked exception) Thrown if this method is called more than N
+	 *     times.
+	 */
+	public void nextPoint(City city){
+		if (generated == xs.length)
+			throw new NoSuchElementException("CirclePointGroup.nextPoint(): Too many points generated");
+		city.x = xs[generated];
+		city.y = ys[generated];
+		++generated;
+	}
+
+	/**
+	 * Returns the length of the optimal tour, the sum of the chords
+	 *
+	 * @return optimal tour length
+	 */
+	public double optimum(){
+		return optimum;
+	}
+}
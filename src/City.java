@@ -14,6 +14,7 @@ public class City implements Streamable{
 
 	public double x;	// The x coordinate of the city
 	public double y;	// The y coordinate of the city
+	public double z;	// The z coordinate of the city, 0 for planar instances
 	public int id;		// Id of the city
 	
 	/**
@@ -34,7 +35,7 @@ public class City implements Streamable{
             return false;
         }
         City city = (City) obj;
-        return (city.x == x && city.y == y);
+        return (city.x == x && city.y == y && city.z == z);
     }
 	
 	/**
@@ -50,6 +51,19 @@ public class City implements Streamable{
 		this.id = id;
 	}
 	
+	/**
+	 * Parameterized constructor to create a city in three dimensions
+	 * 
+	 * @param x the x coordinate of the city
+	 * @param y the y coordinate of the city
+	 * @param z the z coordinate of the city
+	 * @param id the identifier of the city
+	 */
+	public City(double x, double y, double z, int id){
+		this(x, y, id);
+		this.z = z;
+	}
+	
 	/**
 	 * Returns x coordinate of the city
 	 * 
@@ -86,6 +100,24 @@ public class City implements Streamable{
 		this.y = y;
 	}	
 	
+	/**
+	 * Returns the z coordinate of the city
+	 * 
+	 * @return z coordinate
+	 */
+	public double getZ() {
+		return z;
+	}
+	
+	/**
+	 * Sets z coordinate of the city
+	 * 
+	 * @param z coordinate of city
+	 */
+	public void setZ(double z) {
+		this.z = z;
+	}	
+	
 	/**
 	 * Read the fields of this streamable class from the given input stream
 	 * 
@@ -96,6 +128,7 @@ public class City implements Streamable{
 	public void readIn(InStream inStream) throws IOException {
 		x = inStream.readDouble();
 		y = inStream.readDouble();
+		z = inStream.readDouble();
 		id = inStream.readInt();
 	}
 
@@ -109,6 +142,7 @@ public class City implements Streamable{
 	public void writeOut(OutStream outStream) throws IOException {
 		outStream.writeDouble(x);
 		outStream.writeDouble(y);
+		outStream.writeDouble(z);
 		outStream.writeInt(id);
 	}
 }
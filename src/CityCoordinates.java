@@ -0,0 +1,160 @@
+import java.util.List;
+
+/**
+ * Class CityCoordinates holds the coordinates of all the cities of an instance in
+ * contiguous arrays indexed by city id, so that the distance computations walk
+ * primitive arrays instead of chasing City objects around the heap. City ids are
+ * expected to be dense, from 0 to N-1. Distances are measured with the metric of
+ * the job at the time the coordinates are made, see DistanceMetrics.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class CityCoordinates {
+
+	private double[] xs;	// x coordinate of every city, indexed by city id
+	private double[] ys;	// y coordinate of every city, indexed by city id
+	private double[] zs;	// z coordinate of every city, indexed by city id
+	private int size;		// Number of coordinate slots in use
+	private final DistanceMetric metric;	// Measures the distances
+
+	/**
+	 * Parameterized constructor, copies the coordinates of the cities
+	 *
+	 * @param cityList Contains the list of cities
+	 */
+	public CityCoordinates(List<City> cityList){
+		load(cityList);
+		metric = DistanceMetrics.get();
+	}
+
+	/**
+	 * This method copies the coordinates of the cities of another instance. The
+	 * arrays are reused if they are large enough, and the metric is kept.
+	 *
+	 * @param cityList Contains the list of cities
+	 */
+	public void load(List<City> cityList){
+		size = 0;
+		for (int i = 0; i < cityList.size(); i++)
+			size = Math.max(size, cityList.get(i).id + 1);
+		if (xs == null || xs.length < size) {
+			xs = new double[size];
+			ys = new double[size];
+			zs = new double[size];
+		}
+		for (int i = 0; i < cityList.size(); i++) {
+			City city = cityList.get(i);
+			xs[city.id] = city.x;
+			ys[city.id] = city.y;
+			zs[city.id] = city.z;
+		}
+	}
+
+	/**
+	 * Returns the number of coordinate slots, one more than the largest city id
+	 *
+	 * @return number of cities
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns the x coordinates indexed by city id
+	 *
+	 * @return x coordinates
+	 */
+	public double[] getXs(){
+		return xs;
+	}
+
+	/**
+	 * Returns the y coordinates indexed by city id
+	 *
+	 * @return y coordinates
+	 */
+	public double[] getYs(){
+		return ys;
+	}
+
+	/**
+	 * Returns the z coordinates indexed by city id
+	 *
+	 * @return z coordinates
+	 */
+	public double[] getZs(){
+		return zs;
+	}
+
+	/**
+	 * Returns the metric of the distances
+	 *
+	 * @return the metric
+	 */
+	public DistanceMetric getMetric(){
+		return metric;
+	}
+
+	/**
+	 * This method finds distance between two cities
+	 *
+	 * @param city1 id of city one
+	 * @param city2 id of city two
+	 * @return Returns the distance between two cities.
+	 */
+	public double distance(int city1, int city2){
+		return metric.distance(this, city1, city2);
+	}
+
+	/**
+	 * This method calculates the length of a closed tour given as a list of cities
+	 *
+	 * @param cityList cities in tour order
+	 * @return length of the tour
+	 */
+	public double tourLength(List<City> cityList){
+		int size = cityList.size();
+		if (size < 2) return 0;
+		double length = 0;
+		int previous = cityList.get(size - 1).id;
+		for (int i = 0; i < size; i++) {
+			int current = cityList.get(i).id;
+			length += metric.distance(this, previous, current);
+			previous = current;
+		}
+		return length;
+	}
+
+	/**
+	 * This method calculates the length of a closed tour stored as city ids in
+	 * tour[offset] .. tour[offset+size-1]. The edges are summed in blocks of four
+	 * into independent accumulators so the distances of a block do not wait on
+	 * each other.
+	 *
+	 * @param tour city ids in tour order
+	 * @param offset index of the first city of the tour
+	 * @param size number of cities in the tour
+	 * @return length of the tour
+	 */
+	public double tourLength(int[] tour, int offset, int size){
+		if (size < 2) return 0;
+		DistanceMetric metric = this.metric;
+		double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+		int end = offset + size - 1;
+		int i = offset;
+		for (; i + 4 <= end; i += 4) {
+			int c0 = tour[i], c1 = tour[i+1], c2 = tour[i+2], c3 = tour[i+3], c4 = tour[i+4];
+			sum0 += metric.distance(this, c0, c1);
+			sum1 += metric.distance(this, c1, c2);
+			sum2 += metric.distance(this, c2, c3);
+			sum3 += metric.distance(this, c3, c4);
+		}
+		for (; i < end; i++)
+			sum0 += distance(tour[i], tour[i+1]);
+
+		// Close the tour
+		sum0 += distance(tour[end], tour[offset]);
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+}
@@ -0,0 +1,163 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Class ConvexPointGroup provides the vertices of a random convex polygon, made by
+ * Valtr's algorithm: random x and y coordinates are split into two chains each,
+ * their differences are paired into edge vectors which sum to zero, and the
+ * vectors sorted by angle are laid end to end. Unlike a circle the edges have very
+ * different lengths and directions. The points are in convex position, so the
+ * optimal tour is the perimeter of the polygon. The points are generated in random
+ * order.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class ConvexPointGroup implements ReferencePointGroup {
+
+	private double[] xs, ys;	// Coordinates in the order they are generated
+	private double optimum;		// Length of the optimal tour
+	private int generated;
+
+	/**
+	 * Construct a new convex point group
+	 *
+	 * @param N Number of points, at least three
+	 * @param max Maximum absolute coordinate value
+	 * @param seed Seed for pseudorandom number generator
+	 */
+	public ConvexPointGroup(int N, double max, long seed){
+		if (N < 3)
+			throw new IllegalArgumentException("ConvexPointGroup needs at least 3 points");
+		Random prng = new Random(seed);
+		double[] dx = chainDifferences(N, prng);
+		double[] dy = chainDifferences(N, prng);
+
+		// Pair the differences at random and sort the edge vectors by angle
+		for (int i = N - 1; i > 0; i--) {
+			int j = prng.nextInt(i + 1);
+			double t = dy[i];
+			dy[i] = dy[j];
+			dy[j] = t;
+		}
+		final double[] angle = new double[N];
+		Integer[] edges = new Integer[N];
+		for (int i = 0; i < N; i++) {
+			angle[i] = Math.atan2(dy[i], dx[i]);
+			edges[i] = i;
+		}
+		Arrays.sort(edges, new Comparator<Integer>(){
+			public int compare(Integer e1, Integer e2){
+				return Double.compare(angle[e1], angle[e2]);
+			}
+		});
+
+		// Lay the vectors end to end, then center the polygon in -max .. +max
+		double[] px = new double[N], py = new double[N];
+		double x = 0, y = 0;
+		double minX = 0, maxX = 0, minY = 0, maxY = 0;
+		for (int i = 0; i < N; i++) {
+			px[i] = x;
+			py[i] = y;
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+			x += dx[edges[i]];
+			y += dy[edges[i]];
+		}
+		double scale = 2*max/Math.max(maxX - minX, maxY - minY);
+		for (int i = 0; i < N; i++) {
+			px[i] = (px[i] - (minX + maxX)/2)*scale;
+			py[i] = (py[i] - (minY + maxY)/2)*scale;
+		}
+		for (int i = 0; i < N; i++) {
+			int j = (i + 1) % N;
+			optimum += Math.hypot(px[j] - px[i], py[j] - py[i]);
+		}
+
+		// Generate the points in random order
+		xs = new double[N];
+		ys = new double[N];
+		int[] order = new int[N];
+		for (int i = 0; i < N; i++)
+			order[i] = i;
+		for (int i = N - 1; i > 0; i--) {
+			int j = prng.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		for (int i = 0; i < N; i++) {
+			xs[i] = px[order[i]];
+			ys[i] = py[order[i]];
+		}
+	}
+
+	/**
+	 * This method draws N sorted random coordinates and splits the inner ones into
+	 * two chains from the smallest to the largest. The differences along the chains,
+	 * one chain forward and one backward, sum to zero.
+	 *
+	 * @param N number of coordinates
+	 * @param prng pseudorandom number generator
+	 * @return the N differences
+	 */
+	private static double[] chainDifferences(int N, Random prng){
+		double[] values = new double[N];
+		for (int i = 0; i < N; i++)
+			values[i] = prng.nextDouble();
+		Arrays.sort(values);
+		double min = values[0], max = values[N - 1];
+		double[] differences = new double[N];
+		double last1 = min, last2 = min;
+		for (int i = 1; i < N - 1; i++) {
+			if (prng.nextBoolean()) {
+				differences[i - 1] = values[i] - last1;
+				last1 = values[i];
+			}
+			else {
+				differences[i - 1] = last2 - values[i];
+				last2 = values[i];
+			}
+		}
+		differences[N - 2] = max - last1;
+		differences[N - 1] = last2 - max;
+		return differences;
+	}
+
+	/**
+	 * Returns the number of points in this group, N.
+	 */
+	public int N(){
+		return xs.length;
+	}
+
+	/**
+	 * Obtain the next point in this point group
+	 *
+	 * @param city City object in which to store the coordinates.
+	 *
+	 * @exception NoSuchElementException
+	 *     (unchecked exception) Thrown if this method is called more than N
+	 *     times.
+	 */
+	public void nextPoint(City city){
+		if (generated == xs.length)
+			throw new NoSuchElementException("ConvexPointGroup.nextPoint(): Too many points generated");
+		city.x = xs[generated];
+		city.y = ys[generated];
+		++generated;
+	}
+
+	/**
+	 * Returns the length of the optimal tour, the perimeter of the polygon
+	 *
+	 * @return optimal tour length
+	 */
+	public double optimum(){
+		return optimum;
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Interface DistanceMetric specifies how the distance between two cities is
+ * measured. A metric is chosen once per job with DistanceMetrics.select, before
+ * any CityCoordinates is made, so every call site of the solver sees the one
+ * implementation class of the job and the JIT compiler inlines its kernel.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public interface DistanceMetric {
+
+	/**
+	 * Returns the name of the metric, as accepted by DistanceMetrics.forName
+	 *
+	 * @return name of the metric
+	 */
+	public String getName();
+
+	/**
+	 * This method finds the distance between two cities
+	 *
+	 * @param city1 city one
+	 * @param city2 city two
+	 * @return the distance between the cities
+	 */
+	public double distance(City city1, City city2);
+
+	/**
+	 * This method finds the distance between two cities of a coordinate store
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param city1 id of city one
+	 * @param city2 id of city two
+	 * @return the distance between the cities
+	 */
+	public double distance(CityCoordinates coordinates, int city1, int city2);
+
+	/**
+	 * Returns a lower bound on the distance between two cities of the box
+	 * [minX, maxX] x [minY, maxY] whose x or whose y coordinates differ by at least
+	 * the given separation, so that a search in the plane, as in SpatialGrid, may
+	 * stop at cells farther away than the nearest cities found so far
+	 *
+	 * @param separation least difference of the x or of the y coordinates
+	 * @param minX least x coordinate of the cities
+	 * @param maxX greatest x coordinate of the cities
+	 * @param minY least y coordinate of the cities
+	 * @param maxY greatest y coordinate of the cities
+	 * @return the bound, 0 if the coordinates do not bound the distance
+	 */
+	public double separationBound(double separation, double minX, double maxX, double minY, double maxY);
+}
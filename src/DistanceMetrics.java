@@ -0,0 +1,372 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Class DistanceMetrics provides the distance metrics of the solver and holds the
+ * metric of the job:
+ * <P>
+ * EUC_2D = Euclidean distance of x and y, not rounded (the default). <br>
+ * EUC_3D = Euclidean distance of x, y and z. <br>
+ * CEIL_2D = Euclidean distance of x and y, rounded up to an integer. <br>
+ * MAN_2D = Manhattan distance of x and y. <br>
+ * GEO = Great circle distance in kilometres by the haversine formula, x being the
+ * latitude and y the longitude in degrees. <br>
+ * EXPLICIT = Distances read from an N x N matrix, indexed by city id.
+ * <P>
+ * Every metric is a final class of its own, loaded only when it is created, and
+ * the metric of the job is selected once, before the instance is set up. Every
+ * process of a job must select the same metric.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class DistanceMetrics {
+
+	private static final String[] NAMES = { "EUC_2D", "EUC_3D", "CEIL_2D", "MAN_2D", "GEO", "EXPLICIT" };
+
+	private static final double EARTH_RADIUS = 6371.0;		// Mean radius of the earth in kilometres
+
+	private static volatile DistanceMetric metric = new Euclidean2D();	// Metric of the job
+	private static String matrixFile;							// File of the explicit matrix of the job
+
+	/**
+	 * Private constructor, the class only has static methods
+	 */
+	private DistanceMetrics(){
+
+	}
+
+	/**
+	 * Tells whether a metric of the given name exists
+	 *
+	 * @param name name of the metric
+	 * @return true if the metric exists
+	 */
+	public static boolean isMetric(String name){
+		for (String known : NAMES)
+			if (known.equals(name)) return true;
+		return false;
+	}
+
+	/**
+	 * This method creates a metric
+	 *
+	 * @param name name of the metric
+	 * @param matrixFile file of the distance matrix, used by EXPLICIT only
+	 * @return the metric
+	 * @throws IOException Thrown if the matrix cannot be read
+	 *
+	 * @exception IllegalArgumentException Thrown if the metric is unknown, or if
+	 * EXPLICIT is given no matrix
+	 */
+	public static DistanceMetric forName(String name, String matrixFile) throws IOException {
+		if (name.equals("EUC_2D")) return new Euclidean2D();
+		if (name.equals("EUC_3D")) return new Euclidean3D();
+		if (name.equals("CEIL_2D")) return new Ceiling2D();
+		if (name.equals("MAN_2D")) return new Manhattan2D();
+		if (name.equals("GEO")) return new Geographic();
+		if (name.equals("EXPLICIT")) {
+			if (matrixFile == null)
+				throw new IllegalArgumentException("EXPLICIT needs a distance matrix");
+			return readMatrix(matrixFile);
+		}
+		throw new IllegalArgumentException("Unknown metric " + name);
+	}
+
+	/**
+	 * This method selects the metric of the job. Selecting the metric that is
+	 * already selected does nothing, so the tasks of a job that share a process
+	 * read the matrix only once.
+	 *
+	 * @param name name of the metric
+	 * @param matrixFile file of the distance matrix, used by EXPLICIT only
+	 * @throws IOException Thrown if the matrix cannot be read
+	 */
+	public static synchronized void select(String name, String matrixFile) throws IOException {
+		boolean sameMatrix = matrixFile == null ? DistanceMetrics.matrixFile == null : matrixFile.equals(DistanceMetrics.matrixFile);
+		if (metric.getName().equals(name) && (!name.equals("EXPLICIT") || sameMatrix))
+			return;
+		metric = forName(name, matrixFile);
+		DistanceMetrics.matrixFile = matrixFile;
+	}
+
+	/**
+	 * This method selects the metric of the job
+	 *
+	 * @param metric the metric
+	 */
+	public static synchronized void select(DistanceMetric metric){
+		DistanceMetrics.metric = metric;
+		DistanceMetrics.matrixFile = null;
+	}
+
+	/**
+	 * Returns the metric of the job
+	 *
+	 * @return the metric
+	 */
+	public static DistanceMetric get(){
+		return metric;
+	}
+
+	/**
+	 * Returns the number of cities of the explicit matrix of the job
+	 *
+	 * @return number of cities, 0 if the metric of the job is not EXPLICIT
+	 */
+	public static int getMatrixSize(){
+		return metric instanceof ExplicitMatrix ? ((ExplicitMatrix) metric).size : 0;
+	}
+
+	/**
+	 * This method reads a distance matrix. The file holds N x N distances separated
+	 * by white space, row by row.
+	 *
+	 * @param file name of the file
+	 * @return the EXPLICIT metric of the matrix
+	 * @throws IOException Thrown if the file cannot be read
+	 *
+	 * @exception IllegalArgumentException Thrown if the file does not hold a square matrix
+	 */
+	public static DistanceMetric readMatrix(String file) throws IOException {
+		double[] values = new double[1024];
+		int count = 0;
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty()) continue;
+				for (String field : line.split("\\s+")) {
+					if (count == values.length) {
+						double[] grown = new double[2*values.length];
+						System.arraycopy(values, 0, grown, 0, count);
+						values = grown;
+					}
+					values[count++] = Double.parseDouble(field);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		int size = (int) Math.round(Math.sqrt(count));
+		if (size*size != count)
+			throw new IllegalArgumentException("Distance matrix " + file + " is not square");
+		double[] matrix = new double[count];
+		System.arraycopy(values, 0, matrix, 0, count);
+		return new ExplicitMatrix(matrix, size);
+	}
+
+	/**
+	 * Class Euclidean2D measures the Euclidean distance of x and y
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static final class Euclidean2D implements DistanceMetric {
+
+		public String getName(){
+			return "EUC_2D";
+		}
+
+		public double distance(City city1, City city2){
+			double dx = city1.x - city2.x;
+			double dy = city1.y - city2.y;
+			return Math.sqrt(dx*dx + dy*dy);
+		}
+
+		public double distance(CityCoordinates coordinates, int city1, int city2){
+			double[] xs = coordinates.getXs(), ys = coordinates.getYs();
+			double dx = xs[city1] - xs[city2];
+			double dy = ys[city1] - ys[city2];
+			return Math.sqrt(dx*dx + dy*dy);
+		}
+
+		public double separationBound(double separation, double minX, double maxX, double minY, double maxY){
+			return separation;
+		}
+	}
+
+	/**
+	 * Class Euclidean3D measures the Euclidean distance of x, y and z
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static final class Euclidean3D implements DistanceMetric {
+
+		public String getName(){
+			return "EUC_3D";
+		}
+
+		public double distance(City city1, City city2){
+			double dx = city1.x - city2.x;
+			double dy = city1.y - city2.y;
+			double dz = city1.z - city2.z;
+			return Math.sqrt(dx*dx + dy*dy + dz*dz);
+		}
+
+		public double distance(CityCoordinates coordinates, int city1, int city2){
+			double[] xs = coordinates.getXs(), ys = coordinates.getYs(), zs = coordinates.getZs();
+			double dx = xs[city1] - xs[city2];
+			double dy = ys[city1] - ys[city2];
+			double dz = zs[city1] - zs[city2];
+			return Math.sqrt(dx*dx + dy*dy + dz*dz);
+		}
+
+		public double separationBound(double separation, double minX, double maxX, double minY, double maxY){
+			return separation;
+		}
+	}
+
+	/**
+	 * Class Ceiling2D measures the Euclidean distance of x and y, rounded up
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static final class Ceiling2D implements DistanceMetric {
+
+		public String getName(){
+			return "CEIL_2D";
+		}
+
+		public double distance(City city1, City city2){
+			double dx = city1.x - city2.x;
+			double dy = city1.y - city2.y;
+			return Math.ceil(Math.sqrt(dx*dx + dy*dy));
+		}
+
+		public double distance(CityCoordinates coordinates, int city1, int city2){
+			double[] xs = coordinates.getXs(), ys = coordinates.getYs();
+			double dx = xs[city1] - xs[city2];
+			double dy = ys[city1] - ys[city2];
+			return Math.ceil(Math.sqrt(dx*dx + dy*dy));
+		}
+
+		public double separationBound(double separation, double minX, double maxX, double minY, double maxY){
+			return separation;
+		}
+	}
+
+	/**
+	 * Class Manhattan2D measures the Manhattan distance of x and y
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static final class Manhattan2D implements DistanceMetric {
+
+		public String getName(){
+			return "MAN_2D";
+		}
+
+		public double distance(City city1, City city2){
+			return Math.abs(city1.x - city2.x) + Math.abs(city1.y - city2.y);
+		}
+
+		public double distance(CityCoordinates coordinates, int city1, int city2){
+			double[] xs = coordinates.getXs(), ys = coordinates.getYs();
+			return Math.abs(xs[city1] - xs[city2]) + Math.abs(ys[city1] - ys[city2]);
+		}
+
+		public double separationBound(double separation, double minX, double maxX, double minY, double maxY){
+			return separation;
+		}
+	}
+
+	/**
+	 * Class Geographic measures the great circle distance by the haversine formula,
+	 * x being the latitude and y the longitude in degrees
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static final class Geographic implements DistanceMetric {
+
+		public String getName(){
+			return "GEO";
+		}
+
+		public double distance(City city1, City city2){
+			return haversine(city1.x, city1.y, city2.x, city2.y);
+		}
+
+		public double distance(CityCoordinates coordinates, int city1, int city2){
+			double[] xs = coordinates.getXs(), ys = coordinates.getYs();
+			return haversine(xs[city1], ys[city1], xs[city2], ys[city2]);
+		}
+
+		/**
+		 * This method finds the great circle distance between two points
+		 *
+		 * @param latitude1 latitude of point one in degrees
+		 * @param longitude1 longitude of point one in degrees
+		 * @param latitude2 latitude of point two in degrees
+		 * @param longitude2 longitude of point two in degrees
+		 * @return distance in kilometres
+		 */
+		private static double haversine(double latitude1, double longitude1, double latitude2, double longitude2){
+			double sinLatitude = Math.sin(Math.toRadians(latitude2 - latitude1)/2);
+			double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1)/2);
+			double a = sinLatitude*sinLatitude
+					+ Math.cos(Math.toRadians(latitude1))*Math.cos(Math.toRadians(latitude2))*sinLongitude*sinLongitude;
+			return 2*EARTH_RADIUS*Math.asin(Math.min(1, Math.sqrt(a)));
+		}
+
+		/**
+		 * Two cities whose latitudes differ by d are at least R*d apart. Two cities
+		 * whose longitudes differ by d, the shorter way round the earth, are at least
+		 * 2*R*asin(cos(L)*sin(d/2)) apart, L being the largest absolute latitude of
+		 * the box, as the haversine term of the latitudes is not negative.
+		 */
+		public double separationBound(double separation, double minX, double maxX, double minY, double maxY){
+			double latitude = Math.toRadians(Math.min(separation, 180));
+			double longitude = Math.toRadians(Math.min(180, Math.min(separation, 360 - (maxY - minY))));
+			double maxLatitude = Math.toRadians(Math.min(90, Math.max(Math.abs(minX), Math.abs(maxX))));
+			double byLongitude = 2*EARTH_RADIUS*Math.asin(Math.cos(maxLatitude)*Math.sin(longitude/2));
+			return Math.max(0, Math.min(EARTH_RADIUS*latitude, byLongitude));
+		}
+	}
+
+	/**
+	 * Class ExplicitMatrix looks the distances up in a matrix indexed by city id
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static final class ExplicitMatrix implements DistanceMetric {
+
+		private final double[] matrix;		// Distance from city i to city j at i*size + j
+		private final int size;				// Number of cities
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param matrix distances, row by row
+		 * @param size number of cities
+		 */
+		public ExplicitMatrix(double[] matrix, int size){
+			this.matrix = matrix;
+			this.size = size;
+		}
+
+		public String getName(){
+			return "EXPLICIT";
+		}
+
+		public double distance(City city1, City city2){
+			return matrix[city1.id*size + city2.id];
+		}
+
+		public double distance(CityCoordinates coordinates, int city1, int city2){
+			return matrix[city1*size + city2];
+		}
+
+		public double separationBound(double separation, double minX, double maxX, double minY, double maxY){
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.rit.util.AList;
+
+/**
+ * Class EliteArchive holds the best distinct tours found by the islands of a node.
+ * The archive is a sorted array that is never changed once published: a thread that
+ * offers a tour builds a new array and installs it with a compare-and-set, retrying
+ * if another thread got in first. Readers take the current array and need no lock,
+ * so islands can publish and read while the other islands keep running.
+ * <P>
+ * The tours in the archive are snapshots which nobody modifies; a population that
+ * takes them in must copy them first.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class EliteArchive {
+
+	private static final TravelingPath[] EMPTY = new TravelingPath[0];
+
+	private int capacity;									// Maximum number of tours
+	private AtomicReference<TravelingPath[]> elites;		// Tours, shortest first
+
+	/**
+	 * Parameterized constructor, creates an empty archive
+	 *
+	 * @param capacity maximum number of tours
+	 */
+	public EliteArchive(int capacity){
+		this.capacity = capacity;
+		this.elites = new AtomicReference<TravelingPath[]>(EMPTY);
+	}
+
+	/**
+	 * This method tells whether a tour of the given length would enter the archive.
+	 * It lets an island skip copying tours that are not good enough.
+	 *
+	 * @param length length of the tour
+	 * @return true if the tour is shorter than the worst tour of a full archive
+	 */
+	public boolean accepts(double length){
+		TravelingPath[] current = elites.get();
+		return current.length < capacity || length < current[current.length - 1].getEuclideanDistance();
+	}
+
+	/**
+	 * This method offers a tour to the archive. The tour must have its length and its
+	 * hash set and must not be changed afterwards.
+	 *
+	 * @param tour the tour
+	 * @return true if the tour entered the archive
+	 */
+	public boolean offer(TravelingPath tour){
+		double length = tour.getEuclideanDistance();
+		while (true) {
+			TravelingPath[] current = elites.get();
+			if (current.length == capacity && length >= current[capacity - 1].getEuclideanDistance())
+				return false;
+
+			// Find the position of the tour, rejecting a tour that is already in
+			int position = current.length;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i].getHash() == tour.getHash()) return false;
+				if (position == current.length && length < current[i].getEuclideanDistance()) position = i;
+			}
+
+			int size = Math.min(current.length + 1, capacity);
+			TravelingPath[] next = new TravelingPath[size];
+			System.arraycopy(current, 0, next, 0, position);
+			next[position] = tour;
+			System.arraycopy(current, position, next, position + 1, size - position - 1);
+			if (elites.compareAndSet(current, next)) return true;
+		}
+	}
+
+	/**
+	 * Returns the best tour of the archive
+	 *
+	 * @return the shortest tour, or null if the archive is empty
+	 */
+	public TravelingPath getBest(){
+		TravelingPath[] current = elites.get();
+		return current.length == 0 ? null : current[0];
+	}
+
+	/**
+	 * Returns the best tours of the archive
+	 *
+	 * @param count maximum number of tours
+	 * @return the shortest tours, shortest first
+	 */
+	public AList<TravelingPath> getBest(int count){
+		TravelingPath[] current = elites.get();
+		AList<TravelingPath> best = new AList<TravelingPath>();
+		for (int i = 0; i < Math.min(count, current.length); i++)
+			best.addLast(current[i]);
+		return best;
+	}
+
+	/**
+	 * Returns the number of tours in the archive
+	 *
+	 * @return number of tours
+	 */
+	public int size(){
+		return elites.get().length;
+	}
+}
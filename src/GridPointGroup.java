@@ -0,0 +1,83 @@
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Class GridPointGroup provides the points of a regular rows x cols grid. Every
+ * city needs two tour edges of at least the grid spacing, so no tour is shorter
+ * than rows*cols*spacing; when rows or cols is even a boustrophedon tour reaches
+ * that length, so it is the optimum. The points are generated in random order.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class GridPointGroup implements ReferencePointGroup {
+
+	private int rows, cols;		// Dimensions of the grid
+	private double spacing;		// Distance between neighbouring points
+	private int[] order;		// Grid positions in the order they are generated
+	private int generated;
+
+	/**
+	 * Construct a new grid point group
+	 *
+	 * @param rows Number of grid rows, at least two
+	 * @param cols Number of grid columns, at least two
+	 * @param spacing Distance between neighbouring points
+	 * @param seed Seed for pseudorandom number generator
+	 *
+	 * @exception IllegalArgumentException Thrown if both dimensions are odd, the
+	 *     optimum is then not known in closed form
+	 */
+	public GridPointGroup(int rows, int cols, double spacing, long seed){
+		if (rows < 2 || cols < 2)
+			throw new IllegalArgumentException("GridPointGroup needs at least 2 rows and 2 columns");
+		if (rows % 2 == 1 && cols % 2 == 1)
+			throw new IllegalArgumentException("GridPointGroup needs an even number of rows or columns");
+		this.rows = rows;
+		this.cols = cols;
+		this.spacing = spacing;
+		Random prng = new Random(seed);
+		order = new int[rows*cols];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		for (int i = order.length - 1; i > 0; i--) {
+			int j = prng.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+	}
+
+	/**
+	 * Returns the number of points in this group, N.
+	 */
+	public int N(){
+		return order.length;
+	}
+
+	/**
+	 * Obtain the next point in this point group
+	 *
+	 * @param city City object in which to store the coordinates.
+	 *
+	 * @exception NoSuchElementException
+	 *     (unchecked exception) Thrown if this method is called more than N
+	 *     times.
+	 */
+	public void nextPoint(City city){
+		if (generated == order.length)
+			throw new NoSuchElementException("GridPointGroup.nextPoint(): Too many points generated");
+		city.x = (order[generated] % cols)*spacing;
+		city.y = (order[generated] / cols)*spacing;
+		++generated;
+	}
+
+	/**
+	 * Returns the length of the optimal tour, rows*cols*spacing
+	 *
+	 * @return optimal tour length
+	 */
+	public double optimum(){
+		return rows*cols*spacing;
+	}
+}
@@ -0,0 +1,372 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class HeldKarpBound computes the Held-Karp lower bound on the length of the optimal
+ * tour. A 1-tree is a spanning tree of all cities but one special city, plus the two
+ * shortest edges of the special city; every tour is a 1-tree, so the minimum 1-tree
+ * is a lower bound. Adding a penalty pi[c] to every edge of city c changes the length
+ * of every tour by 2*sum(pi), so minimum 1-tree length minus 2*sum(pi) is a bound for
+ * any pi. Subgradient optimisation raises the penalties of the cities of degree more
+ * than two in the 1-tree, which pushes the 1-tree towards a tour and the bound up.
+ * <P>
+ * Up to DENSE_LIMIT cities the spanning tree is taken over the complete graph and the
+ * bound is exact. Above it the tree is taken over the candidate graph of the nearest
+ * neighbours, which is much faster; the tree can then be longer than the minimum
+ * spanning tree, when the candidate graph misses an edge of it or a component of the
+ * candidate graph is joined through another city than the nearest one. The bound is
+ * then an estimate which may be too high, and must not be used where a true bound is
+ * needed, see isExact.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class HeldKarpBound {
+
+	public static final int DENSE_LIMIT = 1000;		// Largest instance bounded over the complete graph
+	private static final int CANDIDATES = 10;		// Nearest neighbours per city in the candidate graph
+
+	private CityCoordinates coordinates;	// Coordinates of the cities indexed by city id
+	private int[] ids;						// Ids of the cities, the first is the special city
+	private int[] first;					// Neighbours of city c in the candidate graph at
+	private int[] adjacent;					// adjacent[first[c]] .. adjacent[first[c+1]-1], null if dense
+	private double[] pi;					// Penalty of every city
+	private int[] degree;					// Degree of every city in the last 1-tree
+	private double bound = Double.NEGATIVE_INFINITY;	// Best bound found
+
+	// Scratch arrays of the spanning tree computations
+	private double[] key;
+	private boolean[] inTree;
+	private double[] heapKeys = new double[0];
+	private int[] heapCities = new int[0];
+	private int heapSize;
+
+	/**
+	 * Parameterized constructor, prepares the bound of the given cities
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities, at least three
+	 */
+	public HeldKarpBound(CityCoordinates coordinates, int[] ids){
+		this.coordinates = coordinates;
+		this.ids = ids;
+		int size = coordinates.size();
+		this.pi = new double[size];
+		this.degree = new int[size];
+		this.key = new double[size];
+		this.inTree = new boolean[size];
+		if (ids.length > DENSE_LIMIT)
+			buildCandidateGraph(new CandidateLists(coordinates, ids, CANDIDATES));
+	}
+
+	/**
+	 * This method computes the bound of a list of cities
+	 *
+	 * @param cityList the cities
+	 * @param iterations number of subgradient iterations
+	 * @return the lower bound, an estimate if isExact is false, 0 for fewer than three cities
+	 */
+	public static double of(List<City> cityList, int iterations){
+		if (cityList.size() < 3) return 0;
+		CityCoordinates coordinates = new CityCoordinates(cityList);
+		int[] ids = new int[cityList.size()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = cityList.get(i).id;
+
+		// The greedy tour is a good upper bound to size the subgradient steps
+		int[] tour = TourConstruction.greedyEdgeTour(coordinates, ids, new CandidateLists(coordinates, ids, CANDIDATES));
+		return new HeldKarpBound(coordinates, ids).compute(iterations, coordinates.tourLength(tour, 0, tour.length));
+	}
+
+	/**
+	 * Tells whether the bound of an instance is a true lower bound, and not an
+	 * estimate which may be too high
+	 *
+	 * @param cities number of cities of the instance
+	 * @return true if the bound is taken over the complete graph
+	 */
+	public static boolean isExact(int cities){
+		return cities <= DENSE_LIMIT;
+	}
+
+	/**
+	 * This method returns the optimality gap of a tour length
+	 *
+	 * @param length length of a tour
+	 * @param bound lower bound on the optimal length
+	 * @return the gap in percent of the bound, infinite if there is no bound
+	 */
+	public static double gap(double length, double bound){
+		if (bound <= 0) return Double.POSITIVE_INFINITY;
+		return 100*(length - bound)/bound;
+	}
+
+	/**
+	 * This method runs the subgradient optimisation. The step is
+	 * lambda*(upperBound - bound)/|g|^2 for the subgradient g = degree - 2; lambda
+	 * starts at 2 and is halved whenever the bound stops improving.
+	 *
+	 * @param iterations number of iterations
+	 * @param upperBound length of a known tour
+	 * @return the best bound found
+	 */
+	public double compute(int iterations, double upperBound){
+		double lambda = 2;
+		int patience = Math.max(5, iterations/20);
+		int sinceImprovement = 0;
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			double penalties = 0;
+			for (int i = 0; i < ids.length; i++)
+				penalties += pi[ids[i]];
+			double length = oneTree() - 2*penalties;
+			if (length > bound) {
+				bound = length;
+				sinceImprovement = 0;
+			}
+			else if (++sinceImprovement >= patience) {
+				lambda /= 2;
+				sinceImprovement = 0;
+			}
+
+			double norm = 0;
+			for (int i = 0; i < ids.length; i++) {
+				int g = degree[ids[i]] - 2;
+				norm += g*g;
+			}
+			// A 1-tree in which every city has degree two is an optimal tour
+			if (norm == 0) break;
+
+			double step = lambda*Math.max(upperBound - length, 1e-9*upperBound)/norm;
+			for (int i = 0; i < ids.length; i++)
+				pi[ids[i]] += step*(degree[ids[i]] - 2);
+		}
+		return bound;
+	}
+
+	/**
+	 * Returns the best bound found
+	 *
+	 * @return the bound
+	 */
+	public double getBound(){
+		return bound;
+	}
+
+	/**
+	 * This method computes the minimum 1-tree under the current penalties and sets
+	 * the degrees of the cities in it
+	 *
+	 * @return length of the 1-tree under the penalties
+	 */
+	private double oneTree(){
+		for (int i = 0; i < ids.length; i++)
+			degree[ids[i]] = 0;
+		double length = adjacent == null ? denseSpanningTree() : sparseSpanningTree();
+
+		// Connect the special city by its two shortest edges
+		int special = ids[0];
+		int best1 = -1, best2 = -1;
+		double weight1 = Double.MAX_VALUE, weight2 = Double.MAX_VALUE;
+		for (int i = 1; i < ids.length; i++) {
+			double weight = weight(special, ids[i]);
+			if (weight < weight1) {
+				best2 = best1;
+				weight2 = weight1;
+				best1 = ids[i];
+				weight1 = weight;
+			}
+			else if (weight < weight2) {
+				best2 = ids[i];
+				weight2 = weight;
+			}
+		}
+		degree[special] = 2;
+		degree[best1]++;
+		degree[best2]++;
+		return length + weight1 + weight2;
+	}
+
+	/**
+	 * This method computes the minimum spanning tree of all cities but the special
+	 * one over the complete graph, by Prim's algorithm in O(n^2)
+	 *
+	 * @return length of the tree under the penalties
+	 */
+	private double denseSpanningTree(){
+		int n = ids.length;
+		// Indexed by position in ids, not by city id
+		int[] parent = new int[n];
+		double[] treeKey = new double[n];
+		boolean[] treeMember = new boolean[n];
+		Arrays.fill(treeKey, Double.MAX_VALUE);
+		treeKey[1] = 0;
+		parent[1] = -1;
+		double length = 0;
+		for (int added = 1; added < n; added++) {
+			int next = -1;
+			for (int i = 1; i < n; i++)
+				if (!treeMember[i] && (next == -1 || treeKey[i] < treeKey[next])) next = i;
+			treeMember[next] = true;
+			length += treeKey[next];
+			if (parent[next] != -1) {
+				degree[ids[next]]++;
+				degree[ids[parent[next]]]++;
+			}
+			for (int i = 1; i < n; i++) {
+				if (treeMember[i]) continue;
+				double weight = weight(ids[next], ids[i]);
+				if (weight < treeKey[i]) {
+					treeKey[i] = weight;
+					parent[i] = next;
+				}
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * This method computes a spanning tree of all cities but the special one over
+	 * the candidate graph, by Prim's algorithm with a binary heap. Components of the
+	 * candidate graph which are not connected are joined by their shortest edge to
+	 * the tree.
+	 *
+	 * @return length of the tree under the penalties
+	 */
+	private double sparseSpanningTree(){
+		int special = ids[0];
+		for (int i = 0; i < ids.length; i++) {
+			key[ids[i]] = Double.MAX_VALUE;
+			inTree[ids[i]] = false;
+		}
+		int[] parent = new int[coordinates.size()];
+		double length = 0;
+		int added = 0;
+		heapSize = 0;
+		int start = ids[1];
+		key[start] = 0;
+		parent[start] = -1;
+		push(0, start);
+		while (added < ids.length - 1) {
+			if (heapSize == 0) {
+				// The candidate graph is not connected, join the next component
+				int city = -1;
+				for (int i = 1; i < ids.length && city == -1; i++)
+					if (!inTree[ids[i]]) city = ids[i];
+				key[city] = Double.MAX_VALUE;
+				for (int i = 1; i < ids.length; i++) {
+					if (!inTree[ids[i]]) continue;
+					double weight = weight(city, ids[i]);
+					if (weight < key[city]) {
+						key[city] = weight;
+						parent[city] = ids[i];
+					}
+				}
+				push(key[city], city);
+			}
+			int city = pop();
+			if (inTree[city]) continue;
+			inTree[city] = true;
+			added++;
+			length += key[city];
+			if (parent[city] != -1) {
+				degree[city]++;
+				degree[parent[city]]++;
+			}
+			for (int j = first[city]; j < first[city + 1]; j++) {
+				int other = adjacent[j];
+				if (other == special || inTree[other]) continue;
+				double weight = weight(city, other);
+				if (weight < key[other]) {
+					key[other] = weight;
+					parent[other] = city;
+					push(weight, other);
+				}
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Returns the weight of an edge under the penalties
+	 *
+	 * @param city1 id of city one
+	 * @param city2 id of city two
+	 * @return distance plus the penalties of both cities
+	 */
+	private double weight(int city1, int city2){
+		return coordinates.distance(city1, city2) + pi[city1] + pi[city2];
+	}
+
+	/**
+	 * This method builds the candidate graph, with an edge between two cities when
+	 * either is among the nearest neighbours of the other
+	 *
+	 * @param candidates candidate lists of the cities
+	 */
+	private void buildCandidateGraph(CandidateLists candidates){
+		int size = coordinates.size();
+		first = new int[size + 1];
+		for (int i = 0; i < ids.length; i++) {
+			for (int j = 0; j < candidates.count(ids[i]); j++) {
+				first[ids[i] + 1]++;
+				first[candidates.get(ids[i], j) + 1]++;
+			}
+		}
+		for (int c = 0; c < size; c++)
+			first[c + 1] += first[c];
+		adjacent = new int[first[size]];
+		int[] next = Arrays.copyOf(first, size);
+		for (int i = 0; i < ids.length; i++) {
+			for (int j = 0; j < candidates.count(ids[i]); j++) {
+				int other = candidates.get(ids[i], j);
+				adjacent[next[ids[i]]++] = other;
+				adjacent[next[other]++] = ids[i];
+			}
+		}
+	}
+
+	/**
+	 * This method adds a city to the heap. A city may be in the heap several times,
+	 * the entries with an outdated key are skipped when they are popped.
+	 *
+	 * @param weight key of the entry
+	 * @param city id of the city
+	 */
+	private void push(double weight, int city){
+		if (heapSize == heapKeys.length) {
+			heapKeys = Arrays.copyOf(heapKeys, Math.max(16, 2*heapSize));
+			heapCities = Arrays.copyOf(heapCities, heapKeys.length);
+		}
+		int i = heapSize++;
+		while (i > 0 && heapKeys[(i - 1)/2] > weight) {
+			heapKeys[i] = heapKeys[(i - 1)/2];
+			heapCities[i] = heapCities[(i - 1)/2];
+			i = (i - 1)/2;
+		}
+		heapKeys[i] = weight;
+		heapCities[i] = city;
+	}
+
+	/**
+	 * This method removes the entry with the smallest key from the heap
+	 *
+	 * @return id of the city of the entry
+	 */
+	private int pop(){
+		int city = heapCities[0];
+		double lastKey = heapKeys[--heapSize];
+		int lastCity = heapCities[heapSize];
+		int i = 0;
+		while (2*i + 1 < heapSize) {
+			int child = 2*i + 1;
+			if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+			if (heapKeys[child] >= lastKey) break;
+			heapKeys[i] = heapKeys[child];
+			heapCities[i] = heapCities[child];
+			i = child;
+		}
+		heapKeys[i] = lastKey;
+		heapCities[i] = lastCity;
+		return city;
+	}
+}
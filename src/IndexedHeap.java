@@ -0,0 +1,110 @@
+/**
+ * Class IndexedHeap is a binary max-heap of the indexes 0 .. size-1, ordered by a
+ * key array owned by the caller. The heap remembers the position of every index,
+ * so after the key of an index changes the heap is repaired in O(log size) without
+ * searching for it.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class IndexedHeap {
+
+	private double[] keys;		// Key of every index, owned by the caller
+	private int[] heap;			// Indexes in heap order, the largest key first
+	private int[] position;		// Position of every index in heap
+	private int size;			// Number of indexes in the heap
+
+	/**
+	 * Parameterized constructor, creates an empty heap
+	 *
+	 * @param capacity largest number of indexes
+	 */
+	public IndexedHeap(int capacity){
+		this.heap = new int[capacity];
+		this.position = new int[capacity];
+	}
+
+	/**
+	 * This method puts the indexes 0 .. size-1 in the heap, in O(size)
+	 *
+	 * @param keys key of every index
+	 * @param size number of indexes
+	 */
+	public void build(double[] keys, int size){
+		this.keys = keys;
+		this.size = size;
+		for (int i = 0; i < size; i++) {
+			heap[i] = i;
+			position[i] = i;
+		}
+		for (int i = size/2 - 1; i >= 0; i--)
+			siftDown(i);
+	}
+
+	/**
+	 * Returns the index with the largest key
+	 *
+	 * @return the index, -1 if the heap is empty
+	 */
+	public int top(){
+		return size == 0 ? -1 : heap[0];
+	}
+
+	/**
+	 * This method restores the heap order after the key of an index changed
+	 *
+	 * @param index the index
+	 */
+	public void update(int index){
+		int i = position[index];
+		if (i > 0 && keys[heap[(i - 1)/2]] < keys[index])
+			siftUp(i);
+		else
+			siftDown(i);
+	}
+
+	/**
+	 * Returns the number of indexes in the heap
+	 *
+	 * @return number of indexes
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * This method moves the entry at a position up while its key is larger than
+	 * the key of its parent
+	 *
+	 * @param i position of the entry
+	 */
+	private void siftUp(int i){
+		int index = heap[i];
+		while (i > 0 && keys[heap[(i - 1)/2]] < keys[index]) {
+			heap[i] = heap[(i - 1)/2];
+			position[heap[i]] = i;
+			i = (i - 1)/2;
+		}
+		heap[i] = index;
+		position[index] = i;
+	}
+
+	/**
+	 * This method moves the entry at a position down while a child has a larger key
+	 *
+	 * @param i position of the entry
+	 */
+	private void siftDown(int i){
+		int index = heap[i];
+		while (2*i + 1 < size) {
+			int child = 2*i + 1;
+			if (child + 1 < size && keys[heap[child + 1]] > keys[heap[child]]) child++;
+			if (keys[heap[child]] <= keys[index]) break;
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = index;
+		position[index] = i;
+	}
+}
@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.rit.util.AList;
+
+/**
+ * Interface Island is one population of the island model genetic algorithm, as seen
+ * by the code that runs the islands and migrates tours between them. Tours crossing
+ * the interface are TravelingPath objects which the receiver copies; how an island
+ * stores its own tours is up to the implementation.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public interface Island {
+
+	/**
+	 * This method creates the initial population from seed tours. The rest of the
+	 * population are nearest neighbour and random tours.
+	 *
+	 * @param seeds tours of the cities of this island
+	 * @param seededFraction fraction of the population made from the seeds, 0 to 1
+	 */
+	public void createPopulation(List<TravelingPath> seeds, double seededFraction);
+
+	/**
+	 * This method runs the genetic algorithm
+	 *
+	 * @param gaIterCount number of generations
+	 */
+	public void startGA(int gaIterCount);
+
+	/**
+	 * This method takes in tours migrated from another island
+	 *
+	 * @param migrationPopulation the migrated tours, copied by the island
+	 */
+	public void receiveMigratingTours(ArrayList<TravelingPath> migrationPopulation);
+
+	/**
+	 * This method returns copies of the best tours of the island
+	 *
+	 * @param migratingRate maximum number of tours
+	 * @return the best tours, the best first
+	 */
+	public AList<TravelingPath> getBestPopulation(int migratingRate);
+
+	/**
+	 * This method offers the best tours of the island to an elite archive
+	 *
+	 * @param archive the elite archive
+	 * @param count maximum number of tours offered
+	 */
+	public void publishTo(EliteArchive archive, int count);
+
+	/**
+	 * Returns the adaptive controller of the island
+	 *
+	 * @return adaptive controller
+	 */
+	public AdaptiveController getController();
+
+	/**
+	 * This method configures the island from a profile of a portfolio: its
+	 * crossover operator and the mutation rates of a new adaptive controller. The
+	 * population size and the local search are applied by the PortfolioFactory.
+	 *
+	 * @param profile the profile
+	 */
+	public void configure(IslandProfile profile);
+
+	/**
+	 * This method stops the threads the island started, if any. The island must not
+	 * be used afterwards.
+	 */
+	public void shutdown();
+}
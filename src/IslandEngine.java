@@ -0,0 +1,432 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import edu.rit.util.AList;
+
+/**
+ * Class IslandEngine runs an island model genetic algorithm inside one JVM. Every
+ * island is an independent Island, made by an IslandFactory, and an epoch of every
+ * island is a task for a work-stealing pool, so hundreds of islands share the cores
+ * of a node. After its epoch an island sends its best tours to the inbox of the
+ * next island on the ring; the tours are received at the start of the next epoch,
+ * so a run does not depend on the order in which the islands run. An inbox is a
+ * lock-free SpscRing: within an epoch only the previous island writes it, the
+ * engine empties it between epochs, and tours from other nodes are added between
+ * epochs. A WindowOptimiser, if set, polishes the best tour after every epoch.
+ * Late in a run the engine can continue on a reduced instance, in which the edges
+ * common to all the elite tours are contracted. The archive then holds tours of
+ * the full instance: the islands publish their tours expanded, so they are ranked
+ * by their expanded length, and the tours they send each other are expanded and
+ * contracted again, which joins up every path an operator has split.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class IslandEngine {
+
+	private static final int POLISH_PASSES		= 10;				// Passes of the window optimiser per epoch
+	private static final int MIN_SUPER_NODES	= 8;				// Smallest reduced instance
+
+	private Island[] islands;										// The islands
+	private ArrayList<SpscRing<TravelingPath>> inboxes;			// Migrating tours waiting for each island
+	private ForkJoinPool pool;										// Runs the island epochs, null to run them on the caller
+	private int migrants;											// Number of tours sent per migration
+	private EliteArchive archive;									// Best tours of all the islands
+	private int epochs;												// Number of epochs run so far
+	private WindowOptimiser polisher;								// Polishes the best tour after every epoch, null for none
+	private double polishedLength = Double.POSITIVE_INFINITY;		// Length of the best tour when it was last polished
+	private IslandFactory factory;									// Creates the islands
+	private int populationSize;										// Population size of every island
+	private double seededFraction;									// Fraction of every population made from the seeds
+	private long seed;												// Seed of the random streams of the islands
+	private long streamId;											// Identifies this engine among the engines of a job
+	private double backbone;										// Fraction of fixed edges that triggers a reduction, 0 for none
+	private BackboneReducer reducer;								// Maps tours to and from the reduced instance, null before a reduction
+	private double stalledLength = Double.POSITIVE_INFINITY;		// Length of the best tour after the previous epoch
+
+	/**
+	 * Parameterized constructor, creates the islands and their initial populations
+	 *
+	 * @param tour contains the initial tour
+	 * @param islandCount number of islands
+	 * @param populationSize population size of every island
+	 * @param migrants number of tours an island sends to its neighbour after an epoch
+	 * @param parallelism number of threads running the islands
+	 * @param seed seed from which the random streams of the islands are derived
+	 * @param streamId identifies this engine among the engines of a job
+	 */
+	public IslandEngine(TravelingPath tour, int islandCount, int populationSize,
+			int migrants, int parallelism, long seed, long streamId){
+		this(tour, new ArrayList<TravelingPath>(), 0, IslandFactory.forName("list"), islandCount, populationSize,
+				migrants, parallelism, seed, streamId);
+	}
+
+	/**
+	 * Parameterized constructor, creates the islands with initial populations around
+	 * seed tours, e.g. a warm start tour or constructed tours
+	 *
+	 * @param tour contains the initial tour
+	 * @param seeds tours the populations are created around, empty for a cold start
+	 * @param seededFraction fraction of every population made from the seeds
+	 * @param factory creates the islands, given their index
+	 * @param islandCount number of islands
+	 * @param populationSize population size of every island
+	 * @param migrants number of tours an island sends to its neighbour after an epoch
+	 * @param parallelism number of threads running the islands
+	 * @param seed seed from which the random streams of the islands are derived
+	 * @param streamId identifies this engine among the engines of a job
+	 */
+	public IslandEngine(final TravelingPath tour, final List<TravelingPath> seeds, final double seededFraction,
+			final IslandFactory factory, int islandCount, final int populationSize, final int migrants, int parallelism, final long seed, final long streamId){
+		this.islands = new Island[islandCount];
+		this.inboxes = new ArrayList<SpscRing<TravelingPath>>(islandCount);
+		for (int i = 0; i < islandCount; i++)
+			inboxes.add(new SpscRing<TravelingPath>(4*Math.max(1, migrants)));
+		this.migrants = migrants;
+		this.factory = factory;
+		this.populationSize = populationSize;
+		this.seededFraction = seededFraction;
+		this.seed = seed;
+		this.streamId = streamId;
+		this.archive = new EliteArchive(Math.max(16, 2*migrants));
+		this.pool = parallelism > 1 && islandCount > 1 ? new ForkJoinPool(parallelism) : null;
+
+		// Create the initial populations in parallel
+		invoke(new IslandAction(0, islandCount){
+			protected void compute(int island){
+				islands[island] = factory.create(island, tour, populationSize, SplitRandom.stream(seed, streamId, island));
+				islands[island].createPopulation(seeds, seededFraction);
+				islands[island].publishTo(archive, Math.max(1, migrants));
+			}
+		});
+	}
+
+	/**
+	 * This method runs one epoch of the genetic algorithm on every island, followed
+	 * by the migration of the best tours to the neighbouring islands
+	 *
+	 * @param gaIterCount The iterations for genetic algorithm to run in the epoch
+	 */
+	public void runEpoch(final int gaIterCount){
+		// Take the tours sent in the previous epoch out of the inboxes before any
+		// island runs, so an island never sees tours sent in the same epoch
+		final ArrayList<ArrayList<TravelingPath>> received = new ArrayList<ArrayList<TravelingPath>>(islands.length);
+		for (int island = 0; island < islands.length; island++) {
+			received.add(new ArrayList<TravelingPath>());
+			inboxes.get(island).drainTo(received.get(island));
+		}
+		invoke(new IslandAction(0, islands.length){
+			protected void compute(int island){
+				if (!received.get(island).isEmpty())
+					islands[island].receiveMigratingTours(received.get(island));
+
+				islands[island].startGA(gaIterCount);
+				publish(island);
+
+				// Send copies of the best tours to the next island on the ring
+				if (islands.length > 1) {
+					AList<TravelingPath> best = islands[island].getBestPopulation(migrants);
+					SpscRing<TravelingPath> next = inboxes.get((island + 1) % islands.length);
+					for (int i = 0; i < best.size(); i++)
+						next.offer(reducer == null ? best.get(i) : reducer.contract(reducer.expand(best.get(i))));
+				}
+			}
+		});
+		polishBest();
+		epochs++;
+		if (backbone > 0 && reducer == null) reduce();
+	}
+
+	/**
+	 * This method offers the best tours of an island to the archive, expanded to the
+	 * full instance after a reduction
+	 *
+	 * @param island index of the island
+	 */
+	private void publish(int island){
+		if (reducer == null) {
+			islands[island].publishTo(archive, Math.max(1, migrants));
+			return;
+		}
+		AList<TravelingPath> best = islands[island].getBestPopulation(Math.max(1, migrants));
+		for (int i = 0; i < best.size(); i++)
+			archive.offer(reducer.expand(best.get(i)));
+	}
+
+	/**
+	 * This method polishes the best tour, unless it was polished already. A shorter
+	 * tour enters the archive and goes to the inbox of the islands in turn, so the
+	 * elites of the islands improve too; after a reduction it is contracted for the
+	 * islands.
+	 */
+	private void polishBest(){
+		if (polisher == null) return;
+		TravelingPath best = getBestTour();
+		if (best == null || best.getEuclideanDistance() >= polishedLength) return;
+		TravelingPath polished = polisher.optimise(best, POLISH_PASSES);
+		polishedLength = Math.min(best.getEuclideanDistance(), polished.getEuclideanDistance());
+		if (polished.getEuclideanDistance() >= best.getEuclideanDistance()) return;
+		polished.setHash(TourHash.shared(maxId(polished) + 1).hash(polished.getCityList()));
+		if (archive.offer(polished))
+			inboxes.get(epochs % islands.length).offer(reducer == null ? polished : reducer.contract(polished));
+	}
+
+	/**
+	 * Returns the largest city id of a tour
+	 *
+	 * @param tour the tour
+	 * @return largest id
+	 */
+	private static int maxId(TravelingPath tour){
+		int max = 0;
+		for (int i = 0; i < tour.getCityList().size(); i++)
+			max = Math.max(max, tour.getCityList().get(i).id);
+		return max;
+	}
+
+	/**
+	 * This method reduces the instance once an epoch brings no shorter tour and the
+	 * best tours of the islands, the elites, share enough edges. The paths of edges
+	 * common to all the elites become super-nodes, and the islands are replaced by
+	 * islands of the reduced instance, seeded with the contracted elites. Tours
+	 * leaving the engine are expanded, tours entering it contracted, and the archive
+	 * starts again from the best tour of the full instance. The islands share their seeds, so their elites are only compared once they stall, and a
+	 * single island has nothing to compare with.
+	 */
+	private void reduce(){
+		double bestLength = archive.getBest().getEuclideanDistance();
+		boolean stalled = bestLength >= stalledLength;
+		stalledLength = bestLength;
+		if (!stalled || islands.length < 2) return;
+		List<TravelingPath> elites = new ArrayList<TravelingPath>(islands.length);
+		for (int island = 0; island < islands.length; island++)
+			elites.add(islands[island].getBestPopulation(1).get(0));
+		BackboneReducer candidate = new BackboneReducer(elites);
+		if (candidate.getFixedFraction() < backbone || candidate.size() < MIN_SUPER_NODES) return;
+
+		reducer = candidate;
+		TravelingPath fullBest = archive.getBest();
+		final ArrayList<TravelingPath> seeds = new ArrayList<TravelingPath>(elites.size());
+		for (int i = 0; i < elites.size(); i++)
+			seeds.add(reducer.contract(elites.get(i)));
+		for (int island = 0; island < islands.length; island++) {
+			ArrayList<TravelingPath> waiting = new ArrayList<TravelingPath>();
+			inboxes.get(island).drainTo(waiting);
+			immigrate(island, waiting);
+		}
+
+		// The islands of the reduced instance have their own random streams
+		final TravelingPath reducedTour = reducer.getReducedTour();
+		final int islandCount = islands.length;
+		for (int island = 0; island < islandCount; island++)
+			islands[island].shutdown();
+		archive = new EliteArchive(Math.max(16, 2*migrants));
+		archive.offer(fullBest);
+		archive.offer(reducer.expand(reducer.contract(fullBest)));
+		islands = new Island[islandCount];
+		invoke(new IslandAction(0, islandCount){
+			protected void compute(int island){
+				islands[island] = factory.create(island, reducedTour, populationSize,
+						SplitRandom.stream(seed, streamId, islandCount + island));
+				islands[island].createPopulation(seeds, seededFraction);
+				publish(island);
+			}
+		});
+	}
+
+	/**
+	 * Sets the fraction of the edges that must be common to all the elite tours for
+	 * the instance to be reduced, see BackboneReducer. The instance is reduced at
+	 * most once.
+	 *
+	 * @param backbone fraction, 0 to 1, 0 for no reduction
+	 */
+	public void setBackbone(double backbone){
+		this.backbone = backbone;
+	}
+
+	/**
+	 * Returns the reducer of the instance
+	 *
+	 * @return the reducer, null before a reduction
+	 */
+	public BackboneReducer getReducer(){
+		return reducer;
+	}
+
+	/**
+	 * Sets the optimiser that polishes the best tour after every epoch
+	 *
+	 * @param polisher the optimiser, null for none
+	 */
+	public void setPolisher(WindowOptimiser polisher){
+		this.polisher = polisher;
+	}
+
+	/**
+	 * This method applies an action to all the islands, on the pool or, without a
+	 * pool, one island after the other on the calling thread
+	 *
+	 * @param action the action
+	 */
+	private void invoke(IslandAction action){
+		if (pool != null) {
+			pool.invoke(action);
+			return;
+		}
+		for (int island = 0; island < islands.length; island++)
+			action.compute(island);
+	}
+
+	/**
+	 * This method runs a set of actions in parallel and returns when all are done. A
+	 * single action runs on the caller. Actions started from a task of a pool share
+	 * the threads of that pool, e.g. the pool of an IslandEngine; otherwise they run
+	 * on the given pool.
+	 *
+	 * @param pool runs the actions of a caller outside a pool, may be null if there
+	 *        is only one action or the caller runs in a pool
+	 * @param actions the actions
+	 */
+	public static void invokeActions(ForkJoinPool pool, final RecursiveAction[] actions){
+		if (actions.length == 1)
+			actions[0].invoke();
+		else if (ForkJoinTask.inForkJoinPool())
+			ForkJoinTask.invokeAll(actions);
+		else
+			pool.invoke(new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+				protected void compute(){
+					invokeAll(actions);
+				}
+			});
+	}
+
+	/**
+	 * This method runs the given number of epochs
+	 *
+	 * @param epochCount number of epochs
+	 * @param gaIterCount The iterations for genetic algorithm to run in every epoch
+	 */
+	public void run(int epochCount, int gaIterCount){
+		for (int i = 0; i < epochCount; i++)
+			runEpoch(gaIterCount);
+	}
+
+	/**
+	 * This method hands tours migrated from another node to an island. They are
+	 * received at the start of the next epoch. It must not be called while an epoch
+	 * runs, and tours which do not fit in the inbox are dropped.
+	 *
+	 * @param island index of the receiving island
+	 * @param tours migrated tours
+	 */
+	public void immigrate(int island, List<TravelingPath> tours){
+		for (int i = 0; i < tours.size(); i++)
+			inboxes.get(island).offer(reducer == null ? tours.get(i) : reducer.contract(tours.get(i)));
+	}
+
+	/**
+	 * This method returns the best tours over all the islands, from the elite archive
+	 *
+	 * @param migratingRate number of tours to return
+	 * @return the best tours, the best first; they are shared and must not be modified
+	 */
+	public AList<TravelingPath> getBestPopulation(int migratingRate){
+		return archive.getBest(migratingRate);
+	}
+
+	/**
+	 * This method returns the best tour over all the islands, from the elite archive
+	 *
+	 * @return the best tour, shared and not to be modified
+	 */
+	public TravelingPath getBestTour(){
+		return archive.getBest();
+	}
+
+	/**
+	 * Returns the islands of this engine, those of the reduced instance after a
+	 * reduction
+	 *
+	 * @return islands
+	 */
+	public Island[] getIslands(){
+		return islands;
+	}
+
+	/**
+	 * Returns the number of epochs run so far
+	 *
+	 * @return number of epochs
+	 */
+	public int getEpochs(){
+		return epochs;
+	}
+
+	/**
+	 * This method stops the threads of the engine and of its islands
+	 */
+	public void shutdown(){
+		for (int island = 0; island < islands.length; island++)
+			islands[island].shutdown();
+		if (pool != null) pool.shutdown();
+	}
+
+	/**
+	 * Class IslandAction applies an action to a range of islands, splitting the range
+	 * in halves so that idle threads can steal the work
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static abstract class IslandAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from;	// First island of the range
+		private int to;		// Island past the end of the range
+
+		/**
+		 * Parameterized constructor, initializes the range of islands
+		 *
+		 * @param from first island
+		 * @param to island past the end of the range
+		 */
+		public IslandAction(int from, int to){
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * This method splits the range until a single island is left
+		 */
+		protected void compute(){
+			if (to - from <= 1) {
+				if (to > from) compute(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			final IslandAction parent = this;
+			invokeAll(new IslandAction(from, middle){
+				protected void compute(int island){
+					parent.compute(island);
+				}
+			}, new IslandAction(middle, to){
+				protected void compute(int island){
+					parent.compute(island);
+				}
+			});
+		}
+
+		/**
+		 * This method applies the action to one island
+		 *
+		 * @param island index of the island
+		 */
+		protected abstract void compute(int island);
+	}
+}
@@ -0,0 +1,108 @@
+import java.util.Random;
+
+/**
+ * Class IslandFactory creates the islands of the genetic algorithm. The kind of
+ * island is chosen by name:
+ * <UL>
+ * <LI> list: a Population, tours are lists of cities
+ * <LI> arena: an ArenaPopulation, tours are rows of a flat int array on the heap
+ * <LI> offheap: an ArenaPopulation with its rows outside the Java heap
+ * <LI> steady: a SteadyStatePopulation, children replace the worst tour one at a time
+ * <LI> cellular: a CellularPopulation, tours mate with their neighbours on a torus
+ * </UL>
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public abstract class IslandFactory {
+
+	/**
+	 * This method creates an island
+	 *
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size
+	 * @param prng pseudorandom number generator, owned by the island
+	 * @return the island, without a population yet
+	 */
+	public abstract Island create(TravelingPath tour, int populationSize, Random prng);
+
+	/**
+	 * This method creates the island of a given index, e.g. of an IslandEngine. The
+	 * islands are all alike unless the factory is a PortfolioFactory.
+	 *
+	 * @param index index of the island
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size
+	 * @param prng pseudorandom number generator, owned by the island
+	 * @return the island, without a population yet
+	 */
+	public Island create(int index, TravelingPath tour, int populationSize, Random prng){
+		return create(tour, populationSize, prng);
+	}
+
+	/**
+	 * This method tells whether a name is a kind of island
+	 *
+	 * @param name name of the kind
+	 * @return true if the kind exists
+	 */
+	public static boolean isKind(String name){
+		return "list".equals(name) || "arena".equals(name) || "offheap".equals(name) || "steady".equals(name)
+				|| "cellular".equals(name);
+	}
+
+	/**
+	 * This method returns the factory of a kind of island, for islands run by one
+	 * thread each
+	 *
+	 * @param name name of the kind
+	 * @return the factory
+	 *
+	 * @exception IllegalArgumentException Thrown if the kind does not exist
+	 */
+	public static IslandFactory forName(String name){
+		return forName(name, 1);
+	}
+
+	/**
+	 * This method returns the factory of a kind of island
+	 *
+	 * @param name name of the kind
+	 * @param threads number of threads an island may use, only cellular islands use more than one
+	 * @return the factory
+	 *
+	 * @exception IllegalArgumentException Thrown if the kind does not exist
+	 */
+	public static IslandFactory forName(String name, final int threads){
+		if ("list".equals(name)) {
+			return new IslandFactory(){
+				public Island create(TravelingPath tour, int populationSize, Random prng){
+					return new Population(tour, populationSize, prng);
+				}
+			};
+		}
+		if ("arena".equals(name) || "offheap".equals(name)) {
+			final boolean offHeap = "offheap".equals(name);
+			return new IslandFactory(){
+				public Island create(TravelingPath tour, int populationSize, Random prng){
+					return new ArenaPopulation(tour, populationSize, prng, offHeap);
+				}
+			};
+		}
+		if ("steady".equals(name)) {
+			return new IslandFactory(){
+				public Island create(TravelingPath tour, int populationSize, Random prng){
+					return new SteadyStatePopulation(tour, populationSize, prng);
+				}
+			};
+		}
+		if ("cellular".equals(name)) {
+			return new IslandFactory(){
+				public Island create(TravelingPath tour, int populationSize, Random prng){
+					return new CellularPopulation(tour, populationSize, prng, threads);
+				}
+			};
+		}
+		throw new IllegalArgumentException("Unknown kind of island " + name);
+	}
+}
@@ -0,0 +1,207 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class IslandProfile is the configuration of one island of a heterogeneous
+ * portfolio: the crossover operator, the range of the adaptive mutation rate, the
+ * depth of the local search applied to the best tours after every epoch, and the
+ * population size relative to the one of the solver. Islands with different
+ * profiles search different basins, and migration mixes their results.
+ * <P>
+ * A profile is written {@literal <name>:<key>=<value>,...}, a portfolio as its
+ * profiles separated by semicolons. The keys are: <br>
+ * crossover=ox|pmx|cx = Crossover operator (default ox). <br>
+ * mutation={@literal <r>} = Initial mutation rate in percent (default 10). <br>
+ * minmutation={@literal <r>} = Smallest mutation rate in percent (default 1). <br>
+ * maxmutation={@literal <r>} = Largest mutation rate in percent (default 50). <br>
+ * localsearch={@literal <m>} = 2-opt moves per improved tour after every epoch, 0 for none (default 0). <br>
+ * population={@literal <p>|<f>x} = Population size, absolute or a multiple of the solver's (default 1x).
+ * <P>
+ * A portfolio file has one profile per line, {@literal <name> <key>=<value> ...},
+ * and lines starting with # are comments.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class IslandProfile {
+
+	private static final String ROUND_ROBIN =
+			"balanced:crossover=ox,mutation=10,minmutation=1,maxmutation=50;" +
+			"explorer:crossover=pmx,mutation=30,minmutation=10,maxmutation=60,population=1.5x;" +
+			"exploiter:crossover=ox,mutation=5,minmutation=1,maxmutation=20,localsearch=200,population=0.5x;" +
+			"cycle:crossover=cx,mutation=15,minmutation=5,maxmutation=40";
+
+	private String name;
+	private String crossover = "ox";		// Name of the crossover operator
+	private double mutationRate = 10;		// Initial mutation rate in percent
+	private double minMutationRate = 1;
+	private double maxMutationRate = 50;
+	private int localSearchDepth = 0;		// 2-opt moves per improved tour, 0 for none
+	private String population = "1x";		// Absolute population size, or a multiple if it ends with x
+
+	/**
+	 * Parameterized constructor, creates a profile from its options
+	 *
+	 * @param name name of the profile
+	 * @param options the options of the profile
+	 *
+	 * @exception IllegalArgumentException Thrown if an option is unknown or out of range
+	 */
+	public IslandProfile(String name, SolverOptions options){
+		this.name = name;
+		for (String arg : options.toArgs()) {
+			String key = arg.substring(0, arg.indexOf('='));
+			if (!key.equals("crossover") && !key.equals("mutation") && !key.equals("minmutation")
+					&& !key.equals("maxmutation") && !key.equals("localsearch") && !key.equals("population"))
+				throw new IllegalArgumentException("Unknown profile option " + key);
+		}
+		this.crossover = options.getString("crossover", crossover);
+		TourOperators.crossoverOf(crossover);
+		this.mutationRate = options.getDouble("mutation", mutationRate);
+		this.minMutationRate = options.getDouble("minmutation", minMutationRate);
+		this.maxMutationRate = options.getDouble("maxmutation", maxMutationRate);
+		if (minMutationRate < 0 || maxMutationRate > 100 || minMutationRate > maxMutationRate)
+			throw new IllegalArgumentException("Illegal mutation range of profile " + name);
+		this.localSearchDepth = options.getInt("localsearch", localSearchDepth);
+		if (localSearchDepth < 0)
+			throw new IllegalArgumentException("localsearch must not be negative");
+		this.population = options.getString("population", population);
+		if (getPopulationSize(100) < 2)
+			throw new IllegalArgumentException("Illegal population of profile " + name);
+	}
+
+	/**
+	 * This method returns the profiles of a portfolio
+	 *
+	 * @param portfolio roundrobin for the built-in profiles, a portfolio of the form
+	 * {@literal <name>:<key>=<value>,...;...}, or the name of a portfolio file
+	 * @return the profiles, at least one
+	 * @throws IOException Thrown if the portfolio file cannot be read
+	 *
+	 * @exception IllegalArgumentException Thrown if a profile is illegal
+	 */
+	public static List<IslandProfile> load(String portfolio) throws IOException {
+		if ("roundrobin".equals(portfolio))
+			return parse(ROUND_ROBIN);
+		if (portfolio.indexOf(':') >= 0)
+			return parse(portfolio);
+
+		List<IslandProfile> profiles = new ArrayList<IslandProfile>();
+		BufferedReader reader = new BufferedReader(new FileReader(portfolio));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) continue;
+				String[] fields = line.split("\\s+");
+				profiles.add(new IslandProfile(fields[0], new SolverOptions(fields, 1)));
+			}
+		}
+		finally {
+			reader.close();
+		}
+		if (profiles.isEmpty())
+			throw new IllegalArgumentException("No profiles in " + portfolio);
+		return profiles;
+	}
+
+	/**
+	 * This method parses the profiles of a portfolio
+	 *
+	 * @param portfolio profiles of the form {@literal <name>:<key>=<value>,...} separated by semicolons
+	 * @return the profiles, at least one
+	 *
+	 * @exception IllegalArgumentException Thrown if a profile is illegal
+	 */
+	public static List<IslandProfile> parse(String portfolio){
+		List<IslandProfile> profiles = new ArrayList<IslandProfile>();
+		for (String profile : portfolio.split(";")) {
+			profile = profile.trim();
+			if (profile.length() == 0) continue;
+			int split = profile.indexOf(':');
+			String name = split < 0 ? profile : profile.substring(0, split);
+			String[] fields = split < 0 || split == profile.length() - 1 ?
+					new String[0] : profile.substring(split + 1).split(",");
+			profiles.add(new IslandProfile(name, new SolverOptions(fields, 0)));
+		}
+		if (profiles.isEmpty())
+			throw new IllegalArgumentException("Empty portfolio");
+		return profiles;
+	}
+
+	/**
+	 * This method writes the profiles of a portfolio in the form read by parse
+	 *
+	 * @param profiles the profiles
+	 * @return the portfolio
+	 */
+	public static String toString(List<IslandProfile> profiles){
+		StringBuilder portfolio = new StringBuilder();
+		for (IslandProfile profile : profiles) {
+			if (portfolio.length() > 0) portfolio.append(';');
+			portfolio.append(profile);
+		}
+		return portfolio.toString();
+	}
+
+	/**
+	 * Returns the name of the profile
+	 *
+	 * @return name
+	 */
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Returns the crossover operator of the profile
+	 *
+	 * @return TourOperators.ORDERED, PARTIALLY_MAPPED or CYCLE
+	 */
+	public int getCrossover(){
+		return TourOperators.crossoverOf(crossover);
+	}
+
+	/**
+	 * Returns the number of 2-opt moves applied to each improved tour after an epoch
+	 *
+	 * @return moves, 0 for no local search
+	 */
+	public int getLocalSearchDepth(){
+		return localSearchDepth;
+	}
+
+	/**
+	 * Returns the population size of an island of this profile
+	 *
+	 * @param populationSize population size of the solver
+	 * @return population size of the island
+	 */
+	public int getPopulationSize(int populationSize){
+		if (population.endsWith("x"))
+			return Math.max(2, (int) Math.round(populationSize*Double.parseDouble(population.substring(0, population.length() - 1))));
+		return Integer.parseInt(population);
+	}
+
+	/**
+	 * This method creates an adaptive controller with the mutation rates of the profile
+	 *
+	 * @return the adaptive controller
+	 */
+	public AdaptiveController createController(){
+		return new AdaptiveController(mutationRate, minMutationRate, maxMutationRate);
+	}
+
+	/**
+	 * Returns the profile in the form read by parse
+	 *
+	 * @return the profile
+	 */
+	public String toString(){
+		return name + ":crossover=" + crossover + ",mutation=" + mutationRate + ",minmutation=" + minMutationRate
+				+ ",maxmutation=" + maxMutationRate + ",localsearch=" + localSearchDepth + ",population=" + population;
+	}
+}
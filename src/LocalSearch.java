@@ -0,0 +1,164 @@
+/**
+ * Class LocalSearch improves tours by 2-opt moves restricted to candidate edges.
+ * A move replaces the edges (a, b) and (c, d) by (a, c) and (b, d) and reverses the
+ * path between them; only moves in which c is a candidate of a and closer to a than
+ * b are tried, which finds nearly all improving moves at a fraction of the cost.
+ * Cities whose neighbourhood has not changed since they were last examined are
+ * skipped (don't look bits), and the shorter side of the tour is reversed.
+ * <P>
+ * A local search is used by one thread at a time.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class LocalSearch {
+
+	private static final double EPSILON = 1e-9;	// Smallest gain that counts as an improvement
+
+	private CityCoordinates coordinates;	// Coordinates of the cities indexed by city id
+	private CandidateLists candidates;		// Nearest neighbours of every city
+	private int[] position;					// Position of every city in the tour, indexed by city id
+	private boolean[] queued;				// True while a city is waiting to be examined
+	private int[] queue;					// Cities waiting to be examined, a ring buffer
+	private int head, count;
+
+	/**
+	 * Parameterized constructor
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities of the tours
+	 * @param neighbours number of candidates per city
+	 */
+	public LocalSearch(CityCoordinates coordinates, int[] ids, int neighbours){
+		this.coordinates = coordinates;
+		this.candidates = new CandidateLists(coordinates, ids, neighbours);
+		this.position = new int[coordinates.size()];
+		this.queued = new boolean[coordinates.size()];
+		this.queue = new int[ids.length];
+	}
+
+	/**
+	 * This method applies improving 2-opt moves to a tour until none is left or the
+	 * move limit is reached
+	 *
+	 * @param tour city ids in tour order, improved in place
+	 * @param maxMoves largest number of moves
+	 * @return the change of the tour length, zero or negative
+	 */
+	public double twoOpt(int[] tour, int maxMoves){
+		int n = tour.length;
+		if (n < 5) return 0;
+		head = 0;
+		count = 0;
+		for (int i = 0; i < n; i++) {
+			position[tour[i]] = i;
+			queued[tour[i]] = false;
+		}
+		for (int i = 0; i < n; i++)
+			push(tour[i]);
+
+		double change = 0;
+		int moves = 0;
+		while (count > 0 && moves < maxMoves) {
+			int a = pop();
+			double gain = improveCity(tour, a);
+			if (gain > 0) {
+				change -= gain;
+				moves++;
+			}
+		}
+		return change;
+	}
+
+	/**
+	 * This method looks for an improving move at a city, in both tour directions,
+	 * and applies the first one found
+	 *
+	 * @param tour the tour
+	 * @param a id of the city
+	 * @return the gain of the move, 0 if there is none
+	 */
+	private double improveCity(int[] tour, int a){
+		int n = tour.length;
+		for (int direction = 0; direction < 2; direction++) {
+			int pa = position[a];
+			int b = direction == 0 ? tour[(pa + 1) % n] : tour[(pa - 1 + n) % n];
+			double ab = coordinates.distance(a, b);
+			for (int j = 0; j < candidates.count(a); j++) {
+				int c = candidates.get(a, j);
+				double ac = coordinates.distance(a, c);
+				if (ac >= ab) break;
+				int pc = position[c];
+				int d = direction == 0 ? tour[(pc + 1) % n] : tour[(pc - 1 + n) % n];
+				if (c == b || d == a) continue;
+				double gain = ab + coordinates.distance(c, d) - ac - coordinates.distance(b, d);
+				if (gain <= EPSILON) continue;
+
+				// Forward: a b ... c d becomes a c ... b d. Backward: d c ... b a becomes d b ... c a.
+				if (direction == 0)
+					reverse(tour, position[b], position[c]);
+				else
+					reverse(tour, position[c], position[b]);
+				push(a);
+				push(b);
+				push(c);
+				push(d);
+				return gain;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * This method reverses the cyclic section tour[from] .. tour[to], or the rest of
+	 * the tour if that is shorter; both give the same cyclic tour
+	 *
+	 * @param tour the tour
+	 * @param from first position of the section
+	 * @param to last position of the section
+	 */
+	private void reverse(int[] tour, int from, int to){
+		int n = tour.length;
+		int length = (to - from + n) % n + 1;
+		if (2*length > n) {
+			int t = from;
+			from = (to + 1) % n;
+			to = (t - 1 + n) % n;
+			length = n - length;
+		}
+		for (int k = 0; k < length/2; k++) {
+			int i = (from + k) % n;
+			int j = (to - k + n) % n;
+			int city = tour[i];
+			tour[i] = tour[j];
+			tour[j] = city;
+			position[tour[i]] = i;
+			position[tour[j]] = j;
+		}
+	}
+
+	/**
+	 * This method queues a city for examination, unless it is already queued
+	 *
+	 * @param city id of the city
+	 */
+	private void push(int city){
+		if (queued[city]) return;
+		queued[city] = true;
+		queue[(head + count) % queue.length] = city;
+		count++;
+	}
+
+	/**
+	 * This method takes the next city to examine off the queue
+	 *
+	 * @return id of the city
+	 */
+	private int pop(){
+		int city = queue[head];
+		head = (head + 1) % queue.length;
+		count--;
+		queued[city] = false;
+		return city;
+	}
+}
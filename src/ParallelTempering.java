@@ -0,0 +1,409 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class ParallelTempering solves the travelling salesman problem by simulated
+ * annealing with replica exchange. Every replica is a tour that is annealed at a
+ * fixed temperature of a geometric ladder; hot replicas roam, cold ones descend
+ * into local optima. After every round of sweeps, replicas at adjacent
+ * temperatures propose to swap with the Metropolis probability of the exchange,
+ * so good tours found by the hot replicas move down the ladder.
+ * <P>
+ * A move is a 2-opt move or an Or-opt move of one to three cities, between a city
+ * and one of its candidates. The tours are int arrays with the position of every
+ * city, so the change of length of a move is evaluated in O(1) before it is
+ * applied. The replicas of a round run in parallel, one chunk of replicas per
+ * thread, and every replica has its own random stream; the swaps are decided by
+ * the calling thread between rounds, when no replica runs, so they need no locks
+ * and only exchange the replicas' places on the ladder.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class ParallelTempering {
+
+	private static final int NEIGHBOURS			= 8;		// Candidates per city
+	private static final double HOT				= 0.3;		// Highest temperature, in mean candidate edge lengths
+	private static final double COLD			= 0.01;		// Lowest temperature, in mean candidate edge lengths
+
+	private int citySize;					// Number of cities
+	private int[] ids;						// Ids of the cities
+	private City[] cityById;				// City objects indexed by city id
+	private CityCoordinates coordinates;	// Coordinates of the cities indexed by city id
+	private CandidateLists candidates;		// Nearest neighbours of every city
+	private double[] temperatures;			// Temperature of every level, coldest first
+	private Replica[] ladder;				// Replica at every level
+	private Random prng;					// Decides the swaps
+	private int swapParity;					// Levels 0-1, 2-3 ... or 1-2, 3-4 ... propose next
+	private int[] bestTour;					// Best tour so far
+	private double bestLength = Double.POSITIVE_INFINITY;
+	private int chunkCount;					// Number of chunks of replicas run in parallel
+	private ForkJoinPool pool;				// Runs the chunks, null for one chunk
+	private long proposals, swaps;			// Swap statistics
+
+	/**
+	 * Parameterized constructor, starts every replica from a random tour
+	 *
+	 * @param tour contains the cities, at least four
+	 * @param replicas number of replicas, at least two
+	 * @param threads number of threads running the replicas
+	 * @param seed seed from which the random streams of the replicas are derived
+	 * @param streamId id of this annealer, e.g. the rank of the worker task
+	 */
+	public ParallelTempering(TravelingPath tour, int replicas, int threads, long seed, long streamId){
+		ArrayList<City> cityList = tour.getCityList();
+		this.citySize = cityList.size();
+		this.coordinates = new CityCoordinates(cityList);
+		this.ids = new int[citySize];
+		this.cityById = new City[coordinates.size()];
+		for (int i = 0; i < citySize; i++) {
+			ids[i] = cityList.get(i).id;
+			cityById[ids[i]] = cityList.get(i);
+		}
+		this.candidates = new CandidateLists(coordinates, ids, Math.min(NEIGHBOURS, citySize - 1));
+
+		// The ladder is scaled by the typical length of a good edge
+		double edgeSum = 0;
+		int edgeCount = 0;
+		for (int i = 0; i < citySize; i++) {
+			for (int j = 0; j < candidates.count(ids[i]); j++) {
+				edgeSum += coordinates.distance(ids[i], candidates.get(ids[i], j));
+				edgeCount++;
+			}
+		}
+		double edge = edgeCount == 0 ? 1 : Math.max(1e-9, edgeSum/edgeCount);
+		replicas = Math.max(2, replicas);
+		this.temperatures = new double[replicas];
+		for (int level = 0; level < replicas; level++)
+			temperatures[level] = edge*COLD*Math.pow(HOT/COLD, (double) level/(replicas - 1));
+
+		this.ladder = new Replica[replicas];
+		for (int level = 0; level < replicas; level++)
+			ladder[level] = new Replica(SplitRandom.stream(seed, streamId, level));
+		this.prng = SplitRandom.stream(seed, streamId, -1);
+		this.chunkCount = Math.max(1, Math.min(threads, replicas));
+		this.pool = chunkCount > 1 ? new ForkJoinPool(chunkCount) : null;
+		recordBest();
+	}
+
+	/**
+	 * This method runs rounds of annealing. In a round every replica tries sweeps
+	 * times citySize moves at the temperature of its level, and then the adjacent
+	 * levels propose to swap their replicas.
+	 *
+	 * @param rounds number of rounds
+	 * @param sweeps sweeps per round
+	 */
+	public void anneal(int rounds, final int sweeps){
+		for (int round = 0; round < rounds; round++) {
+			final Replica[] order = ladder.clone();
+			final RecursiveAction[] actions = new RecursiveAction[chunkCount];
+			for (int c = 0; c < chunkCount; c++) {
+				final int first = c*order.length/chunkCount, end = (c + 1)*order.length/chunkCount;
+				actions[c] = new RecursiveAction(){
+					private static final long serialVersionUID = 1L;
+					protected void compute(){
+						for (int level = first; level < end; level++)
+							order[level].sweep((long) sweeps*citySize, temperatures[level]);
+					}
+				};
+			}
+			IslandEngine.invokeActions(pool, actions);
+			recordBest();
+			proposeSwaps();
+		}
+	}
+
+	/**
+	 * This method lets every other pair of adjacent levels exchange their replicas
+	 * with probability min(1, exp((1/T1 - 1/T2)*(L1 - L2))), where level 1 is the
+	 * colder one
+	 */
+	private void proposeSwaps(){
+		for (int level = swapParity; level + 1 < ladder.length; level += 2) {
+			double exponent = (1/temperatures[level] - 1/temperatures[level + 1])*(ladder[level].length - ladder[level + 1].length);
+			proposals++;
+			if (exponent >= 0 || prng.nextDouble() < Math.exp(exponent)) {
+				Replica swap = ladder[level];
+				ladder[level] = ladder[level + 1];
+				ladder[level + 1] = swap;
+				swaps++;
+			}
+		}
+		swapParity = 1 - swapParity;
+	}
+
+	/**
+	 * This method copies the shortest replica if it is shorter than the best tour
+	 */
+	private void recordBest(){
+		Replica shortest = ladder[0];
+		for (int level = 1; level < ladder.length; level++)
+			if (ladder[level].length < shortest.length) shortest = ladder[level];
+		if (shortest.length < bestLength) {
+			if (bestTour == null) bestTour = new int[citySize];
+			System.arraycopy(shortest.tour, 0, bestTour, 0, citySize);
+			bestLength = shortest.length;
+		}
+	}
+
+	/**
+	 * This method takes in a tour, e.g. from another node or a seed tour. It
+	 * replaces the tour of the coldest replica if it is shorter.
+	 *
+	 * @param tour the tour, of the cities of this annealer
+	 */
+	public void receive(TravelingPath tour){
+		ArrayList<City> cityList = tour.getCityList();
+		int[] row = new int[citySize];
+		for (int i = 0; i < citySize; i++)
+			row[i] = cityList.get(i).id;
+		double length = coordinates.tourLength(row, 0, citySize);
+		if (length < ladder[0].length) {
+			ladder[0].set(row, length);
+			recordBest();
+		}
+	}
+
+	/**
+	 * Returns the best tour so far
+	 *
+	 * @return a copy of the best tour
+	 */
+	public TravelingPath getBestTour(){
+		ArrayList<City> cityList = new ArrayList<City>(citySize);
+		for (int i = 0; i < citySize; i++)
+			cityList.add(cityById[bestTour[i]]);
+		TravelingPath path = new TravelingPath(cityList);
+		path.calculateDistance();
+		return path;
+	}
+
+	/**
+	 * Returns the length of the best tour so far
+	 *
+	 * @return length
+	 */
+	public double getBestLength(){
+		return bestLength;
+	}
+
+	/**
+	 * Returns the fraction of the swap proposals that were accepted
+	 *
+	 * @return swap rate, 0 before the first round
+	 */
+	public double getSwapRate(){
+		return proposals == 0 ? 0 : (double) swaps/proposals;
+	}
+
+	/**
+	 * This method stops the threads of the annealer
+	 */
+	public void shutdown(){
+		if (pool != null) pool.shutdown();
+	}
+
+	/**
+	 * Class Replica is one tour annealed by one thread at a time
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private class Replica {
+
+		private int[] tour;				// City ids in tour order
+		private int[] position;			// Position of every city in the tour, indexed by city id
+		private double length;			// Length of the tour
+		private Random prng;			// Random stream of the replica
+		private int[] segment = new int[3];
+
+		/**
+		 * Parameterized constructor, starts from a random tour
+		 *
+		 * @param prng random stream of the replica
+		 */
+		public Replica(Random prng){
+			this.prng = prng;
+			this.tour = ids.clone();
+			for (int i = citySize - 1; i > 0; i--) {
+				int j = prng.nextInt(i + 1);
+				int city = tour[i];
+				tour[i] = tour[j];
+				tour[j] = city;
+			}
+			this.position = new int[coordinates.size()];
+			set(tour, coordinates.tourLength(tour, 0, citySize));
+		}
+
+		/**
+		 * This method replaces the tour of the replica
+		 *
+		 * @param row the tour
+		 * @param rowLength length of the tour
+		 */
+		public void set(int[] row, double rowLength){
+			System.arraycopy(row, 0, tour, 0, citySize);
+			for (int i = 0; i < citySize; i++)
+				position[tour[i]] = i;
+			length = rowLength;
+		}
+
+		/**
+		 * This method tries moves at a temperature. A move that shortens the tour is
+		 * always accepted, one that lengthens it by delta with probability
+		 * exp(-delta/temperature).
+		 *
+		 * @param moves number of moves tried
+		 * @param temperature the temperature
+		 */
+		public void sweep(long moves, double temperature){
+			for (long m = 0; m < moves; m++) {
+				if (prng.nextBoolean())
+					twoOpt(temperature);
+				else
+					orOpt(temperature);
+			}
+			// Keep the rounding errors of the deltas from adding up
+			length = coordinates.tourLength(tour, 0, citySize);
+		}
+
+		/**
+		 * This method tries a 2-opt move between a random city and one of its
+		 * candidates: the edges (a, b) and (c, d) are replaced by (a, c) and (b, d),
+		 * b and d being the successors, or the predecessors, of a and c
+		 *
+		 * @param temperature the temperature
+		 */
+		private void twoOpt(double temperature){
+			int a = ids[prng.nextInt(citySize)];
+			int c = candidates.get(a, prng.nextInt(candidates.count(a)));
+			boolean forward = prng.nextBoolean();
+			int b = forward ? next(a) : previous(a);
+			int d = forward ? next(c) : previous(c);
+			if (c == b || d == a) return;
+			double delta = coordinates.distance(a, c) + coordinates.distance(b, d)
+					- coordinates.distance(a, b) - coordinates.distance(c, d);
+			if (!accept(delta, temperature)) return;
+			if (forward)
+				reverse(position[b], position[c]);
+			else
+				reverse(position[c], position[b]);
+			length += delta;
+		}
+
+		/**
+		 * This method tries an Or-opt move: a segment of one to three cities starting
+		 * at a random city moves between a candidate of its first city and the
+		 * successor of the candidate, in the better of the two orientations
+		 *
+		 * @param temperature the temperature
+		 */
+		private void orOpt(double temperature){
+			int size = 1 + prng.nextInt(3);
+			int s = ids[prng.nextInt(citySize)];
+			int i = position[s];
+			if (i + size > citySize || size >= citySize - 2) return;
+			int e = tour[i + size - 1];
+			int c = candidates.get(s, prng.nextInt(candidates.count(s)));
+			int j = position[c];
+			// The candidate must not be in the segment or just before it
+			if (j >= i - 1 && j < i + size) return;
+			if (i == 0 && j == citySize - 1) return;
+			int d = next(c);
+			int before = tour[i == 0 ? citySize - 1 : i - 1];
+			int after = tour[i + size == citySize ? 0 : i + size];
+
+			double removed = coordinates.distance(before, s) + coordinates.distance(e, after)
+					- coordinates.distance(before, after);
+			double forward = coordinates.distance(c, s) + coordinates.distance(e, d) - coordinates.distance(c, d);
+			double reversed = coordinates.distance(c, e) + coordinates.distance(s, d) - coordinates.distance(c, d);
+			boolean reverse = reversed < forward;
+			double delta = (reverse ? reversed : forward) - removed;
+			if (!accept(delta, temperature)) return;
+
+			for (int k = 0; k < size; k++)
+				segment[k] = tour[i + (reverse ? size - 1 - k : k)];
+			int first, last;
+			if (j > i) {
+				// Cities after the segment up to the candidate shift back
+				System.arraycopy(tour, i + size, tour, i, j - i - size + 1);
+				System.arraycopy(segment, 0, tour, j - size + 1, size);
+				first = i;
+				last = j;
+			}
+			else {
+				// Cities after the candidate up to the segment shift forward
+				System.arraycopy(tour, j + 1, tour, j + 1 + size, i - j - 1);
+				System.arraycopy(segment, 0, tour, j + 1, size);
+				first = j + 1;
+				last = i + size - 1;
+			}
+			for (int k = first; k <= last; k++)
+				position[tour[k]] = k;
+			length += delta;
+		}
+
+		/**
+		 * This method decides whether a move is accepted
+		 *
+		 * @param delta change of the tour length by the move
+		 * @param temperature the temperature
+		 * @return true if the move is accepted
+		 */
+		private boolean accept(double delta, double temperature){
+			return delta <= 0 || prng.nextDouble() < Math.exp(-delta/temperature);
+		}
+
+		/**
+		 * Returns the successor of a city in the tour
+		 *
+		 * @param city id of the city
+		 * @return id of the successor
+		 */
+		private int next(int city){
+			int i = position[city] + 1;
+			return tour[i == citySize ? 0 : i];
+		}
+
+		/**
+		 * Returns the predecessor of a city in the tour
+		 *
+		 * @param city id of the city
+		 * @return id of the predecessor
+		 */
+		private int previous(int city){
+			int i = position[city];
+			return tour[i == 0 ? citySize - 1 : i - 1];
+		}
+
+		/**
+		 * This method reverses the cyclic section tour[from] .. tour[to], or the rest
+		 * of the tour if that is shorter; both give the same cyclic tour
+		 *
+		 * @param from first position of the section
+		 * @param to last position of the section
+		 */
+		private void reverse(int from, int to){
+			int n = citySize;
+			int count = (to - from + n) % n + 1;
+			if (2*count > n) {
+				int t = from;
+				from = (to + 1) % n;
+				to = (t - 1 + n) % n;
+				count = n - count;
+			}
+			for (int k = 0; k < count/2; k++) {
+				int i = from + k < n ? from + k : from + k - n;
+				int j = to - k >= 0 ? to - k : to - k + n;
+				int city = tour[i];
+				tour[i] = tour[j];
+				tour[j] = city;
+				position[tour[i]] = i;
+				position[tour[j]] = j;
+			}
+		}
+	}
+}
@@ -0,0 +1,419 @@
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class ParameterRacer tunes the settings of the genetic algorithm by racing, as
+ * in F-race. For every size class the configurations, the combinations of the
+ * population sizes, generations per epoch and mutation rates given, solve random
+ * instances of that size one after the other; the configurations still in the race
+ * solve each instance in parallel. After the first few instances a Friedman test on
+ * the ranks of the tour lengths is made after every instance, and if it finds a
+ * difference, the configurations whose rank sum is worse than the best one by more
+ * than the critical difference of the Conover post-hoc test drop out, so later
+ * instances are spent on the promising configurations only.
+ * <P>
+ * Every run breeds the same number of tours per island, so a configuration with a
+ * larger population or longer epochs runs fewer epochs; the number of epochs is the
+ * MigrationCount of SmpTSPMain. All configurations solve an instance with the same
+ * seed, and the race is repeatable for the same seed.
+ * <P>
+ * Usage: java ParameterRacer [{@literal <name>=<value>} ...] <br>
+ * sizes={@literal <n>,<n>...} = Number of cities of every size class (default 100,200,500). <br>
+ * populations={@literal <p>,<p>...} = Population sizes raced, at least 2, odd sizes too (default 50,100,200). <br>
+ * generations={@literal <g>,<g>...} = Generations per epoch raced (default 20,50,100). <br>
+ * mutations={@literal <r>,<r>...} = Initial mutation rates in percent raced, 1 to 50 (default 5,10,20). <br>
+ * evaluations={@literal <e>} = Tours bred per island and run (default 50000). <br>
+ * instances={@literal <k>} = Largest number of instances per size class (default 10). <br>
+ * first={@literal <m>} = Instances solved before the first test, at least 2 (default 4). <br>
+ * alpha={@literal <a>} = Significance level of the tests (default 0.05). <br>
+ * islands={@literal <n>} = Islands per run (default 2). <br>
+ * threads={@literal <k>} = Runs solved at the same time (default: cores). <br>
+ * save={@literal <file>} = Write the best configurations to the file. <br>
+ * seed={@literal <s>} = Seed of the instances and of the solver (default 1).
+ * <P>
+ * The output has one line per size class with its best configuration. A saved file
+ * has one line {@literal "<size> <populationsize> <GAiterations> <MigrationCount> <mutation>"}
+ * per size class.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class ParameterRacer {
+
+	private List<Configuration> configurations;	// The configurations raced
+	private int evaluations;					// Tours bred per island and run
+	private int maxInstances;					// Largest number of instances per size class
+	private int first;							// Instances solved before the first test
+	private double alpha;						// Significance level of the tests
+	private int islands;						// Islands per run
+	private long seed;							// Seed of the instances and of the solver
+	private ForkJoinPool pool;					// Solves the runs of an instance
+
+	/**
+	 * Parameterized constructor
+	 *
+	 * @param configurations the configurations to race
+	 * @param options the options of the race
+	 */
+	public ParameterRacer(List<Configuration> configurations, SolverOptions options){
+		this.configurations = configurations;
+		this.evaluations = options.getInt("evaluations", 50000);
+		this.maxInstances = options.getInt("instances", 10);
+		this.first = options.getInt("first", 4);
+		this.alpha = options.getDouble("alpha", 0.05);
+		this.islands = options.getInt("islands", 2);
+		this.seed = options.getLong("seed", 1);
+		this.pool = new ForkJoinPool(options.getInt("threads", Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Racer main program.
+	 *
+	 * @param args Command line arguments
+	 * @throws Exception Thrown if the results cannot be written
+	 */
+	public static void main(String[] args) throws Exception {
+		SolverOptions options;
+		int[] sizes;
+		List<Configuration> configurations = new ArrayList<Configuration>();
+		try {
+			options = new SolverOptions(args, 0);
+			sizes = parseInts(options.getString("sizes", "100,200,500"));
+			int[] populations = parseInts(options.getString("populations", "50,100,200"));
+			int[] generations = parseInts(options.getString("generations", "20,50,100"));
+			int[] mutations = parseInts(options.getString("mutations", "5,10,20"));
+			for( int p : populations )
+				for( int g : generations )
+					for( int m : mutations )
+						configurations.add(new Configuration(configurations.size(), p, g, m));
+			for( int size : sizes )
+				if( size < 4 ) throw new IllegalArgumentException("sizes must be at least 4");
+			for( int p : populations )
+				if( p < 2 ) throw new IllegalArgumentException("populations must be at least 2");
+			for( int g : generations )
+				if( g < 1 ) throw new IllegalArgumentException("generations must be positive");
+			for( int m : mutations )
+				if( m < 1 || m > 50 ) throw new IllegalArgumentException("mutations must be between 1 and 50");
+			if( configurations.size() < 2 )
+				throw new IllegalArgumentException("Nothing to race");
+			if( options.getInt("evaluations", 50000) < 1 || options.getInt("instances", 10) < 2
+					|| options.getInt("first", 4) < 2 || options.getInt("islands", 2) < 1 )
+				throw new IllegalArgumentException("Illegal race settings");
+			double alpha = options.getDouble("alpha", 0.05);
+			if( alpha <= 0 || alpha >= 1 )
+				throw new IllegalArgumentException("alpha must be between 0 and 1");
+			options.getInt("threads", 0);
+			options.getLong("seed", 0);
+		}
+		catch( IllegalArgumentException e ) {
+			// Say which setting is wrong before the usage
+			if( e.getMessage() != null )
+				System.err.println(e.getMessage());
+			usage();
+			return;
+		}
+
+		ParameterRacer racer = new ParameterRacer(configurations, options);
+		PrintWriter save = options.contains("save") ? new PrintWriter(options.getString("save", "")) : null;
+		ArrayList<String> results = new ArrayList<String>();
+		try {
+			for( int size : sizes ) {
+				Configuration best = racer.race(size);
+				String line = String.format("%6d %12d %12d %12d %9d", size, best.populationSize,
+						best.generations, racer.epochs(best), best.mutation);
+				results.add(line);
+				if( save != null )
+					save.println(size + " " + best.populationSize + " " + best.generations + " "
+							+ racer.epochs(best) + " " + best.mutation);
+			}
+		}
+		finally {
+			racer.shutdown();
+			if( save != null ) save.close();
+		}
+
+		System.out.println(String.format("%6s %12s %12s %12s %9s", "N", "population", "GAiterations", "migrations", "mutation"));
+		for( String line : results )
+			System.out.println(line);
+		System.out.println("Use as: SmpTSPMain \"<ctor>\" <population> <GAiterations> <migrations> portfolio=tuned:mutation=<mutation>");
+	}
+
+	/**
+	 * This method races the configurations on instances of one size
+	 *
+	 * @param size number of cities of the instances
+	 * @return the best configuration
+	 */
+	public Configuration race(int size){
+		ArrayList<Configuration> alive = new ArrayList<Configuration>(configurations);
+		final double[][] lengths = new double[maxInstances][configurations.size()];
+		int instances = 0;
+		while( instances < maxInstances && alive.size() > 1 ) {
+			solve(size, instances, alive, lengths[instances]);
+			instances++;
+			if( instances >= first ) {
+				int before = alive.size();
+				eliminate(alive, lengths, instances);
+				System.out.println(String.format("N=%d instance %d: %d -> %d configurations", size, instances, before, alive.size()));
+			}
+		}
+
+		// The survivor with the best rank sum wins
+		double[] rankSums = rankSums(alive, lengths, instances, null);
+		int best = 0;
+		for( int j = 1; j < alive.size(); j++ )
+			if( rankSums[j] < rankSums[best] ) best = j;
+		return alive.get(best);
+	}
+
+	/**
+	 * This method solves one instance with every configuration still in the race.
+	 * The runs are solved in parallel, all with the same solver seed.
+	 *
+	 * @param size number of cities
+	 * @param instance index of the instance
+	 * @param alive configurations still in the race
+	 * @param lengths receives the best tour length of every configuration, by index
+	 */
+	private void solve(int size, int instance, List<Configuration> alive, final double[] lengths){
+		final ArrayList<City> cities = new ArrayList<City>(size);
+		RandomPointGroup pg = new RandomPointGroup(size, 1000, SplitRandom.stream(seed, size, instance).nextLong());
+		City city = new City();
+		for( int i = 0; i < size; i++ ) {
+			pg.nextPoint(city);
+			cities.add(new City(city.x, city.y, city.z, i));
+		}
+		final long solverSeed = SplitRandom.stream(seed, size, instance, 1).nextLong();
+
+		final RecursiveAction[] actions = new RecursiveAction[alive.size()];
+		for( int j = 0; j < alive.size(); j++ ) {
+			final Configuration configuration = alive.get(j);
+			actions[j] = new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+				protected void compute(){
+					TSPResult result = new TSPSolver.Builder()
+							.cities(cities)
+							.populationSize(configuration.populationSize)
+							.generationsPerEpoch(configuration.generations)
+							.maxEpochs(epochs(configuration))
+							.islands(islands)
+							.parallelism(1)
+							.portfolio(IslandProfile.parse("tuned:mutation=" + configuration.mutation))
+							.seed(solverSeed)
+							.build()
+							.solve();
+					lengths[configuration.index] = result.getLength();
+				}
+			};
+		}
+		pool.invoke(new RecursiveAction(){
+			private static final long serialVersionUID = 1L;
+			protected void compute(){
+				invokeAll(actions);
+			}
+		});
+	}
+
+	/**
+	 * This method drops the configurations that are significantly worse than the
+	 * best one. The Friedman test decides whether the configurations differ at all;
+	 * if they do, the Conover post-hoc test compares every configuration with the
+	 * one of the best rank sum.
+	 *
+	 * @param alive configurations still in the race, modified in place
+	 * @param lengths tour lengths by instance and configuration index
+	 * @param blocks number of instances solved
+	 */
+	private void eliminate(ArrayList<Configuration> alive, double[][] lengths, int blocks){
+		int k = alive.size();
+		double[] squares = new double[1];
+		double[] rankSums = rankSums(alive, lengths, blocks, squares);
+		double a = squares[0];
+		double c = blocks*k*(k + 1)*(k + 1)/4.0;
+		if( a - c <= 1e-9 ) return;
+
+		// Friedman statistic, corrected for ties
+		double t = 0;
+		for( int j = 0; j < k; j++ ) {
+			double d = rankSums[j] - blocks*(k + 1)/2.0;
+			t += d*d;
+		}
+		t *= (k - 1)/(a - c);
+		if( t <= chiSquareQuantile(1 - alpha, k - 1) ) return;
+
+		int best = 0;
+		double sumOfSquares = 0;
+		for( int j = 0; j < k; j++ ) {
+			if( rankSums[j] < rankSums[best] ) best = j;
+			sumOfSquares += rankSums[j]*rankSums[j];
+		}
+		int df = (blocks - 1)*(k - 1);
+		double critical = tQuantile(1 - alpha/2, df)*Math.sqrt(2*(blocks*a - sumOfSquares)/df);
+		ArrayList<Configuration> survivors = new ArrayList<Configuration>();
+		for( int j = 0; j < k; j++ )
+			if( rankSums[j] - rankSums[best] <= critical ) survivors.add(alive.get(j));
+		alive.clear();
+		alive.addAll(survivors);
+	}
+
+	/**
+	 * This method ranks the configurations on every instance, shortest tour first,
+	 * tied tours sharing the mean of their ranks
+	 *
+	 * @param alive the configurations ranked
+	 * @param lengths tour lengths by instance and configuration index
+	 * @param blocks number of instances
+	 * @param squares receives the sum of the squared ranks at index 0, may be null
+	 * @return the rank sum of every configuration of alive
+	 */
+	private static double[] rankSums(List<Configuration> alive, double[][] lengths, int blocks, double[] squares){
+		int k = alive.size();
+		double[] rankSums = new double[k];
+		for( int b = 0; b < blocks; b++ ) {
+			for( int j = 0; j < k; j++ ) {
+				double length = lengths[b][alive.get(j).index];
+				int shorter = 0, equal = 0;
+				for( int i = 0; i < k; i++ ) {
+					double other = lengths[b][alive.get(i).index];
+					if( other < length ) shorter++;
+					else if( other == length ) equal++;
+				}
+				double rank = shorter + (equal + 1)/2.0;
+				rankSums[j] += rank;
+				if( squares != null ) squares[0] += rank*rank;
+			}
+		}
+		return rankSums;
+	}
+
+	/**
+	 * Returns the number of epochs of a configuration, which breeds the same number
+	 * of tours per island as every other configuration
+	 *
+	 * @param configuration the configuration
+	 * @return number of epochs, at least 1
+	 */
+	public int epochs(Configuration configuration){
+		return Math.max(1, evaluations/(configuration.populationSize*configuration.generations));
+	}
+
+	/**
+	 * This method stops the threads of the racer
+	 */
+	public void shutdown(){
+		pool.shutdown();
+	}
+
+	/**
+	 * Returns a quantile of the standard normal distribution, by the rational
+	 * approximation of Acklam, accurate to about 1e-9
+	 *
+	 * @param p probability, between 0 and 1
+	 * @return the quantile
+	 */
+	private static double normalQuantile(double p){
+		double[] a = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+				1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+		double[] b = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+				6.680131188771972e+01, -1.328068155288572e+01 };
+		double[] c = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+				-2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+		double[] d = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+				3.754408661907416e+00 };
+		if( p < 0.02425 ) {
+			double q = Math.sqrt(-2*Math.log(p));
+			return (((((c[0]*q + c[1])*q + c[2])*q + c[3])*q + c[4])*q + c[5])
+					/((((d[0]*q + d[1])*q + d[2])*q + d[3])*q + 1);
+		}
+		if( p > 1 - 0.02425 )
+			return -normalQuantile(1 - p);
+		double q = p - 0.5, r = q*q;
+		return (((((a[0]*r + a[1])*r + a[2])*r + a[3])*r + a[4])*r + a[5])*q
+				/(((((b[0]*r + b[1])*r + b[2])*r + b[3])*r + b[4])*r + 1);
+	}
+
+	/**
+	 * Returns a quantile of the chi-square distribution, by the approximation of
+	 * Wilson and Hilferty
+	 *
+	 * @param p probability, between 0 and 1
+	 * @param df degrees of freedom
+	 * @return the quantile
+	 */
+	private static double chiSquareQuantile(double p, int df){
+		double h = 2.0/(9*df);
+		double cube = 1 - h + normalQuantile(p)*Math.sqrt(h);
+		return df*cube*cube*cube;
+	}
+
+	/**
+	 * Returns a quantile of Student's t distribution, by the Cornish-Fisher expansion
+	 * around the normal quantile
+	 *
+	 * @param p probability, between 0 and 1
+	 * @param df degrees of freedom
+	 * @return the quantile
+	 */
+	private static double tQuantile(double p, int df){
+		double z = normalQuantile(p), z3 = z*z*z, z5 = z3*z*z;
+		return z + (z3 + z)/(4.0*df) + (5*z5 + 16*z3 + 3*z)/(96.0*df*df);
+	}
+
+	/**
+	 * This method parses a comma separated list of integers
+	 *
+	 * @param list the list
+	 * @return the integers
+	 *
+	 * @exception NumberFormatException Thrown if an entry is not an integer
+	 */
+	private static int[] parseInts(String list){
+		String[] fields = list.split(",");
+		int[] values = new int[fields.length];
+		for( int i = 0; i < fields.length; i++ )
+			values[i] = Integer.parseInt(fields[i].trim());
+		return values;
+	}
+
+	/**
+	 * Print a usage message and exit.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java ParameterRacer [sizes=<n>,...] [populations=<p>,...] [generations=<g>,...]");
+		System.err.println("       [mutations=<r>,...] [evaluations=<e>] [instances=<k>] [first=<m>] [alpha=<a>]");
+		System.err.println("       [islands=<n>] [threads=<k>] [save=<file>] [seed=<s>]");
+		System.exit(1);
+	}
+
+	/**
+	 * Class Configuration is one combination of the settings raced
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	public static class Configuration {
+
+		private int index;				// Index of the configuration in the race
+		private int populationSize;		// Population size of every island
+		private int generations;		// Generations per epoch
+		private int mutation;			// Initial mutation rate in percent
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param index index of the configuration in the race
+		 * @param populationSize population size of every island
+		 * @param generations generations per epoch
+		 * @param mutation initial mutation rate in percent
+		 */
+		public Configuration(int index, int populationSize, int generations, int mutation){
+			this.index = index;
+			this.populationSize = populationSize;
+			this.generations = generations;
+			this.mutation = mutation;
+		}
+	}
+}
@@ -12,14 +12,23 @@ import edu.rit.util.AList;
  * @author Sahil Jasrotia, Lokesh Agrawal
  * 
  */
-public class Population {
+public class Population implements Island {
 
 	private int populationSize;							// To hold the population size.
 	private ArrayList<TravelingPath>	populationList; // Contains the list of traveling paths
 	private ArrayList<TravelingPath>   	newPopulation;  // Contains the population after crossover
 	TravelingPath initTour;								// Contains the initial tour
+	private CityCoordinates coordinates;				// Coordinates of the cities indexed by city id
 	private double maxDistance = 0;
 	private ArrayList<TravelingPath> matingPool = new ArrayList<TravelingPath>(); // mating pool for crossover
+	private Random prng;								// pseudorandom number generator of this population
+	private TourHash tourHash;							// Computes the edge hash of the tours
+	private TourHashTable members;						// Hashes of the tours in the population
+	private TourHashTable lengthCache;					// Lengths of the tours evaluated recently, by hash
+	private AdaptiveController controller = new AdaptiveController(); // Tunes the rates of this island
+	private TourOperators operators;					// Crossover of a profile on rows of city ids, null for ordered crossover
+	private City[] cityById;							// City objects indexed by city id, for the rows
+	private int[] row1, row2, child1, child2;			// Parents and children of the row crossover
 	
 	/**
 	 * Default constructor for initializing the population list
@@ -36,10 +45,27 @@ public class Population {
 	 * @param populationSize the population size		 
 	 */
 	public Population(TravelingPath tour,int populationSize){
+		this(tour, populationSize, new SplitRandom(System.nanoTime()));
+	}
+	
+	/**
+	 * Parameterized constructor to initialize tour, population list and the 
+	 * pseudorandom number generator
+	 * 
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size
+	 * @param prng pseudorandom number generator, owned by this population
+	 */
+	public Population(TravelingPath tour,int populationSize, Random prng){
+		this.prng = prng;
 		this.initTour = new TravelingPath(tour.getCityList()); 
+		this.coordinates = new CityCoordinates(tour.getCityList());
 		this.populationSize = populationSize;					
 		this.populationList = new ArrayList<TravelingPath>();
 		this.newPopulation  = new ArrayList<TravelingPath>();
+		this.tourHash = TourHash.shared(coordinates.size());
+		this.members = new TourHashTable(2*populationSize);
+		this.lengthCache = new TourHashTable(8*populationSize);
 	}
 	
 	/**
@@ -57,20 +83,69 @@ public class Population {
 	 * This method creates the initial population 
 	 */
 	public void createPopulation(){		
-		int NNPopulationSize = (int) (0.1*populationSize);
-		int randomPopulationSize = populationSize - NNPopulationSize;
+		createPopulation(new ArrayList<TravelingPath>(), 0);
+	}
+	
+	/**
+	 * This method creates the initial population around the tour of a previous run.
+	 * The tour itself is kept and the rest of the population are copies of it with
+	 * a few sections reversed, so the search starts near the previous optimum.
+	 * 
+	 * @param warmTour tour of the cities of this population, e.g. a repaired previous best tour
+	 */
+	public void createPopulation(TravelingPath warmTour){
+		ArrayList<TravelingPath> seeds = new ArrayList<TravelingPath>();
+		seeds.add(warmTour);
+		createPopulation(seeds, 1);
+	}
+	
+	/**
+	 * This method creates the initial population from seed tours. The seeds are kept
+	 * and perturbed copies of them, a few sections reversed, fill the given fraction
+	 * of the population. The rest are nearest neighbour tours, at most 10% of the
+	 * population, and random tours.
+	 * 
+	 * @param seeds tours of the cities of this population, e.g. from TourConstruction
+	 * @param seededFraction fraction of the population made from the seeds, 0 to 1
+	 */
+	public void createPopulation(List<TravelingPath> seeds, double seededFraction){
+		int citySize = initTour.getCityList().size();
+		for (int i = 0; i < seeds.size(); i++){
+			TravelingPath seed = new TravelingPath(seeds.get(i).getCityList());
+			if(populationList.size() < populationSize && admit(seed))	populationList.add(seed);
+		}
+		
+		//Perturbed copies of the seeds, taken in turn
+		int seededSize = seeds.isEmpty() ? 0 : (int) Math.ceil(seededFraction*populationSize);
+		for (int attempts = 0; populationList.size() < seededSize && attempts < 10*populationSize; attempts++){
+			TravelingPath path = new TravelingPath(seeds.get(attempts % seeds.size()).getCityList());
+			int reversals = 1 + prng.nextInt(3);
+			for (int r = 0; r < reversals; r++){
+				int pivot1 = prng.nextInt(citySize);
+				int pivot2 = prng.nextInt(citySize);
+				Collections.reverse(path.getCityList().subList(Math.min(pivot1, pivot2), Math.max(pivot1, pivot2) + 1));
+			}
+			if(!admit(path))	continue;
+			populationList.add(path);
+		}
+		
 		//NN population generation
+		int NNPopulationSize = Math.min(Math.min((int) (0.1*populationSize), citySize), 
+				populationSize - populationList.size());
 		for(int i=0;i<NNPopulationSize;i++){
 			createNNPopulation(i);
 		}
 		
-		//Random population generation
-		for (int i = 0; i < randomPopulationSize; i++){			
-			initTour.shuffleTravellingPath();						
-			initTour.calculateDistance();
-			if(initTour.getEuclideanDistance() > maxDistance)	maxDistance = initTour.getEuclideanDistance();
-			populationList.add(initTour);
-		}								
+		//Random population generation, every tour is a copy of a fresh shuffle. Tiny
+		//instances have fewer distinct tours than the population size, so give up
+		//after a bounded number of attempts.
+		for (int attempts = 0; populationList.size() < populationSize && attempts < 10*populationSize; attempts++){			
+			initTour.shuffleTravellingPath(prng);						
+			TravelingPath path = new TravelingPath(initTour.getCityList());
+			if(!admit(path))	continue;
+			populationList.add(path);
+		}
+		findMaxDistance();
 		calculatePopulationFitness();
 	}
 	
@@ -80,41 +155,79 @@ public class Population {
 	 * @param index index represents the starting city 
 	 */
 	public void createNNPopulation(int index){
-		int minIndex = -1;
-		double minDistance = -1;
-		City currentCity = null;
+		ArrayList<City> cityList = this.initTour.getCityList();
+		int size = cityList.size();
+		
+		// Ids of the cities not yet visited, the first size-visited entries are unvisited
+		int[] unvisited = new int[size];
+		for(int i=0;i<size;i++){
+			unvisited[i] = cityList.get(i).id;
+		}
+		ArrayList<City> finalCity = new ArrayList<City>(size);
+		finalCity.add(cityList.get(index));
+		unvisited[index] = unvisited[size-1];
+		int remaining = size-1;
 		
-		// create the initial city list
-		ArrayList<City> initialCity = new ArrayList<City>();
-		initialCity.addAll(this.initTour.getCityList());
-		ArrayList<City> finalCity = new ArrayList<City>();
-		finalCity.add(initialCity.get(index));
-		initialCity.remove(index);
+		// Map from city id back to the city object
+		City[] cityById = new City[coordinates.size()];
+		for(int i=0;i<size;i++){
+			cityById[cityList.get(i).id] = cityList.get(i);
+		}
 		
 		// Loop through the cities and find the nearest neighbours.
-		while(initialCity.size()!=0){
-			currentCity = finalCity.get(finalCity.size()-1);
-			minIndex=-1;
-			for(int i=0;i<initialCity.size();i++){
-				if(minIndex==-1){
-					minIndex = i;
-					minDistance = findDistance(currentCity,initialCity.get(i));
-				}
-				else if(minDistance>findDistance(currentCity,initialCity.get(i))){
+		int current = cityList.get(index).id;
+		while(remaining!=0){
+			int minIndex = 0;
+			double minDistance = Double.MAX_VALUE;
+			for(int i=0;i<remaining;i++){
+				double distance = coordinates.distance(current, unvisited[i]);
+				if(distance<minDistance){
 					minIndex = i;
-					minDistance=findDistance(currentCity,initialCity.get(i));
+					minDistance = distance;
 				}
 			}
-			finalCity.add(initialCity.get(minIndex));
-			initialCity.remove(minIndex);	
+			current = unvisited[minIndex];
+			finalCity.add(cityById[current]);
+			unvisited[minIndex] = unvisited[--remaining];
 		}
 		// Add to the population list
 		TravelingPath path = new TravelingPath(finalCity);
-		path.calculateDistance();
+		if(!admit(path))	return;
 		if(path.getEuclideanDistance() > maxDistance)	maxDistance = path.getEuclideanDistance();
 		populationList.add(path);
 	}
 	
+	/**
+	 * This method hashes a new tour and evaluates its length, unless the same tour
+	 * is already in the population. The length is taken from the cache when the
+	 * tour was evaluated before.
+	 * 
+	 * @param path the new tour
+	 * @return true if the tour is not a duplicate and may be added to the population
+	 */
+	private boolean admit(TravelingPath path){
+		path.setHash(tourHash.hash(path.getCityList()));
+		if(members.contains(path.getHash()))	return false;
+		path.setEuclideanDistance(lengthOf(path));
+		members.put(path.getHash(), path.getEuclideanDistance());
+		return true;
+	}
+	
+	/**
+	 * This method returns the length of a hashed tour, from the cache if possible
+	 * 
+	 * @param path the tour, with its hash set
+	 * @return length of the tour
+	 */
+	private double lengthOf(TravelingPath path){
+		double length = lengthCache.get(path.getHash());
+		if(Double.isNaN(length)){
+			length = coordinates.tourLength(path.getCityList());
+			lengthCache.put(path.getHash(), length);
+		}
+		return length;
+	}
+	
 	/**
 	 * This method finds distance between two cities
 	 * 
@@ -123,8 +236,7 @@ public class Population {
 	 * @return Returns the distanc between two cities.
 	 */
 	public double findDistance(City city1, City city2){
-		return Math.sqrt((Math.pow(city1.getX() - city2.getX() , 2) + 
-				Math.pow(city1.getY() - city2.getY() , 2)));
+		return coordinates.distance(city1.id, city2.id);
 	}
 		
 	/**
@@ -149,10 +261,11 @@ public class Population {
 			calculateSampling();
 			selection();
 			crossover();
-			mutation(10);
+			mutation(controller.getMutationRate());
 			copyAndReset();
 			findMaxDistance();			 
 			calculatePopulationFitness();
+			controller.endGeneration();
 		}
 	}
 	
@@ -165,6 +278,8 @@ public class Population {
 		populationList.addAll(this.newPopulation);
 		newPopulation.clear();
 		matingPool.clear();
+		// Keep the length cache bounded, it only has to remember the recent generations
+		if(lengthCache.size() > 64*populationSize)	lengthCache.clear();
 	}
 	
 	/**
@@ -214,6 +329,11 @@ public class Population {
 			populationList.remove(populationList.size()-1);
 		}							
 		
+		// Remember which tours survived, so that duplicate offspring can be rejected
+		members.clear();
+		for(int i = 0; i < populationList.size(); i++)
+			members.put(populationList.get(i).getHash(), populationList.get(i).getEuclideanDistance());
+		
 		// Take the healthier population for mating. The sampling rate makes sure 
 		// that the population with higher will be selected more often for the mating.
 		for(int i = 0; i < populationList.size(); i++){
@@ -225,7 +345,11 @@ public class Population {
 	}	
 	
 	/**
-	 * This method performs the crossover operation.
+	 * This method performs the crossover operation. The number of pairs crossed
+	 * over is chosen by the adaptive controller. Every pair takes at least one
+	 * mating pool entry that was not used before, so there are at most as many
+	 * pairs as entries, and a pair that cannot be found in 100 draws ends the
+	 * crossover.
 	 * 
 	 */
 	public void crossover(){
@@ -233,10 +357,14 @@ public class Population {
 		int parent1_index = 0;
 		int parent2_index = 0;
 		
+		// Two distinct parents are drawn from the first matingPool.size()-1 entries
+		if(matingPool.size() < 3)	return;
+		
 		// Randomly select parents from the mating pool and then perform the
 		// ordered crossover.
-		Random rand = new Random();
-		for(int i = 0; i < populationList.size()/2; i++){
+		Random rand = prng;
+		int pairs = Math.min(controller.getCrossoverPairs(populationList.size()), matingPool.size()-1);
+		for(int i = 0; i < pairs; i++){
 			parent1_index = rand.nextInt(matingPool.size()-1);
 			parent2_index = rand.nextInt(matingPool.size()-1);			
 			
@@ -244,15 +372,22 @@ public class Population {
 			boolean parent1Visited = visited.contains(parent1_index);
 			boolean parent2Visited = visited.contains(parent2_index);
 			
-			while((parent1_index == parent2_index) || (parent1Visited && parent2Visited)){	
+			int attempts = 0;
+			while(((parent1_index == parent2_index) || (parent1Visited && parent2Visited)) && attempts < 100){	
 				parent1_index = rand.nextInt(matingPool.size()-1);
 				parent2_index = rand.nextInt(matingPool.size()-1);
 				parent1Visited = visited.contains(parent1_index);
 				parent2Visited = visited.contains(parent2_index);
-			}						
+				attempts++;
+			}
+			if((parent1_index == parent2_index) || (parent1Visited && parent2Visited))
+				return;
 			
-			// Using parents found in above step perform ordered crossover
-			orderedCrossover(matingPool.get(parent1_index), matingPool.get(parent2_index));			
+			// Using parents found in above step perform ordered crossover, or the one of the profile
+			if(operators == null)
+				orderedCrossover(matingPool.get(parent1_index), matingPool.get(parent2_index));
+			else
+				rowCrossover(matingPool.get(parent1_index), matingPool.get(parent2_index));
 			if(!parent1Visited)
 				visited.add(parent1_index);			
 			if(!parent2Visited)
@@ -267,7 +402,7 @@ public class Population {
 	 * @param parent2 Second parent needed for crossover.
 	 */
 	public void orderedCrossover(TravelingPath parent1, TravelingPath parent2){		
-		Random findPivot = new Random();
+		Random findPivot = prng;
 		List<City> cityList1 = parent1.getCityList();
 		List<City> cityList2 = parent2.getCityList();
 		TravelingPath childTour1, childTour2;
@@ -323,23 +458,66 @@ public class Population {
 			iterationSize--;
 		}
 		childTour1 = new TravelingPath(child1);
-		childTour1.calculateDistance();
 		childTour2 = new TravelingPath(child2);
-		childTour2.calculateDistance();
-		this.newPopulation.add(childTour1);
-		this.newPopulation.add(childTour2);
+		addChildren(parent1, parent2, childTour1, childTour2);
 	}
 	
 	/**
-	 * This method performs the mutation
+	 * This method performs the crossover operator of the profile on the parents,
+	 * converted to rows of city ids.
+	 * 
+	 * @param parent1 First parent needed for crossover.
+	 * @param parent2 Second parent needed for crossover.
+	 */
+	private void rowCrossover(TravelingPath parent1, TravelingPath parent2){
+		List<City> cityList1 = parent1.getCityList();
+		List<City> cityList2 = parent2.getCityList();
+		for(int i = 0; i < row1.length; i++){
+			row1[i] = cityList1.get(i).id;
+			row2[i] = cityList2.get(i).id;
+		}
+		operators.crossover(row1, row2, child1, child2);
+		ArrayList<City> cities1 = new ArrayList<City>(child1.length);
+		ArrayList<City> cities2 = new ArrayList<City>(child2.length);
+		for(int i = 0; i < child1.length; i++){
+			cities1.add(cityById[child1[i]]);
+			cities2.add(cityById[child2[i]]);
+		}
+		addChildren(parent1, parent2, new TravelingPath(cities1), new TravelingPath(cities2));
+	}
+	
+	/**
+	 * This method adds the new children of a crossover to the new population and
+	 * records the outcome of the crossover.
+	 * 
+	 * @param parent1 First parent of the children.
+	 * @param parent2 Second parent of the children.
+	 * @param childTour1 First child.
+	 * @param childTour2 Second child.
+	 */
+	private void addChildren(TravelingPath parent1, TravelingPath parent2, TravelingPath childTour1, TravelingPath childTour2){
+		// A child succeeds when it is new and shorter than the better parent
+		double bestParent = Math.min(parent1.getEuclideanDistance(), parent2.getEuclideanDistance());
+		boolean admitted1 = admit(childTour1);
+		boolean admitted2 = admit(childTour2);
+		if(admitted1)	this.newPopulation.add(childTour1);
+		if(admitted2)	this.newPopulation.add(childTour2);
+		controller.recordCrossover(admitted1 && childTour1.getEuclideanDistance() < bestParent);
+		controller.recordCrossover(admitted2 && childTour2.getEuclideanDistance() < bestParent);
+	}
+	
+	/**
+	 * This method performs the mutation. Each mutation applies the operator picked by
+	 * the adaptive controller: a swap of two cities, the reversal of a section or
+	 * the move of one city.
 	 * 
 	 * @param mutationRate This tells the mutation rate
 	 */
 	public void mutation(int mutationRate){
 		int size = newPopulation.size();
+		if(size == 0)	return;
 		int pivot1 = 0, pivot2 = 0;
-		City temp;
-		Random generateNumber = new Random();		
+		Random generateNumber = prng;		
 		int mutationSize = size * mutationRate/100;
 		int citySize = newPopulation.get(0).getCityList().size();
 		int pathNumber = 0;
@@ -351,9 +529,41 @@ public class Population {
 			
 			while(pivot1 == pivot2)	pivot2 = generateNumber.nextInt(citySize);
 			
-			temp = newPopulation.get(pathNumber).getCityList().get(pivot1);
-			newPopulation.get(pathNumber).getCityList().set(pivot1, newPopulation.get(pathNumber).getCityList().get(pivot2));
-			newPopulation.get(pathNumber).getCityList().set(pivot2, temp);
+			// Apply the operator and update the hash of the tour incrementally. A 
+			// mutation that turns the tour into one already in the population is undone.
+			TravelingPath path = newPopulation.get(pathNumber);
+			List<City> cityList = path.getCityList();
+			int operator = controller.selectMutation(generateNumber);
+			long hash;
+			if(operator == AdaptiveController.INVERSION){
+				hash = tourHash.reverse(path.getHash(), cityList, Math.min(pivot1, pivot2), Math.max(pivot1, pivot2));
+				if(members.contains(hash)){
+					tourHash.reverse(hash, cityList, Math.min(pivot1, pivot2), Math.max(pivot1, pivot2));
+					controller.recordMutation(operator, false);
+					continue;
+				}
+			}
+			else if(operator == AdaptiveController.INSERTION){
+				hash = tourHash.move(path.getHash(), cityList, pivot1, pivot2);
+				if(members.contains(hash)){
+					tourHash.move(hash, cityList, pivot2, pivot1);
+					controller.recordMutation(operator, false);
+					continue;
+				}
+			}
+			else{
+				hash = tourHash.swap(path.getHash(), cityList, pivot1, pivot2);
+				if(members.contains(hash)){
+					tourHash.swap(hash, cityList, pivot1, pivot2);
+					controller.recordMutation(operator, false);
+					continue;
+				}
+			}
+			double before = path.getEuclideanDistance();
+			path.setHash(hash);
+			path.setEuclideanDistance(lengthOf(path));
+			members.put(hash, path.getEuclideanDistance());
+			controller.recordMutation(operator, path.getEuclideanDistance() < before);
 		}
 	}
 	
@@ -363,21 +573,31 @@ public class Population {
 	 * @param migrationPopulation Contains the migrated population
 	 */
 	public void receiveMigratingTours(ArrayList<TravelingPath> migrationPopulation){		
-		for (int i = 0; i < 10; i++){			
-			this.populationList.add(new TravelingPath(migrationPopulation.get(i).getCityList()));
+		for (int i = 0; i < Math.min(10, migrationPopulation.size()); i++){			
+			TravelingPath path = new TravelingPath(migrationPopulation.get(i).getCityList());
+			if(admit(path))
+				this.populationList.add(path);
 		}
-		// We have added new population to our population list so we need to calculate the maxdistance again
+		// We have added new population to our population list so we need to calculate the maxdistance 
+		// and the fitness again, else the migrants sort behind the whole population
 		findMaxDistance();
+		calculatePopulationFitness();
 	}
 	
 	/**
-	 * This method does the thread level migration of the population
+	 * This method offers the best tours of this population to the elite archive of
+	 * the node. Tours are copied only if they enter the archive.
 	 * 
-	 * @param migrationPopulation contains the migrated population
+	 * @param archive the elite archive
+	 * @param count maximum number of tours offered
 	 */
-	public void threadMigration(ArrayList<TravelingPath> migrationPopulation){		
-		receiveMigratingTours(migrationPopulation);
-	}	
+	public void publishTo(EliteArchive archive, int count){
+		sortPopultaion();
+		for (int i = 0; i < Math.min(count, populationList.size()); i++){
+			if(!archive.accepts(populationList.get(i).getEuclideanDistance()))	break;
+			archive.offer(new TravelingPath(populationList.get(i)));
+		}
+	}
 	
 	/**
 	 * This method returns the fitter population depending on the migrating rate 
@@ -391,7 +611,7 @@ public class Population {
 		AList<TravelingPath> migratingList = new AList<TravelingPath>();
 		
 		// Add the most fitter population to the migrating list
-		for( int i = 0; i < migratingRate; i++ ) {
+		for( int i = 0; i < Math.min(migratingRate, populationList.size()); i++ ) {
 			TravelingPath tour = new TravelingPath(populationList.get(i));
 			migratingList.addLast(tour);
 		}
@@ -412,6 +632,48 @@ public class Population {
 		});		
 	}
 	
+	/**
+	 * This method returns the adaptive controller of this population
+	 * 
+	 * @return adaptive controller
+	 */
+	public AdaptiveController getController() {
+		return controller;
+	}
+	
+	/**
+	 * This method configures the population from a profile of a portfolio. The
+	 * crossover operators other than ordered crossover run on rows of city ids.
+	 * 
+	 * @param profile the profile
+	 */
+	public void configure(IslandProfile profile){
+		controller = profile.createController();
+		if(profile.getCrossover() == TourOperators.ORDERED){
+			operators = null;
+			return;
+		}
+		List<City> cityList = initTour.getCityList();
+		int citySize = cityList.size();
+		cityById = new City[coordinates.size()];
+		for(int i = 0; i < citySize; i++)
+			cityById[cityList.get(i).id] = cityList.get(i);
+		row1 = new int[citySize];
+		row2 = new int[citySize];
+		child1 = new int[citySize];
+		child2 = new int[citySize];
+		operators = new TourOperators(citySize, coordinates.size(), prng);
+		operators.setCrossover(profile.getCrossover());
+	}
+	
+	/**
+	 * This method does nothing, the population runs on the caller's thread and has
+	 * no threads of its own
+	 */
+	public void shutdown() {
+		
+	}
+	
 	/**
 	 * This method returns the population list
 	 * 
@@ -0,0 +1,185 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Class PopulationArena stores a generation of tours as fixed size rows of city ids
+ * in one flat block, with the length and the hash of every tour in primitive
+ * arrays. Rows are read into and written from int arrays owned by the caller, so
+ * the genetic algorithm creates no objects per tour. An arena is used by one thread
+ * at a time.
+ * <P>
+ * The rows live in an int array on the heap, or in a direct buffer outside the heap
+ * for instances whose generations would crowd the heap.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public abstract class PopulationArena {
+
+	protected int capacity;		// Maximum number of tours
+	protected int citySize;		// Number of cities of a tour
+	protected int rowSize;		// Largest number of cities of a tour the rows have room for
+	double[] lengths;			// Length of every tour
+	long[] hashes;				// Edge hash of every tour
+	int size;					// Number of tours stored
+
+	/**
+	 * Parameterized constructor
+	 *
+	 * @param capacity maximum number of tours
+	 * @param citySize number of cities of a tour
+	 *
+	 * @exception IllegalArgumentException Thrown if the rows do not fit in one block
+	 */
+	protected PopulationArena(int capacity, int citySize){
+		if ((long) capacity*citySize > Integer.MAX_VALUE/4)
+			throw new IllegalArgumentException("Arena of " + capacity + " tours of " + citySize + " cities is too large");
+		this.capacity = capacity;
+		this.citySize = citySize;
+		this.rowSize = citySize;
+		this.lengths = new double[capacity];
+		this.hashes = new long[capacity];
+	}
+
+	/**
+	 * This method creates an arena with its rows on the heap
+	 *
+	 * @param capacity maximum number of tours
+	 * @param citySize number of cities of a tour
+	 * @return the arena
+	 */
+	public static PopulationArena onHeap(int capacity, int citySize){
+		return new HeapArena(capacity, citySize);
+	}
+
+	/**
+	 * This method creates an arena with its rows in a direct buffer outside the heap
+	 *
+	 * @param capacity maximum number of tours
+	 * @param citySize number of cities of a tour
+	 * @return the arena
+	 */
+	public static PopulationArena offHeap(int capacity, int citySize){
+		return new DirectArena(capacity, citySize);
+	}
+
+	/**
+	 * This method reads a tour
+	 *
+	 * @param tour index of the tour
+	 * @param row array receiving the city ids, at least citySize long
+	 */
+	public abstract void read(int tour, int[] row);
+
+	/**
+	 * This method writes a tour
+	 *
+	 * @param tour index of the tour
+	 * @param row city ids in tour order
+	 */
+	public abstract void write(int tour, int[] row);
+
+	/**
+	 * This method empties the arena for tours of another instance. The rows are
+	 * reused if they have room for the cities, else an arena of the same kind and
+	 * capacity is made.
+	 *
+	 * @param citySize number of cities of a tour
+	 * @return this arena, or the new arena
+	 */
+	public PopulationArena reuse(int citySize){
+		if (citySize > rowSize) return create(capacity, citySize);
+		this.citySize = citySize;
+		this.size = 0;
+		return this;
+	}
+
+	/**
+	 * This method creates an empty arena of the same kind as this one
+	 *
+	 * @param capacity maximum number of tours
+	 * @param citySize number of cities of a tour
+	 * @return the arena
+	 */
+	protected abstract PopulationArena create(int capacity, int citySize);
+
+	/**
+	 * Returns the maximum number of tours
+	 *
+	 * @return capacity
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * Class HeapArena keeps the rows in an int array
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static class HeapArena extends PopulationArena {
+
+		private int[] cities;	// Row of tour t at [t*citySize, (t+1)*citySize)
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param capacity maximum number of tours
+		 * @param citySize number of cities of a tour
+		 */
+		public HeapArena(int capacity, int citySize){
+			super(capacity, citySize);
+			this.cities = new int[capacity*citySize];
+		}
+
+		protected PopulationArena create(int capacity, int citySize){
+			return new HeapArena(capacity, citySize);
+		}
+
+		public void read(int tour, int[] row){
+			System.arraycopy(cities, tour*citySize, row, 0, citySize);
+		}
+
+		public void write(int tour, int[] row){
+			System.arraycopy(row, 0, cities, tour*citySize, citySize);
+		}
+	}
+
+	/**
+	 * Class DirectArena keeps the rows in a direct buffer in native byte order
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static class DirectArena extends PopulationArena {
+
+		private IntBuffer cities;	// Row of tour t at [t*citySize, (t+1)*citySize)
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param capacity maximum number of tours
+		 * @param citySize number of cities of a tour
+		 */
+		public DirectArena(int capacity, int citySize){
+			super(capacity, citySize);
+			this.cities = ByteBuffer.allocateDirect(4*capacity*citySize).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+
+		protected PopulationArena create(int capacity, int citySize){
+			return new DirectArena(capacity, citySize);
+		}
+
+		public void read(int tour, int[] row){
+			cities.position(tour*citySize);
+			cities.get(row, 0, citySize);
+		}
+
+		public void write(int tour, int[] row){
+			cities.position(tour*citySize);
+			cities.put(row, 0, citySize);
+		}
+	}
+}
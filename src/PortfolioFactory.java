@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.rit.util.AList;
+
+/**
+ * Class PortfolioFactory creates the islands of a heterogeneous portfolio. The
+ * islands are made by another factory, and island i is configured by profile
+ * (offset + i) modulo the number of profiles, so the islands of all the nodes cycle
+ * through the profiles. An island whose profile asks for local search is wrapped so
+ * that after every call of startGA its best tours are improved by 2-opt and put
+ * back as migrants.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class PortfolioFactory extends IslandFactory {
+
+	private static final int LOCAL_SEARCH_TOURS	= 2;	// Best tours improved after every epoch
+	private static final int NEIGHBOURS			= 8;	// Candidates per city of the local search
+
+	private IslandFactory factory;			// Creates the islands before they are configured
+	private List<IslandProfile> profiles;	// Profiles of the portfolio
+	private int offset;						// Profile of the island of index 0
+
+	/**
+	 * Parameterized constructor
+	 *
+	 * @param factory creates the islands
+	 * @param profiles profiles of the portfolio, at least one
+	 * @param offset profile of the island of index 0, e.g. the first island index of a node
+	 */
+	public PortfolioFactory(IslandFactory factory, List<IslandProfile> profiles, int offset){
+		this.factory = factory;
+		this.profiles = profiles;
+		this.offset = offset;
+	}
+
+	/**
+	 * This method creates an island with the first profile
+	 *
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size of the solver
+	 * @param prng pseudorandom number generator, owned by the island
+	 * @return the island, without a population yet
+	 */
+	public Island create(TravelingPath tour, int populationSize, Random prng){
+		return create(0, tour, populationSize, prng);
+	}
+
+	/**
+	 * This method creates the island of a given index with its profile
+	 *
+	 * @param index index of the island
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size of the solver
+	 * @param prng pseudorandom number generator, owned by the island
+	 * @return the island, without a population yet
+	 */
+	public Island create(int index, TravelingPath tour, int populationSize, Random prng){
+		IslandProfile profile = profiles.get(Math.abs((offset + index) % profiles.size()));
+		Island island = factory.create(tour, profile.getPopulationSize(populationSize), prng);
+		island.configure(profile);
+		if (profile.getLocalSearchDepth() > 0 && tour.getCityList().size() >= 5)
+			island = new LocalSearchIsland(island, tour, profile.getLocalSearchDepth());
+		return island;
+	}
+
+	/**
+	 * Class LocalSearchIsland improves the best tours of an island by 2-opt after
+	 * every call of startGA
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private static class LocalSearchIsland implements Island {
+
+		private Island island;					// The island
+		private LocalSearch localSearch;		// 2-opt on the candidate edges
+		private City[] cityById;				// City objects indexed by city id
+		private int depth;						// 2-opt moves per tour
+		private int[] row;
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param island the island
+		 * @param tour contains the initial tour
+		 * @param depth 2-opt moves per tour
+		 */
+		public LocalSearchIsland(Island island, TravelingPath tour, int depth){
+			this.island = island;
+			this.depth = depth;
+			ArrayList<City> cityList = tour.getCityList();
+			CityCoordinates coordinates = new CityCoordinates(cityList);
+			int[] ids = new int[cityList.size()];
+			this.cityById = new City[coordinates.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = cityList.get(i).id;
+				cityById[ids[i]] = cityList.get(i);
+			}
+			this.localSearch = new LocalSearch(coordinates, ids, NEIGHBOURS);
+			this.row = new int[ids.length];
+		}
+
+		public void createPopulation(List<TravelingPath> seeds, double seededFraction){
+			island.createPopulation(seeds, seededFraction);
+		}
+
+		/**
+		 * This method runs the genetic algorithm and then improves its best tours
+		 *
+		 * @param gaIterCount number of generations
+		 */
+		public void startGA(int gaIterCount){
+			island.startGA(gaIterCount);
+			AList<TravelingPath> best = island.getBestPopulation(LOCAL_SEARCH_TOURS);
+			ArrayList<TravelingPath> improved = new ArrayList<TravelingPath>();
+			for (int i = 0; i < best.size(); i++) {
+				ArrayList<City> cities = best.get(i).getCityList();
+				for (int j = 0; j < row.length; j++)
+					row[j] = cities.get(j).id;
+				if (localSearch.twoOpt(row, depth) >= 0) continue;
+				ArrayList<City> tour = new ArrayList<City>(row.length);
+				for (int j = 0; j < row.length; j++)
+					tour.add(cityById[row[j]]);
+				improved.add(new TravelingPath(tour));
+			}
+			if (!improved.isEmpty())
+				island.receiveMigratingTours(improved);
+		}
+
+		public void receiveMigratingTours(ArrayList<TravelingPath> migrationPopulation){
+			island.receiveMigratingTours(migrationPopulation);
+		}
+
+		public AList<TravelingPath> getBestPopulation(int migratingRate){
+			return island.getBestPopulation(migratingRate);
+		}
+
+		public void publishTo(EliteArchive archive, int count){
+			island.publishTo(archive, count);
+		}
+
+		public AdaptiveController getController(){
+			return island.getController();
+		}
+
+		public void configure(IslandProfile profile){
+			island.configure(profile);
+		}
+
+		public void shutdown(){
+			island.shutdown();
+		}
+	}
+}
@@ -0,0 +1,18 @@
+/**
+ * Interface ProgressListener receives the progress of a TSPSolver after every epoch
+ * 
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ * 
+ */
+public interface ProgressListener {
+
+	/**
+	 * Called after every epoch of the solver.
+	 * 
+	 * @param epoch number of epochs finished
+	 * @param elapsedMillis milliseconds since the solve started
+	 * @param bestLength length of the best tour found so far
+	 * @return true to continue solving, false to stop after this epoch
+	 */
+	public boolean progress(int epoch, long elapsedMillis, double bestLength);
+}
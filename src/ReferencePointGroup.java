@@ -0,0 +1,16 @@
+/**
+ * Interface ReferencePointGroup is a point group whose optimal tour length is
+ * known, so the quality of a solver can be measured without external instances.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public interface ReferencePointGroup extends PointGroup {
+
+	/**
+	 * Returns the length of the optimal tour through the points of this group
+	 *
+	 * @return optimal tour length
+	 */
+	public double optimum();
+}
@@ -0,0 +1,213 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class RegionPartitioner splits the cities of a large instance into spatial regions,
+ * so that every region can be solved as an independent subproblem
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class RegionPartitioner {
+
+	private ArrayList<City> cityList;	// Cities to be partitioned
+
+	/**
+	 * Parameterized constructor, initializes the partitioner
+	 *
+	 * @param cityList Contains the list of cities
+	 */
+	public RegionPartitioner(ArrayList<City> cityList){
+		this.cityList = cityList;
+	}
+
+	/**
+	 * This method partitions the cities with an adaptive grid. The bounding box of
+	 * the cities is split recursively at the median of its longer side until every
+	 * region holds at most maxRegionSize cities, so dense areas get small cells and
+	 * sparse areas get large ones.
+	 *
+	 * @param maxRegionSize maximum number of cities in a region
+	 * @return list of regions
+	 */
+	public ArrayList<ArrayList<City>> adaptiveGrid(int maxRegionSize){
+		ArrayList<ArrayList<City>> regions = new ArrayList<ArrayList<City>>();
+		ArrayList<City> cities = new ArrayList<City>(cityList);
+		split(cities, 0, cities.size(), Math.max(1, maxRegionSize), regions);
+		return regions;
+	}
+
+	/**
+	 * This method recursively bisects the cities in the range [from, to)
+	 *
+	 * @param cities cities being partitioned, reordered in place
+	 * @param from first index of the range
+	 * @param to index past the end of the range
+	 * @param maxRegionSize maximum number of cities in a region
+	 * @param regions list to which the finished regions are added
+	 */
+	private void split(ArrayList<City> cities, int from, int to, int maxRegionSize,
+			ArrayList<ArrayList<City>> regions){
+		if (to - from <= maxRegionSize) {
+			regions.add(new ArrayList<City>(cities.subList(from, to)));
+			return;
+		}
+		sortAlongLongerSide(cities, from, to);
+		int middle = (from + to) >>> 1;
+		split(cities, from, middle, maxRegionSize, regions);
+		split(cities, middle, to, maxRegionSize, regions);
+	}
+
+	/**
+	 * This method bisects the cities in the range [from, to) like split, but into a
+	 * given number of regions of about equal size
+	 *
+	 * @param cities cities being partitioned, reordered in place
+	 * @param from first index of the range
+	 * @param to index past the end of the range
+	 * @param parts number of regions
+	 * @param regions list to which the finished regions are added
+	 */
+	private void splitInto(ArrayList<City> cities, int from, int to, int parts,
+			ArrayList<ArrayList<City>> regions){
+		if (parts == 1) {
+			regions.add(new ArrayList<City>(cities.subList(from, to)));
+			return;
+		}
+		sortAlongLongerSide(cities, from, to);
+		int half = parts/2;
+		int middle = from + (int) ((long) (to - from)*half/parts);
+		splitInto(cities, from, middle, half, regions);
+		splitInto(cities, middle, to, parts - half, regions);
+	}
+
+	/**
+	 * This method sorts the cities in the range [from, to) along the longer side of
+	 * their bounding box
+	 *
+	 * @param cities cities being partitioned, reordered in place
+	 * @param from first index of the range
+	 * @param to index past the end of the range
+	 */
+	private static void sortAlongLongerSide(ArrayList<City> cities, int from, int to){
+		// Find the bounding box of the range
+		double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = from; i < to; i++) {
+			City city = cities.get(i);
+			if (city.x < minX) minX = city.x;
+			if (city.x > maxX) maxX = city.x;
+			if (city.y < minY) minY = city.y;
+			if (city.y > maxY) maxY = city.y;
+		}
+
+		// Sort along the longer side
+		final boolean alongX = (maxX - minX) >= (maxY - minY);
+		Collections.sort(cities.subList(from, to), new Comparator<City>(){
+			public int compare(City c1, City c2){
+				return alongX ? Double.compare(c1.x, c2.x) : Double.compare(c1.y, c2.y);
+			}
+		});
+	}
+
+	/**
+	 * This method partitions the cities into k clusters using Lloyd's k-means
+	 * algorithm. The initial centroids are those of an adaptive grid of k regions,
+	 * and the cities are assigned to the nearest centroid through a SpatialGrid of
+	 * the centroids, so an iteration takes about O(n) instead of O(n*k). Distances
+	 * are measured with the metric of the job. Empty clusters are dropped from the
+	 * result.
+	 *
+	 * @param k number of clusters
+	 * @param iterations number of k-means iterations
+	 * @return list of regions
+	 */
+	public ArrayList<ArrayList<City>> kMeans(int k, int iterations){
+		int n = cityList.size();
+		k = Math.max(1, Math.min(k, n));
+		double[] sumX = new double[k];
+		double[] sumY = new double[k];
+		double[] sumZ = new double[k];
+		int[] count = new int[k];
+		int[] assignment = new int[n];
+
+		// The cities are points 0 to n-1 and the centroids points n to n+k-1
+		ArrayList<City> points = new ArrayList<City>(n + k);
+		for (int i = 0; i < n; i++) {
+			City city = cityList.get(i);
+			points.add(new City(city.x, city.y, city.z, i));
+		}
+		ArrayList<ArrayList<City>> initial = new ArrayList<ArrayList<City>>();
+		splitInto(new ArrayList<City>(cityList), 0, n, k, initial);
+		int[] centroids = new int[k];
+		for (int c = 0; c < k; c++) {
+			ArrayList<City> region = initial.get(c);
+			double x = 0, y = 0, z = 0;
+			for (int i = 0; i < region.size(); i++) {
+				x += region.get(i).x;
+				y += region.get(i).y;
+				z += region.get(i).z;
+			}
+			points.add(new City(x/region.size(), y/region.size(), z/region.size(), n + c));
+			centroids[c] = n + c;
+		}
+		CityCoordinates coordinates = new CityCoordinates(points);
+		double[] xs = coordinates.getXs(), ys = coordinates.getYs(), zs = coordinates.getZs();
+
+		for (int iter = 0; iter < iterations; iter++) {
+			// Assign every city to its nearest centroid
+			SpatialGrid grid = new SpatialGrid(coordinates, centroids, 2);
+			boolean changed = false;
+			for (int i = 0; i < n; i++) {
+				int nearest = grid.nearest(i) - n;
+				if (iter == 0 || assignment[i] != nearest) changed = true;
+				assignment[i] = nearest;
+			}
+			if (!changed) break;
+
+			// Move every centroid to the mean of its cities
+			for (int c = 0; c < k; c++) {
+				sumX[c] = 0; sumY[c] = 0; sumZ[c] = 0; count[c] = 0;
+			}
+			for (int i = 0; i < n; i++) {
+				sumX[assignment[i]] += xs[i];
+				sumY[assignment[i]] += ys[i];
+				sumZ[assignment[i]] += zs[i];
+				count[assignment[i]]++;
+			}
+			for (int c = 0; c < k; c++) {
+				if (count[c] > 0) {
+					xs[n + c] = sumX[c]/count[c];
+					ys[n + c] = sumY[c]/count[c];
+					zs[n + c] = sumZ[c]/count[c];
+				}
+			}
+		}
+
+		ArrayList<ArrayList<City>> regions = new ArrayList<ArrayList<City>>();
+		for (int c = 0; c < k; c++)
+			regions.add(new ArrayList<City>());
+		for (int i = 0; i < n; i++)
+			regions.get(assignment[i]).add(cityList.get(i));
+		for (int c = k - 1; c >= 0; c--)
+			if (regions.get(c).isEmpty()) regions.remove(c);
+		return regions;
+	}
+
+	/**
+	 * This method returns the centroid of a region
+	 *
+	 * @param region cities of the region
+	 * @return city located at the centroid, with id -1
+	 */
+	public static City centroid(List<City> region){
+		double x = 0, y = 0;
+		for (int i = 0; i < region.size(); i++) {
+			x += region.get(i).x;
+			y += region.get(i).y;
+		}
+		return new City(x/region.size(), y/region.size(), -1);
+	}
+}
@@ -0,0 +1,273 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class RegressionSuite measures the solution quality of the genetic algorithm on
+ * synthetic instances whose optimal tour is known: circles, even grids and random
+ * convex polygons. Every instance is solved with TSPSolver for a fixed number of
+ * epochs, and the suite reports the gap of the best tour to the optimum and the
+ * time until the best tour first came within the target gap.
+ * <P>
+ * With a baselines file the suite fails, exit status 1, if an instance ends with a
+ * larger gap than its baseline plus the gap tolerance, or reaches the target gap
+ * later than its baseline time plus the time tolerance, or no longer reaches it.
+ * The seed is fixed, so the gaps are reproducible on one machine for the same
+ * settings; times depend on the machine, so baselines are kept per machine.
+ * <P>
+ * Before the instances the suite checks migration on small populations: the list
+ * island, alone and in the round robin portfolio, at odd population sizes of 3 to
+ * 7 with 2 and 4 islands. A run that does not finish within a minute fails.
+ * <P>
+ * Usage: java RegressionSuite [{@literal <name>=<value>} ...] <br>
+ * baseline={@literal <file>} = Compare with the baselines in the file. <br>
+ * save={@literal <file>} = Write the results to the file as the new baselines. <br>
+ * target={@literal <g>} = Gap in percent for the time to target (default 2). <br>
+ * gaptolerance={@literal <g>} = Allowed increase of the gap, in percent points (default 0.5). <br>
+ * timetolerance={@literal <f>} = Allowed relative increase of the time to target (default 0.5). <br>
+ * epochs={@literal <e>} = Epochs per instance (default 40). <br>
+ * generations={@literal <g>} = Generations per epoch (default 50). <br>
+ * populationsize={@literal <p>} = Population size of every island (default 100). <br>
+ * islands={@literal <n>} = Islands per instance (default 4). <br>
+ * threads={@literal <k>} = Threads per instance (default 1). <br>
+ * population=list|arena|offheap|steady|cellular = Kind of island (default list). <br>
+ * portfolio=roundrobin|{@literal <file>} = Give the islands the profiles of a portfolio, see IslandProfile. <br>
+ * seed={@literal <s>} = Seed of the solver (default 1).
+ * <P>
+ * A baselines file has one line {@literal "<name> <gap> <millis>"} per instance, the
+ * time being -1 if the target was not reached.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class RegressionSuite {
+
+	/**
+	 * Suite main program.
+	 *
+	 * @param args Command line arguments
+	 * @throws Exception Thrown if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws Exception {
+		SolverOptions options;
+		try {
+			options = new SolverOptions(args, 0);
+			if( !IslandFactory.isKind(options.getString("population", "list")) )
+				throw new IllegalArgumentException("Unknown population");
+			options.getDouble("target", 0);
+			options.getDouble("gaptolerance", 0);
+			options.getDouble("timetolerance", 0);
+			options.getInt("epochs", 0);
+			options.getInt("generations", 0);
+			options.getInt("populationsize", 0);
+			options.getInt("islands", 0);
+			options.getInt("threads", 0);
+			options.getLong("seed", 0);
+			if( options.contains("portfolio") )
+				IslandProfile.load(options.getString("portfolio", ""));
+		}
+		catch( IllegalArgumentException e ) {
+			usage();
+			return;
+		}
+		List<IslandProfile> portfolio = options.contains("portfolio") ?
+				IslandProfile.load(options.getString("portfolio", "")) : null;
+		double target = options.getDouble("target", 2);
+		double gapTolerance = options.getDouble("gaptolerance", 0.5);
+		double timeTolerance = options.getDouble("timetolerance", 0.5);
+		Map<String, double[]> baselines = options.contains("baseline") ?
+				readBaselines(options.getString("baseline", "")) : new HashMap<String, double[]>();
+
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<ReferencePointGroup> instances = new ArrayList<ReferencePointGroup>();
+		addInstances(names, instances);
+
+		PrintWriter save = options.contains("save") ? new PrintWriter(options.getString("save", "")) : null;
+		int failures = checkMigration();
+		System.out.println(String.format("%-14s %6s %12s %12s %8s %10s %8s  %s",
+				"instance", "N", "optimum", "best", "gap%", "ttt(ms)", "time", "status"));
+		for( int i = 0; i < instances.size(); i++ ) {
+			ReferencePointGroup pg = instances.get(i);
+			final double optimum = pg.optimum();
+			final double targetLength = optimum*(1 + target/100);
+			final long[] timeToTarget = { -1 };
+			TSPResult result = new TSPSolver.Builder()
+					.pointGroup(pg)
+					.populationSize(options.getInt("populationsize", 100))
+					.generationsPerEpoch(options.getInt("generations", 50))
+					.maxEpochs(options.getInt("epochs", 40))
+					.islands(options.getInt("islands", 4))
+					.parallelism(options.getInt("threads", 1))
+					.populationKind(options.getString("population", "list"))
+					.portfolio(portfolio)
+					.seed(options.getLong("seed", 1))
+					.progressListener(new ProgressListener(){
+						public boolean progress(int epoch, long elapsedMillis, double bestLength){
+							if( timeToTarget[0] < 0 && bestLength <= targetLength )
+								timeToTarget[0] = elapsedMillis;
+							return true;
+						}
+					})
+					.build()
+					.solve();
+			// A tour equal to the optimum can come out a rounding error shorter
+			double gap = Math.max(0, HeldKarpBound.gap(result.getLength(), optimum));
+
+			// Compare with the baseline
+			String status = "ok";
+			double[] baseline = baselines.get(names.get(i));
+			if( baseline == null ) {
+				status = "no baseline";
+			}
+			else if( gap > baseline[0] + gapTolerance ) {
+				status = String.format("FAIL gap %.3f > %.3f", gap, baseline[0] + gapTolerance);
+			}
+			else if( baseline[1] >= 0 && timeToTarget[0] < 0 ) {
+				status = "FAIL target not reached";
+			}
+			else if( baseline[1] >= 0 && timeToTarget[0] > baseline[1]*(1 + timeTolerance) + 100 ) {
+				status = String.format("FAIL time %d > %.0f", timeToTarget[0], baseline[1]*(1 + timeTolerance) + 100);
+			}
+			if( status.startsWith("FAIL") ) failures++;
+
+			System.out.println(String.format("%-14s %6d %12.3f %12.3f %8.3f %10s %8d  %s",
+					names.get(i), pg.N(), optimum, result.getLength(), gap,
+					timeToTarget[0] < 0 ? "-" : Long.toString(timeToTarget[0]), result.getElapsedMillis(), status));
+			if( save != null )
+				save.println(names.get(i) + " " + gap + " " + timeToTarget[0]);
+		}
+		if( save != null ) save.close();
+
+		if( failures > 0 ) {
+			System.out.println(failures + " checks and instances regressed");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * This method checks that islands of small populations survive migration. Every
+	 * run is made on a thread of its own and fails if it does not finish in time.
+	 *
+	 * @return number of failed runs
+	 * @throws IOException Thrown if the portfolio cannot be made
+	 * @throws InterruptedException Thrown if the suite is interrupted
+	 */
+	private static int checkMigration() throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				// A run that hangs must not keep the suite from exiting
+				Thread thread = new Thread(task);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		List<IslandProfile> roundRobin = IslandProfile.load("roundrobin");
+		int failures = 0;
+		for( int portfolio = 0; portfolio < 2; portfolio++ ) {
+			for( int populationSize = 3; populationSize <= 7; populationSize += 2 ) {
+				for( int islands = 2; islands <= 4; islands += 2 ) {
+					final TSPSolver solver = new TSPSolver.Builder()
+							.pointGroup(new RandomPointGroup(200, 1000, 7))
+							.populationSize(populationSize)
+							.generationsPerEpoch(20)
+							.maxEpochs(10)
+							.islands(islands)
+							.populationKind("list")
+							.portfolio(portfolio == 0 ? null : roundRobin)
+							.seed(7)
+							.build();
+					Future<TSPResult> run = executor.submit(new Callable<TSPResult>(){
+						public TSPResult call(){
+							return solver.solve();
+						}
+					});
+					String status = "ok";
+					try {
+						run.get(60, TimeUnit.SECONDS);
+					}
+					catch( TimeoutException e ) {
+						status = "FAIL no result within 60 s";
+					}
+					catch( ExecutionException e ) {
+						status = "FAIL " + e.getCause();
+					}
+					if( status.startsWith("FAIL") ) failures++;
+					System.out.println(String.format("migration list%s population %d islands %d  %s",
+							portfolio == 0 ? "" : " roundrobin", populationSize, islands, status));
+				}
+			}
+		}
+		executor.shutdownNow();
+		return failures;
+	}
+
+	/**
+	 * This method adds the instances of the suite. Every instance has a fixed seed,
+	 * so the suite always solves the same instances.
+	 *
+	 * @param names receives the names of the instances
+	 * @param instances receives the instances
+	 */
+	private static void addInstances(ArrayList<String> names, ArrayList<ReferencePointGroup> instances){
+		names.add("circle-100");
+		instances.add(new CirclePointGroup(100, 1000, 1));
+		names.add("circle-500");
+		instances.add(new CirclePointGroup(500, 1000, 2));
+		names.add("grid-10x10");
+		instances.add(new GridPointGroup(10, 10, 10, 3));
+		names.add("grid-16x25");
+		instances.add(new GridPointGroup(16, 25, 10, 4));
+		names.add("convex-200");
+		instances.add(new ConvexPointGroup(200, 1000, 5));
+		names.add("convex-500");
+		instances.add(new ConvexPointGroup(500, 1000, 6));
+	}
+
+	/**
+	 * This method reads a baselines file
+	 *
+	 * @param file name of the file
+	 * @return gap and time to target of every instance, by name
+	 * @throws IOException Thrown if the file cannot be read
+	 */
+	private static Map<String, double[]> readBaselines(String file) throws IOException {
+		Map<String, double[]> baselines = new HashMap<String, double[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while( ( line = reader.readLine() ) != null ) {
+				String[] fields = line.trim().split("\\s+");
+				if( fields.length < 3 ) continue;
+				baselines.put(fields[0], new double[] { Double.parseDouble(fields[1]), Double.parseDouble(fields[2]) });
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return baselines;
+	}
+
+	/**
+	 * Print a usage message and exit.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java RegressionSuite [baseline=<file>] [save=<file>] [target=<g>] [gaptolerance=<g>]");
+		System.err.println("       [timetolerance=<f>] [epochs=<e>] [generations=<g>] [populationsize=<p>] [islands=<n>]");
+		System.err.println("       [threads=<k>] [population=list|arena|offheap|steady|cellular] [portfolio=roundrobin|<file>]");
+		System.err.println("       [seed=<s>]");
+		System.exit(1);
+	}
+}
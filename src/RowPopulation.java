@@ -0,0 +1,379 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import edu.rit.util.AList;
+
+/**
+ * Class RowPopulation is the base of the islands that keep their tours as rows of
+ * city ids in a PopulationArena. It creates the initial population, evaluates and
+ * admits rows, and provides the crossover and the mutation operators on
+ * rows; the subclasses decide how parents are chosen and how children replace
+ * other tours. TravelingPath objects are only made for the tours that leave the
+ * island.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public abstract class RowPopulation implements Island {
+
+	protected int populationSize;				// To hold the population size
+	protected int citySize;						// Number of cities of a tour
+	protected int[] cityIds;					// Ids of the cities, in the order of the initial tour
+	protected City[] cityById;					// City objects indexed by city id
+	protected CityCoordinates coordinates;		// Coordinates of the cities indexed by city id
+	protected Random prng;						// pseudorandom number generator of this population
+	protected TourHash tourHash;				// Computes the edge hash of the tours
+	protected TourHashTable members;			// Hashes of the tours in the population
+	protected TourHashTable lengthCache;		// Lengths of the tours evaluated recently, by hash
+	protected AdaptiveController controller = new AdaptiveController(); // Tunes the rates of this island
+	protected PopulationArena current;			// The tours of the population
+
+	// Scratch arrays
+	protected int[] order;						// Tour indexes sorted by length
+	protected int[] row1, row2, child1, child2;	// Tour rows
+	protected TourOperators operators;			// Crossover and mutation on the rows
+
+	/**
+	 * Parameterized constructor to initialize tour, population arena and the
+	 * pseudorandom number generator
+	 *
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size
+	 * @param prng pseudorandom number generator, owned by this population
+	 * @param offHeap true to keep the rows outside the Java heap
+	 * @param capacity maximum number of tours in the arena
+	 */
+	protected RowPopulation(TravelingPath tour, int populationSize, Random prng, boolean offHeap, int capacity){
+		ArrayList<City> cityList = tour.getCityList();
+		this.populationSize = populationSize;
+		this.citySize = cityList.size();
+		this.prng = prng;
+		this.coordinates = new CityCoordinates(cityList);
+		this.cityById = new City[coordinates.size()];
+		mapCities(cityList);
+		this.tourHash = TourHash.shared(coordinates.size());
+		this.members = new TourHashTable(2*populationSize);
+		this.lengthCache = new TourHashTable(8*populationSize);
+		this.current = offHeap ? PopulationArena.offHeap(capacity, citySize) : PopulationArena.onHeap(capacity, citySize);
+		this.order = new int[capacity];
+		this.operators = new TourOperators(citySize, coordinates.size(), prng);
+		this.row1 = new int[citySize];
+		this.row2 = new int[citySize];
+		this.child1 = new int[citySize];
+		this.child2 = new int[citySize];
+	}
+
+	/**
+	 * This method starts the population over on another instance, with a new random
+	 * stream and adaptive controller. The coordinates, the arena, the hash tables
+	 * and the scratch arrays are reused, and only grow for an instance with more
+	 * cities than any before. The crossover operator is kept.
+	 *
+	 * @param tour contains the initial tour of the instance
+	 * @param prng pseudorandom number generator, owned by this population
+	 */
+	protected void reset(TravelingPath tour, Random prng){
+		ArrayList<City> cityList = tour.getCityList();
+		this.citySize = cityList.size();
+		this.prng = prng;
+		coordinates.load(cityList);
+		if (cityById.length < coordinates.size()) cityById = new City[coordinates.size()];
+		mapCities(cityList);
+		this.tourHash = TourHash.shared(coordinates.size());
+
+		// The hashes of another instance mean other tours
+		members.clear();
+		lengthCache.clear();
+		controller = new AdaptiveController();
+		current = current.reuse(citySize);
+		operators.reset(citySize, coordinates.size(), prng);
+		if (row1.length < citySize) {
+			this.row1 = new int[citySize];
+			this.row2 = new int[citySize];
+			this.child1 = new int[citySize];
+			this.child2 = new int[citySize];
+		}
+	}
+
+	/**
+	 * This method records the ids of the cities, in the order of the initial tour,
+	 * and the city of every id
+	 *
+	 * @param cityList cities of the initial tour
+	 */
+	private void mapCities(List<City> cityList){
+		this.cityIds = new int[citySize];
+		for (int i = 0; i < citySize; i++) {
+			cityIds[i] = cityList.get(i).id;
+			cityById[cityIds[i]] = cityList.get(i);
+		}
+	}
+
+	/**
+	 * This method creates the initial population from seed tours. The seeds are kept
+	 * and perturbed copies of them, a few sections reversed, fill the given fraction
+	 * of the population. The rest are nearest neighbour tours, at most 10% of the
+	 * population, and random tours.
+	 *
+	 * @param seeds tours of the cities of this population
+	 * @param seededFraction fraction of the population made from the seeds, 0 to 1
+	 */
+	public void createPopulation(List<TravelingPath> seeds, double seededFraction){
+		for (int i = 0; i < seeds.size() && current.size < populationSize; i++) {
+			toRow(seeds.get(i), row1);
+			append(row1);
+		}
+
+		// Perturbed copies of the seeds, taken in turn
+		int seededSize = seeds.isEmpty() ? 0 : (int) Math.ceil(seededFraction*populationSize);
+		for (int attempts = 0; current.size < seededSize && attempts < 10*populationSize; attempts++) {
+			toRow(seeds.get(attempts % seeds.size()), row1);
+			int reversals = 1 + prng.nextInt(3);
+			for (int r = 0; r < reversals; r++) {
+				int pivot1 = prng.nextInt(citySize);
+				int pivot2 = prng.nextInt(citySize);
+				TourOperators.reverse(row1, Math.min(pivot1, pivot2), Math.max(pivot1, pivot2));
+			}
+			append(row1);
+		}
+
+		// Nearest neighbour tours from different start cities
+		int nnSize = Math.min(Math.min(populationSize/10, citySize), populationSize - current.size);
+		for (int i = 0; i < nnSize; i++) {
+			nearestNeighbourTour(cityIds[i], row1);
+			append(row1);
+		}
+
+		// Random tours. Tiny instances have fewer distinct tours than the population
+		// size, so give up after a bounded number of attempts.
+		for (int attempts = 0; current.size < populationSize && attempts < 10*populationSize; attempts++) {
+			System.arraycopy(cityIds, 0, row1, 0, citySize);
+			for (int i = citySize - 1; i > 0; i--) {
+				int j = prng.nextInt(i + 1);
+				int t = row1[i];
+				row1[i] = row1[j];
+				row1[j] = t;
+			}
+			append(row1);
+		}
+	}
+
+	/**
+	 * This method builds a nearest neighbour tour, looking the neighbours up in a grid
+	 *
+	 * @param start id of the first city
+	 * @param row array receiving the tour
+	 */
+	private void nearestNeighbourTour(int start, int[] row){
+		SpatialGrid grid = new SpatialGrid(coordinates, cityIds, 2);
+		int city = start;
+		for (int i = 0; i < citySize; i++) {
+			row[i] = city;
+			grid.remove(city);
+			if (grid.size() > 0) city = grid.nearest(city);
+		}
+	}
+
+	/**
+	 * This method receives the tour migrated from the peer node
+	 *
+	 * @param migrationPopulation Contains the migrated population
+	 */
+	public void receiveMigratingTours(ArrayList<TravelingPath> migrationPopulation){
+		for (int i = 0; i < Math.min(10, migrationPopulation.size()); i++) {
+			toRow(migrationPopulation.get(i), row1);
+			append(row1);
+		}
+	}
+
+	/**
+	 * This method returns the fitter population depending on the migrating rate
+	 *
+	 * @param migratingRate Tells the function how many population need to be extracted
+	 * @return Returns the population that needs to be migrated
+	 */
+	public AList<TravelingPath> getBestPopulation(int migratingRate){
+		sortByLength();
+		AList<TravelingPath> migratingList = new AList<TravelingPath>();
+		for (int i = 0; i < Math.min(migratingRate, current.size); i++)
+			migratingList.addLast(toPath(order[i]));
+		return migratingList;
+	}
+
+	/**
+	 * This method offers the best tours of this population to the elite archive of
+	 * the node. Tours are copied only if they enter the archive.
+	 *
+	 * @param archive the elite archive
+	 * @param count maximum number of tours offered
+	 */
+	public void publishTo(EliteArchive archive, int count){
+		sortByLength();
+		for (int i = 0; i < Math.min(count, current.size); i++) {
+			if (!archive.accepts(current.lengths[order[i]])) break;
+			archive.offer(toPath(order[i]));
+		}
+	}
+
+	/**
+	 * This method returns the adaptive controller of this population
+	 *
+	 * @return adaptive controller
+	 */
+	public AdaptiveController getController(){
+		return controller;
+	}
+
+	/**
+	 * This method configures the population from a profile of a portfolio
+	 *
+	 * @param profile the profile
+	 */
+	public void configure(IslandProfile profile){
+		controller = profile.createController();
+		operators.setCrossover(profile.getCrossover());
+	}
+
+	/**
+	 * This method does nothing, the generations run on the thread that calls startGA
+	 * and there is no thread to stop; CellularPopulation stops its pool here
+	 */
+	public void shutdown(){
+
+	}
+
+	/**
+	 * Returns the number of tours in the population
+	 *
+	 * @return number of tours
+	 */
+	public int size(){
+		return current.size;
+	}
+
+	/**
+	 * This method adds a tour to the arena, unless it is already in the population
+	 * or the arena is full
+	 *
+	 * @param row the tour
+	 * @return true if the tour was added
+	 */
+	protected boolean append(int[] row){
+		if (current.size == current.getCapacity()) return false;
+		long hash = tourHash.hash(row, 0, citySize);
+		if (members.contains(hash)) return false;
+		double length = lengthOf(hash, row);
+		members.put(hash, length);
+		int tour = current.size++;
+		current.write(tour, row);
+		current.hashes[tour] = hash;
+		current.lengths[tour] = length;
+		return true;
+	}
+
+	/**
+	 * This method returns the length of a tour, from the cache if possible
+	 *
+	 * @param hash hash of the tour
+	 * @param row the tour
+	 * @return length of the tour
+	 */
+	protected double lengthOf(long hash, int[] row){
+		double length = lengthCache.get(hash);
+		if (Double.isNaN(length)) {
+			length = coordinates.tourLength(row, 0, citySize);
+			lengthCache.put(hash, length);
+		}
+		return length;
+	}
+
+	/**
+	 * This method keeps the length cache bounded, it only has to remember the
+	 * recent generations
+	 */
+	protected void trimLengthCache(){
+		if (lengthCache.size() > 64*populationSize) lengthCache.clear();
+	}
+
+	/**
+	 * This method performs the crossover of two tours into child1 and child2, by
+	 * default the ordered crossover
+	 *
+	 * @param parent1 index of the first parent
+	 * @param parent2 index of the second parent
+	 */
+	protected void crossover(int parent1, int parent2){
+		current.read(parent1, row1);
+		current.read(parent2, row2);
+		operators.crossover(row1, row2, child1, child2);
+	}
+
+	/**
+	 * This method applies the mutation operator picked by the adaptive controller
+	 * to a row
+	 *
+	 * @param row the tour
+	 * @return the operator applied
+	 */
+	protected int mutate(int[] row){
+		return operators.mutate(row, controller);
+	}
+
+	/**
+	 * This method sorts the indexes of the tours by length into order, by a shell
+	 * sort which needs no extra memory
+	 */
+	protected void sortByLength(){
+		int size = current.size;
+		double[] lengths = current.lengths;
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		int gap = 1;
+		while (gap < size/3) gap = 3*gap + 1;
+		for (; gap > 0; gap /= 3) {
+			for (int i = gap; i < size; i++) {
+				int tour = order[i];
+				int j = i;
+				while (j >= gap && lengths[order[j - gap]] > lengths[tour]) {
+					order[j] = order[j - gap];
+					j -= gap;
+				}
+				order[j] = tour;
+			}
+		}
+	}
+
+	/**
+	 * This method copies the city ids of a tour into a row
+	 *
+	 * @param path the tour
+	 * @param row array receiving the city ids
+	 */
+	protected void toRow(TravelingPath path, int[] row){
+		ArrayList<City> cityList = path.getCityList();
+		for (int i = 0; i < citySize; i++)
+			row[i] = cityList.get(i).id;
+	}
+
+	/**
+	 * This method makes a TravelingPath of a tour of the arena
+	 *
+	 * @param tour index of the tour
+	 * @return the tour with its length and hash
+	 */
+	protected TravelingPath toPath(int tour){
+		int[] row = new int[citySize];
+		current.read(tour, row);
+		City[] cities = new City[citySize];
+		for (int i = 0; i < citySize; i++)
+			cities[i] = cityById[row[i]];
+		ArrayList<City> cityList = new ArrayList<City>(citySize);
+		Collections.addAll(cityList, cities);
+		TravelingPath path = new TravelingPath(cityList);
+		path.setEuclideanDistance(current.lengths[tour]);
+		path.setHash(current.hashes[tour]);
+		return path;
+	}
+}
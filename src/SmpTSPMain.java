@@ -1,6 +1,9 @@
 
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import edu.rit.io.InStream;
 import edu.rit.io.OutStream;
@@ -23,6 +26,29 @@ import edu.rit.util.Instance;
  * {@literal <populationsize>} = The size of the population.
  * {@literal <GAiterations>} = The iterations required for genetic algorithm to run.
  * {@literal <MigrationCount>} = The number of migrations of best tours among Nodes in a cluster.
+ * <P>
+ * Optional arguments of the form {@literal <name>=<value>} may follow: <br>
+ * regionsize={@literal <m>} = Solve the instance by spatial decomposition into regions of about m cities. <br>
+ * partition=grid|kmeans = How the cities are partitioned into regions (default grid). <br>
+ * window={@literal <w>} = Positions on each side of a region seam that are re-optimised (default 50). <br>
+ * seed={@literal <s>} = Seed from which every random stream of the job is derived (default: clock). <br>
+ * islands={@literal <n>} = Run n islands per worker on a work-stealing pool instead of one island per core. <br>
+ * warmtour={@literal <file>} = Start from the best tour of a previous run, repaired for the cities that changed. <br>
+ * seeding={@literal <s>,<s>...} = Seed the populations with tours built by hilbert, greedy and/or christofides. <br>
+ * seedfraction={@literal <f>} = Fraction of every population made from the seed tours (default 0.5). <br>
+ * bound={@literal <i>} = Compute the Held-Karp lower bound with i subgradient iterations, 0 to skip it (default 100 if gap is given, else no bound); never with regionsize. Above 1000 cities the bound is an estimate, printed as such. <br>
+ * lowerbound={@literal <L>} = Use a known lower bound, e.g. the optimum, instead of computing one. <br>
+ * gap={@literal <g>} = Stop all workers once the best tour is within g percent of the lower bound; an estimated bound does not stop them. <br>
+ * population=list|arena|offheap|steady|cellular = How the islands store and breed their tours (default list), see IslandFactory. A cellular island of islands=1 updates its grid on all the cores of the node. <br>
+ * engine=ga|aco|sa = Solve with the genetic algorithm, with a MAX-MIN ant colony per node, whose ants are the population and whose iterations are the GA iterations, or with a parallel tempering annealer per node, one replica per core and one sweep per GA iteration (default ga). <br>
+ * polish={@literal <k>} = Polish the best tours by exact dynamic programming on windows of k cities, 2 to 16, 0 for none (default 0). <br>
+ * backbone={@literal <f>} = Once a fraction f of the edges is common to the elite tours of a node, contract those edges and continue on the reduced instance; islands=<n> only (default 0, no reduction). <br>
+ * metric=EUC_2D|EUC_3D|CEIL_2D|MAN_2D|GEO|EXPLICIT = How distances are measured, see DistanceMetrics (default EUC_2D). <br>
+ * matrix={@literal <file>} = The N x N distance matrix of metric=EXPLICIT, whose rows follow the points of the point group. <br>
+ * renumber=none|hilbert = Renumber the cities along a Hilbert curve, so that arrays indexed by city id are read almost in order; the printed and saved tours keep the original ids (default none). <br>
+ * budget={@literal <s>} = Stop all workers at the first migration after s seconds, so engines can be compared under the same time budget. <br>
+ * portfolio=roundrobin|{@literal <file>} = Give the islands different profiles, the built-in ones or those of a file, see IslandProfile. <br>
+ * savetour={@literal <file>} = Write the best tour to a file that can be used as warmtour of a later run.
  * 
  * @author Sahil Jasrotia, Lokesh Agrawal
  * 
@@ -36,6 +62,8 @@ public class SmpTSPMain extends Job {
 	private TravelingPath initTour;
 	PointGroup pg;		
 	private int numCities;
+	private SolverOptions options;
+	private int[] originalIds;		// Id of every city before the renumbering, null if not renumbered
 	
 	/**
 	 * Job main program.
@@ -44,23 +72,54 @@ public class SmpTSPMain extends Job {
 				
 		try{
 			// Raise error if insufficient arguments.
-			if(args.length != 4)
+			if(args.length < 4)
 				usage();
 			
 			// verify parameters
 			checkParameters(args);
+			options = new SolverOptions(args, 4);
+			selectMetric(options);
+			
+			// Every random stream of the job is derived from one seed, so a run
+			// can be repeated exactly by passing the same seed.
+			if( !options.contains("seed") )
+				options.set("seed", Long.toString(System.nanoTime()));
 						
+			// The tasks get the profiles of the portfolio themselves, not the name of a file.
+			if( options.contains("portfolio") )
+				options.set("portfolio", IslandProfile.toString(IslandProfile.load(options.getString("portfolio", ""))));
+			
 			// Create an intial tour.
 			createTravellingPath(args[0]);
+			
+			// The tasks that print the result map the ids back.
+			if( originalIds != null )
+				putTuple( new IdTuple(originalIds) );
+			
+			// The lower bound tells how far the result is from optimal at most. It is only
+			// computed on request, it runs on one core of the job process. Above 
+			// HeldKarpBound.DENSE_LIMIT cities it is an estimate, which is printed but
+			// never stops the workers.
+			if( !options.contains("lowerbound") && !options.contains("regionsize") 
+					&& ( options.contains("bound") || options.contains("gap") ) && options.getInt("bound", 100) > 0 ) {
+				double lowerBound = HeldKarpBound.of(initTour.getCityList(), options.getInt("bound", 100));
+				options.set(HeldKarpBound.isExact(numCities) ? "lowerbound" : "boundestimate", Double.toString(lowerBound));
+			}
+			
+			// Large instances are split into regions which are solved independently.
+			if( options.contains("regionsize") ) {
+				decompose(args);
+				return;
+			}
 						
 			// put the initial tour into the tuple space.
 			putTuple( new ObjectTuple<TravelingPath>(initTour) );			
 			
 			// Set up a task group of K worker tasks.
-			rule().task(workers(), WorkerTask.class).args(Integer.toString(workers()),args[1],args[2],args[3]);
+			rule().task(workers(), WorkerTask.class).args(options.appendTo(Integer.toString(workers()),args[1],args[2],args[3]));
 			
 			// Set up reduction task.
-			rule().atFinish().task(ReduceTask.class).runInJobProcess().args();
+			rule().atFinish().task(ReduceTask.class).runInJobProcess().args(options.toArgs());
 		}
 		catch(Exception e){
 			usage();
@@ -79,6 +138,12 @@ public class SmpTSPMain extends Job {
 		System.err.println("<populationsize> The size of the population.");
 		System.err.println("<GAiterations> Number of genetic algorithm iterations.");		
 		System.err.println("<MigrationCount> The number of migrations of best tours among Nodes in a cluster.");
+		System.err.println("Options: regionsize=<m> partition=grid|kmeans window=<w> seed=<s> islands=<n>");
+		System.err.println("         warmtour=<file> savetour=<file> seeding=hilbert,greedy,christofides seedfraction=<f>");
+		System.err.println("         bound=<i> lowerbound=<L> gap=<g> population=list|arena|offheap|steady|cellular");
+		System.err.println("         portfolio=roundrobin|<file> engine=ga|aco|sa budget=<s> polish=<k>");
+		System.err.println("         backbone=<f> metric=EUC_2D|EUC_3D|CEIL_2D|MAN_2D|GEO|EXPLICIT matrix=<file>");
+		System.err.println("         renumber=none|hilbert");
 		terminate(1);
 	}
 	
@@ -93,6 +158,107 @@ public class SmpTSPMain extends Job {
 		Integer.parseInt(args[1]);
 		Integer.parseInt(args[2]);
 		Integer.parseInt(args[3]);
+		SolverOptions options = new SolverOptions(args, 4);
+		if( options.contains("regionsize") && options.getInt("regionsize", 0) <= 0 )
+			throw new IllegalArgumentException("regionsize must be positive");
+		options.getInt("window", 0);
+		options.getLong("seed", 0);
+		options.getInt("islands", 0);
+		if( options.contains("seeding") ) {
+			for( String strategy : options.getString("seeding", "").split(",") ) {
+				if( !TourConstruction.isStrategy(strategy) )
+					throw new IllegalArgumentException("Unknown seeding " + strategy);
+			}
+		}
+		double seedFraction = options.getDouble("seedfraction", 0.5);
+		if( seedFraction < 0 || seedFraction > 1 )
+			throw new IllegalArgumentException("seedfraction must be between 0 and 1");
+		options.getInt("bound", 0);
+		options.getDouble("lowerbound", 0);
+		if( options.getDouble("gap", 0) < 0 )
+			throw new IllegalArgumentException("gap must not be negative");
+		int polish = options.getInt("polish", 0);
+		if( polish != 0 && ( polish < 2 || polish > WindowOptimiser.MAX_WINDOW ) )
+			throw new IllegalArgumentException("polish must be 0 or between 2 and " + WindowOptimiser.MAX_WINDOW);
+		double backbone = options.getDouble("backbone", 0);
+		if( backbone < 0 || backbone > 1 )
+			throw new IllegalArgumentException("backbone must be between 0 and 1");
+		if( options.getDouble("budget", 0) < 0 )
+			throw new IllegalArgumentException("budget must not be negative");
+		String metric = options.getString("metric", "EUC_2D");
+		if( !DistanceMetrics.isMetric(metric) )
+			throw new IllegalArgumentException("Unknown metric " + metric);
+		if( metric.equals("EXPLICIT") && !options.contains("matrix") )
+			throw new IllegalArgumentException("metric=EXPLICIT needs matrix=<file>");
+		if( metric.equals("EXPLICIT") && options.contains("regionsize") )
+			throw new IllegalArgumentException("regionsize needs coordinates, not an explicit matrix");
+		String renumber = options.getString("renumber", "none");
+		if( !renumber.equals("none") && !renumber.equals("hilbert") )
+			throw new IllegalArgumentException("Unknown renumbering " + renumber);
+		if( metric.equals("EXPLICIT") && renumber.equals("hilbert") )
+			throw new IllegalArgumentException("renumber=hilbert needs coordinates, not an explicit matrix");
+		if( !IslandFactory.isKind(options.getString("population", "list")) )
+			throw new IllegalArgumentException("Unknown population " + options.getString("population", ""));
+		String engine = options.getString("engine", "ga");
+		if( !engine.equals("ga") && !engine.equals("aco") && !engine.equals("sa") )
+			throw new IllegalArgumentException("Unknown engine " + options.getString("engine", ""));
+		if( options.contains("portfolio") && options.getString("portfolio", "").indexOf(':') >= 0 )
+			IslandProfile.parse(options.getString("portfolio", ""));
+	}
+	
+	/**
+	 * This method builds the seed tours of the initial populations: the warm start 
+	 * tour if there is one, else the tours of the seeding strategies, built in parallel.
+	 * 
+	 * @param options the options of the job
+	 * @param tour the initial tour
+	 * @param threads number of threads building the tours
+	 * @return the seed tours, empty if the populations are not seeded
+	 */
+	private static ArrayList<TravelingPath> createSeeds(SolverOptions options, TravelingPath tour, int threads){
+		ArrayList<TravelingPath> seeds = new ArrayList<TravelingPath>();
+		if( options.contains("warmtour") )
+			seeds.add(tour);
+		else if( options.contains("seeding") )
+			seeds = TourConstruction.buildSeeds(Arrays.asList(options.getString("seeding", "").split(",")), tour, threads);
+		return seeds;
+	}
+	
+	/**
+	 * This method selects the distance metric of the metric option in the process
+	 * of the job or of a task, before any tour is measured
+	 * 
+	 * @param options the options of the job
+	 * @throws IOException Thrown if the distance matrix cannot be read
+	 */
+	private static void selectMetric(SolverOptions options) throws IOException {
+		DistanceMetrics.select(options.getString("metric", "EUC_2D"), options.getString("matrix", null));
+	}
+	
+	/**
+	 * Returns the fraction of every initial population made from the seed tours
+	 * 
+	 * @param options the options of the job
+	 * @return the fraction, 1 for a warm start
+	 */
+	private static double seedFraction(SolverOptions options){
+		return options.contains("warmtour") ? 1 : options.getDouble("seedfraction", 0.5);
+	}
+	
+	/**
+	 * Returns the factory of the islands chosen by the population option, which
+	 * gives the islands the profiles of the portfolio option in turn
+	 * 
+	 * @param options the options of the job
+	 * @param threads number of threads an island may use
+	 * @param offset profile of the island of index 0
+	 * @return the island factory
+	 */
+	private static IslandFactory islandFactory(SolverOptions options, int threads, int offset){
+		IslandFactory factory = IslandFactory.forName(options.getString("population", "list"), threads);
+		if( options.contains("portfolio") )
+			factory = new PortfolioFactory(factory, IslandProfile.parse(options.getString("portfolio", "")), offset);
+		return factory;
 	}
 	
 	/**
@@ -118,10 +284,82 @@ public class SmpTSPMain extends Job {
     	// Get the points from the point group class and put it in points array
 		for (int i = 0; i < numCities;  i++){
 			pg.nextPoint(city);
-			initTour.add(new City(city.x,city.y,id++));			
+			initTour.add(new City(city.x,city.y,city.z,id++));			
 		}
+		if( DistanceMetrics.getMatrixSize() > 0 && DistanceMetrics.getMatrixSize() != numCities )
+			throw new IllegalArgumentException("The distance matrix is not of " + numCities + " cities");
 		// initial tour initialization
 		this.initTour = new TravelingPath(initTour);											
+		
+		// Start from the tour of a previous run, repaired for the cities that were 
+		// deleted, inserted or moved since then.
+		if( options != null && options.contains("warmtour") ) {
+			ArrayList<City> previousTour = TourDelta.readTour(options.getString("warmtour", null));
+			ArrayList<City> repairedTour = TourRepair.repair(previousTour, TourDelta.between(previousTour, initTour));
+			
+			// Use the current city objects, the unchanged ones still come from the file
+			ArrayList<City> warmTour = new ArrayList<City>(numCities);
+			for( int i = 0; i < repairedTour.size(); i++ ) {
+				warmTour.add(initTour.get(repairedTour.get(i).id));
+			}
+			this.initTour = new TravelingPath(warmTour);
+		}
+		
+		if( options != null && options.getString("renumber", "none").equals("hilbert") )
+			renumberCities();
+	}
+	
+	/**
+	 * This method renumbers the cities along a Hilbert curve. Cities close in the 
+	 * plane get close ids, so the coordinate, distance and neighbour arrays indexed 
+	 * by id are read almost in order when a tour is walked. The order of the initial 
+	 * tour is kept, and the original ids are kept for printing the result.
+	 */
+	private void renumberCities() {
+		ArrayList<City> cityList = initTour.getCityList();
+		int[] ids = new int[numCities];
+		for( int i = 0; i < numCities; i++ ) {
+			ids[i] = cityList.get(i).id;
+		}
+		originalIds = TourConstruction.hilbertOrder(new CityCoordinates(cityList), ids);
+		int[] newIds = new int[numCities];
+		for( int i = 0; i < numCities; i++ ) {
+			newIds[originalIds[i]] = i;
+		}
+		ArrayList<City> renumbered = new ArrayList<City>(numCities);
+		for( int i = 0; i < numCities; i++ ) {
+			City city = cityList.get(i);
+			renumbered.add(new City(city.x, city.y, city.z, newIds[city.id]));
+		}
+		this.initTour = new TravelingPath(renumbered);
+	}
+	
+	/**
+	 * This method partitions the cities into regions, puts every region into the tuple
+	 * space as an independent subproblem and sets up the tasks that solve and stitch them
+	 * 
+	 * @param args Command line arguments
+	 */
+	private void decompose(String[] args) {
+		int regionSize = options.getInt("regionsize", 0);
+		RegionPartitioner partitioner = new RegionPartitioner(initTour.getCityList());
+		ArrayList<ArrayList<City>> regions;
+		if( options.getString("partition", "grid").equals("kmeans") )
+			regions = partitioner.kMeans((numCities + regionSize - 1)/regionSize, 20);
+		else
+			regions = partitioner.adaptiveGrid(regionSize);
+		
+		// Every region is a subproblem for the worker tasks.
+		for( int r = 0; r < regions.size(); r++ ) {
+			putTuple( new RegionTuple(r, new TravelingPath(regions.get(r))) );
+		}
+		
+		// Set up a task group of K region tasks.
+		rule().task(workers(), RegionTask.class).args(options.appendTo(args[1],args[2],args[3]));
+		
+		// Set up the task which stitches the sub-tours together.
+		rule().atFinish().task(StitchTask.class).runInJobProcess()
+			.args(options.appendTo(Integer.toString(regions.size()), options.getString("window", "50")));
 	}
 	
 	/**
@@ -134,13 +372,19 @@ public class SmpTSPMain extends Job {
 		private int popSize;		
 		private int iterGA;		
 		private int migrationCount;
-		private Population population[] = new Population[4];		
+		private long seed;
+		private SolverOptions options;
+		private ArrayList<TravelingPath> seeds;
+		private Island population[] = new Island[4];		
+		private EliteArchive archive = new EliteArchive(32);	// Best tours of the four cores
 		int taskRank;
 		int prevNodeRank;
 		int numWorkers;
-		int initializationCount = 0;
-		private AList<TravelingPath> sendTopTours = new AList<TravelingPath>();
-		private ArrayList<TravelingPath> receiveTopTours = new ArrayList<TravelingPath>();		
+		private ArrayList<TravelingPath> receiveTopTours = new ArrayList<TravelingPath>();	// Filled by thread 3 only
+		private ArrayList<SpscRing<TravelingPath>> neighbourRings;	// Ring r carries tours from core r+1 to core r
+		private double targetLength;	// Length within the gap of the lower bound, 0 for no early exit
+		private boolean stopReceived;	// True once the neighbouring node has stopped early
+		private long deadline;			// Time after which the node stops, 0 for no time budget
 		
 		/**
 		 * Worker task main program
@@ -160,6 +404,11 @@ public class SmpTSPMain extends Job {
 			// Get the migration rate
 			migrationCount = Integer.parseInt(args[3]);
 			
+			// Get the seed of the job
+			options = new SolverOptions(args, 4);
+			seed = options.getLong("seed", 0);
+			selectMetric(options);
+			
 			// Get the task rank
 			taskRank = taskRank();								
 			
@@ -170,49 +419,101 @@ public class SmpTSPMain extends Job {
 				prevNodeRank = numWorkers - 1;
 			}						
 			
+			// Workers stop early once a tour within the gap of the lower bound is found.
+			if( options.contains("gap") && options.getDouble("lowerbound", 0) > 0 )
+				targetLength = options.getDouble("lowerbound", 0)*(1 + options.getDouble("gap", 0)/100);
+			
+			// Workers stop early once the time budget is used up, whatever the engine.
+			if( options.contains("budget") )
+				deadline = System.currentTimeMillis() + (long) ( options.getDouble("budget", 0)*1000 );
+			
+			// An ant colony or an annealer per node replaces the genetic algorithm.
+			if( options.getString("engine", "ga").equals("aco") ) {
+				runColony();
+				return;
+			}
+			if( options.getString("engine", "ga").equals("sa") ) {
+				runTempering();
+				return;
+			}
+			
+			// Build the seed tours of the populations once for all the islands of this node.
+			seeds = createSeeds(options, initTour, threads());
+			
+			// Run many light islands on a work-stealing pool instead of one island per core.
+			if( options.getInt("islands", 0) > 0 ) {
+				runIslands(options.getInt("islands", 0));
+				return;
+			}
+			
+			// Cores 1 to 3 send their best tours to the next lower core
+			neighbourRings = new ArrayList<SpscRing<TravelingPath>>();
+			for( int rank = 0; rank < 3; rank++ ) {
+				neighbourRings.add(new SpscRing<TravelingPath>(32));
+			}
+			
+			// Every core creates its own population, whose best tours go out in the first migration.
+			parallelFor(0,3).exec( new Loop() {
+				public void run(int rank) throws Exception {
+					population[rank] = islandFactory(options,1,4*taskRank).create(rank,initTour,popSize,SplitRandom.stream(seed,taskRank,rank));								
+					population[rank].createPopulation(seeds, seedFraction(options));
+					population[rank].publishTo(archive, 10);
+				}
+			} );
+			
 			for( int iter = 0; iter < migrationCount; iter++ ) {				
+				// The best tours of the node up to the last migration are taken before the cores
+				// run, so what migrates does not depend on how far the other cores have got.
+				final AList<TravelingPath> nodeBest = archive.getBest(10);
+				
+				// The rings are emptied before the cores run, so every core takes in the tours
+				// its neighbouring core sent in the last migration, never those of this one.
+				final ArrayList<ArrayList<TravelingPath>> received = new ArrayList<ArrayList<TravelingPath>>();
+				for( int rank = 0; rank < 3; rank++ ) {
+					received.add(new ArrayList<TravelingPath>());
+					neighbourRings.get(rank).drainTo(received.get(rank));
+				}
+				received.add(new ArrayList<TravelingPath>(receiveTopTours));
+				receiveTopTours.clear();
+				
 				// run genetic algorithm in all cores independently
 				parallelFor(0,3).exec( new Loop() {
 									
 					int rank;		// To store thread rank
-					int nextThread; // To store neighboring thread rank
 								
 					public void start( ) throws Exception {
 				
 						// rank of this core
 						rank = rank();						
-						// rank of neighbor core
-						nextThread = (rank + 1) % 4;							
-															
-						if( initializationCount <= 3 ) {	
-							initializationCount++;
-							population[rank] = new Population (initTour,popSize);								
-							population[rank].createPopulation();																														
-						}																		
 					}
 
 					public void run(int args) throws Exception {
 						
-						// Check if we have received the top tours from neighboring node
-						if( !receiveTopTours.isEmpty() ) {
-							population[rank].receiveMigratingTours(receiveTopTours);							
+						// Thread 3 takes in the top tours received from the neighboring node, the 
+						// other threads the tours their neighboring core sent in the last migration.
+						if( !received.get(rank).isEmpty() ) {
+							population[rank].receiveMigratingTours(received.get(rank));							
 						}			
-						// Run genetic algorithm
+						// Run genetic algorithm and publish the improvements to the elite archive
 						population[rank].startGA(iterGA);						
+						population[rank].publishTo(archive, 10);
 						
-						// Thread 0 will send the migrating tours to the 3rd thread of the neighboring node.
+						// Thread 0 will send the best tours of the node to the 3rd thread of the neighboring node.
 						// Migration is done in anti clock wise fashion.
 						if(rank == 0) {																														
-							sendTopTours = population[0].getBestPopulation(10);							
-							putTuple(1, new PathTuple(sendTopTours,prevNodeRank,3));							
+							putTuple(1, new PathTuple(nodeBest,prevNodeRank,3));							
 						}
 						
-						// All other threads except 3rd thread will do intra node migration.
-						if( rank!= 3 ){
-							
-							population[rank].threadMigration( population[nextThread].getPopulationList());							
+						// All other threads do intra node migration, the copies of their best tours 
+						// go to the next lower core. Tours that do not fit in the ring are dropped.
+						else {
+							AList<TravelingPath> sendTopTours = population[rank].getBestPopulation(10);
+							for( int i = 0; i < sendTopTours.size(); i++ ) {
+								neighbourRings.get(rank - 1).offer(sendTopTours.get(i));
+							}
 						}
-						else{
+						
+						if( rank == 3 ) {
 							// Thread 3 will get the migrating tours from the 0th thread of the neighboring node.
 							// Migration is done in anti clock wise fashion. 
 							PathTuple template = new PathTuple();
@@ -222,27 +523,520 @@ public class SmpTSPMain extends Job {
 						
 							pathTuple = takeTuple(template);														
 							pathTuple.getTourList(receiveTopTours);
+							stopReceived = pathTuple.stop;
 						}						
 					}									
 			
 				} );																		
-				// Clear the structures after each migration								
-				sendTopTours.clear();
-				receiveTopTours.clear();
+				// We have done the migration in this node, the best tour of the four cores is in the archive.
+				TravelingPath bestTour = archive.getBest();
 				
-				// We have done the migration in this node, now get the best tour from the four cores,
-				// and put the best tour out of the four core to the result tuple to do inter node reduction.
-				if( iter == migrationCount - 1 ) {		
-					TravelingPath bestTour = new TravelingPath(population[0].getPopulationList().get(0));					
-					for( int i = 1; i < population.length; i++ ) {
-						if(bestTour.getEuclideanDistance() < population[i].getPopulationList().get(0).getEuclideanDistance())
-							bestTour = population[i].getPopulationList().get(0);
-					}																									
-					putTuple( new ResultTuple(bestTour));
-					
-				}					
+				// Put the best tour out of the four core to the result tuple to do inter node reduction.
+				if( iter == migrationCount - 1 || stopEarly(bestTour) ) {
+					putTuple( new ResultTuple(polish(bestTour)) );
+					break;
+				}
+			}
+			for( int rank = 0; rank < 4; rank++ ) {
+				population[rank].shutdown();
 			}																								
 		}
+		
+		/**
+		 * This method decides whether this node stops before the last migration, because
+		 * its best tour is within the gap of the lower bound, because its time budget is
+		 * used up or because the neighbouring node has stopped. A stopping node tells the node it sends its tours to, which 
+		 * waits for a tour list of the next migration; so the stop travels around the ring.
+		 * 
+		 * @param bestTour best tour of this node
+		 * @return true if this node stops
+		 * @throws Exception Thrown if a tuple space operation fails
+		 */
+		private boolean stopEarly(TravelingPath bestTour) throws Exception {
+			if( !stopReceived && ( targetLength == 0 || bestTour.getEuclideanDistance() > targetLength )
+					&& ( deadline == 0 || System.currentTimeMillis() < deadline ) )
+				return false;
+			PathTuple stop = new PathTuple(new AList<TravelingPath>(),prevNodeRank,3);
+			stop.stop = true;
+			putTuple(1, stop);
+			return true;
+		}
+		
+		/**
+		 * This method polishes the best tour of this node with the window optimiser,
+		 * if the polish option asks for it
+		 * 
+		 * @param tour best tour of this node
+		 * @return the polished tour, or a copy of the tour
+		 */
+		private TravelingPath polish(TravelingPath tour) {
+			if( options.getInt("polish", 0) == 0 ) {
+				return new TravelingPath(tour);
+			}
+			WindowOptimiser optimiser = new WindowOptimiser(initTour, options.getInt("polish", 0), threads());
+			try {
+				TravelingPath polished = optimiser.optimise(tour, 100);
+				return polished.getEuclideanDistance() < tour.getEuclideanDistance() ? polished : new TravelingPath(tour);
+			}
+			finally {
+				optimiser.shutdown();
+			}
+		}
+		
+		/**
+		 * This method runs the islands of this node on an IslandEngine. After every
+		 * epoch the best tours of the node migrate to the neighbouring node, and the
+		 * tours received from the other neighbour go to the first island.
+		 * 
+		 * @param islandCount number of islands on this node
+		 * @throws Exception Thrown if a tuple space operation fails
+		 */
+		private void runIslands(int islandCount) throws Exception {
+			IslandEngine engine = new IslandEngine(initTour, seeds, seedFraction(options), islandFactory(options, Math.max(1, threads()/islandCount), taskRank*islandCount),
+					islandCount, popSize, 10, threads(), seed, taskRank);
+			WindowOptimiser polisher = null;
+			if( options.getInt("polish", 0) > 0 ) {
+				polisher = new WindowOptimiser(initTour, options.getInt("polish", 0), threads());
+				engine.setPolisher(polisher);
+			}
+			engine.setBackbone(options.getDouble("backbone", 0));
+			
+			for( int iter = 0; iter < migrationCount; iter++ ) {
+				engine.runEpoch(iterGA);
+				
+				// Migration is done in anti clock wise fashion, like with one island per core.
+				putTuple(1, new PathTuple(engine.getBestPopulation(10),prevNodeRank,3));
+				PathTuple template = new PathTuple();
+				template.taskRank = taskRank;
+				template.threadRank = 3;
+				ArrayList<TravelingPath> received = new ArrayList<TravelingPath>();
+				PathTuple pathTuple = takeTuple(template);
+				pathTuple.getTourList(received);
+				stopReceived = pathTuple.stop;
+				engine.immigrate(0, received);
+				if( stopEarly(engine.getBestTour()) ) break;
+			}
+			
+			// Put the best tour of the node to the result tuple to do inter node reduction.
+			putTuple( new ResultTuple(engine.getBestTour()) );
+			engine.shutdown();
+			if( polisher != null ) polisher.shutdown();
+		}
+		
+		/**
+		 * This method runs an ant colony on all the cores of this node. The ants are
+		 * the population and a migration follows every GAiterations colony iterations:
+		 * the best tour of the colony goes to the neighbouring node, and the tour
+		 * received from the other neighbour becomes the best tour of the colony if it
+		 * is shorter.
+		 * 
+		 * @throws Exception Thrown if a tuple space operation fails
+		 */
+		private void runColony() throws Exception {
+			AntColony colony = new AntColony(initTour, popSize, threads(), seed, taskRank);
+			try {
+				for( int iter = 0; iter < migrationCount; iter++ ) {
+					colony.iterate(iterGA);
+					
+					// Migration is done in anti clock wise fashion, like with the islands.
+					AList<TravelingPath> bestTours = new AList<TravelingPath>();
+					bestTours.addLast(colony.getBestTour());
+					putTuple(1, new PathTuple(bestTours,prevNodeRank,3));
+					PathTuple template = new PathTuple();
+					template.taskRank = taskRank;
+					template.threadRank = 3;
+					ArrayList<TravelingPath> received = new ArrayList<TravelingPath>();
+					PathTuple pathTuple = takeTuple(template);
+					pathTuple.getTourList(received);
+					stopReceived = pathTuple.stop;
+					for( int i = 0; i < received.size(); i++ ) {
+						colony.receive(received.get(i));
+					}
+					if( stopEarly(colony.getBestTour()) ) break;
+				}
+				
+				// Put the best tour of the node to the result tuple to do inter node reduction.
+				putTuple( new ResultTuple(polish(colony.getBestTour())) );
+			}
+			finally {
+				colony.shutdown();
+			}
+		}
+		
+		/**
+		 * This method runs a parallel tempering annealer with one replica per core of
+		 * this node, started from the seed tours if there are any. A migration follows
+		 * every GAiterations rounds of one sweep: the best tour of the node goes to the
+		 * neighbouring node, and the tour received from the other neighbour replaces
+		 * the coldest replica if it is shorter.
+		 * 
+		 * @throws Exception Thrown if a tuple space operation fails
+		 */
+		private void runTempering() throws Exception {
+			ParallelTempering annealer = new ParallelTempering(initTour, Math.max(2, threads()), threads(), seed, taskRank);
+			try {
+				ArrayList<TravelingPath> seeds = createSeeds(options, initTour, threads());
+				for( int i = 0; i < seeds.size(); i++ ) {
+					annealer.receive(seeds.get(i));
+				}
+				for( int iter = 0; iter < migrationCount; iter++ ) {
+					annealer.anneal(iterGA, 1);
+					
+					// Migration is done in anti clock wise fashion, like with the islands.
+					AList<TravelingPath> bestTours = new AList<TravelingPath>();
+					bestTours.addLast(annealer.getBestTour());
+					putTuple(1, new PathTuple(bestTours,prevNodeRank,3));
+					PathTuple template = new PathTuple();
+					template.taskRank = taskRank;
+					template.threadRank = 3;
+					ArrayList<TravelingPath> received = new ArrayList<TravelingPath>();
+					PathTuple pathTuple = takeTuple(template);
+					pathTuple.getTourList(received);
+					stopReceived = pathTuple.stop;
+					for( int i = 0; i < received.size(); i++ ) {
+						annealer.receive(received.get(i));
+					}
+					if( stopEarly(annealer.getBestTour()) ) break;
+				}
+				
+				// Put the best tour of the node to the result tuple to do inter node reduction.
+				putTuple( new ResultTuple(polish(annealer.getBestTour())) );
+			}
+			finally {
+				annealer.shutdown();
+			}
+		}
+	}
+	
+	/**
+	 * Class RegionTask solves the regions of a decomposed instance. Each core takes
+	 * regions from the tuple space until none are left and puts back the best sub-tour
+	 * found for every region.
+	 * 
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 * 
+	 */
+	private static class RegionTask extends Task {
+		
+		private int popSize;
+		private int iterGA;
+		private int migrationCount;
+		private long seed;
+		private SolverOptions options;
+		
+		/**
+		 * Region task main program
+		 */
+		public void main(String[] args) throws Exception {
+			
+			// Get the population size
+			popSize = Integer.parseInt(args[0]);
+			// number of generations for genetic algorithm
+			iterGA = Integer.parseInt(args[1]);
+			// Number of times the genetic algorithm is repeated on each region
+			migrationCount = Integer.parseInt(args[2]);
+			// Get the seed of the job
+			options = new SolverOptions(args, 3);
+			seed = options.getLong("seed", 0);
+			selectMetric(options);
+			
+			// Solve the regions in all cores independently
+			parallelFor(0,3).exec( new Loop() {
+				
+				public void run(int args) throws Exception {
+					RegionTuple template = new RegionTuple();
+					RegionTuple region = null;
+					while( ( region = tryToTakeTuple(template) ) != null ) {
+						putTuple( new SubTourTuple(region.regionIndex, solveRegion(region)) );
+					}
+				}
+			} );
+		}
+		
+		/**
+		 * This method runs the genetic algorithm on the cities of one region
+		 * 
+		 * @param region the region tuple
+		 * @return best sub-tour of the region
+		 */
+		private TravelingPath solveRegion(RegionTuple region) {
+			// Too few cities for crossover, any order is optimal.
+			if( region.cities.getCityList().size() < 4 ) {
+				return region.cities;
+			}
+			
+			// Renumber the cities of the region from 0 so that the coordinate arrays 
+			// of the population are sized by the region and not by the whole instance.
+			ArrayList<City> cityList = region.cities.getCityList();
+			ArrayList<City> localCities = new ArrayList<City>(cityList.size());
+			for( int i = 0; i < cityList.size(); i++ ) {
+				localCities.add(new City(cityList.get(i).x, cityList.get(i).y, cityList.get(i).z, i));
+			}
+			
+			// The stream depends on the region only, not on the worker that solves it.
+			TravelingPath localTour = new TravelingPath(localCities);
+			if( options.getString("engine", "ga").equals("aco") ) {
+				AntColony colony = new AntColony(localTour, popSize, 1, seed, region.regionIndex);
+				colony.iterate(iterGA*migrationCount);
+				return toRegionTour(colony.getBestTour(), cityList);
+			}
+			if( options.getString("engine", "ga").equals("sa") ) {
+				ParallelTempering annealer = new ParallelTempering(localTour, 4, 1, seed, region.regionIndex);
+				annealer.anneal(iterGA*migrationCount, 1);
+				return toRegionTour(annealer.getBestTour(), cityList);
+			}
+			Island population = islandFactory(options, 1, 0).create(region.regionIndex, localTour, popSize, 
+					SplitRandom.stream(seed, region.regionIndex));
+			// A warm start tour does not apply to a region, only the seeding strategies do.
+			ArrayList<TravelingPath> seeds = new ArrayList<TravelingPath>();
+			if( options.contains("seeding") )
+				seeds = TourConstruction.buildSeeds(Arrays.asList(options.getString("seeding", "").split(",")), localTour, 1);
+			population.createPopulation(seeds, options.getDouble("seedfraction", 0.5));
+			for( int iter = 0; iter < migrationCount; iter++ ) {
+				population.startGA(iterGA);
+			}
+			TravelingPath bestTour = population.getBestPopulation(1).get(0);
+			population.shutdown();
+			
+			return toRegionTour(bestTour, cityList);
+		}
+		
+		/**
+		 * This method maps the best tour of a region back to the original cities
+		 * 
+		 * @param localTour best tour, of the cities renumbered from 0
+		 * @param cityList original cities of the region
+		 * @return the tour of the original cities
+		 */
+		private TravelingPath toRegionTour(TravelingPath localTour, ArrayList<City> cityList) {
+			ArrayList<City> bestTour = localTour.getCityList();
+			ArrayList<City> subTour = new ArrayList<City>(bestTour.size());
+			for( int i = 0; i < bestTour.size(); i++ ) {
+				subTour.add(cityList.get(bestTour.get(i).id));
+			}
+			return new TravelingPath(subTour);
+		}
+	}
+	
+	/**
+	 * Class StitchTask collects the sub-tours of all the regions, stitches them into 
+	 * one tour, optimises the seams between the regions and prints the result.
+	 * 
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 * 
+	 */
+	private static class StitchTask extends Task {
+		
+		/** 
+		 * Stitch task main program.
+		 */
+		public void main(String[] args) throws Exception {
+			
+			int numRegions = Integer.parseInt(args[0]);
+			int window = Integer.parseInt(args[1]);
+			SolverOptions options = new SolverOptions(args, 2);
+			selectMetric(options);
+			
+			// Collect the sub-tours in region order
+			ArrayList<ArrayList<City>> subTours = new ArrayList<ArrayList<City>>();
+			for( int r = 0; r < numRegions; r++ ) {
+				subTours.add(new ArrayList<City>());
+			}
+			SubTourTuple template = new SubTourTuple();
+			SubTourTuple subTour = null;
+			while( ( subTour = tryToTakeTuple(template) ) != null ) {
+				subTours.set(subTour.regionIndex, subTour.tour.getCityList());
+			}
+			
+			// Stitch the sub-tours and repair the tour around the seams
+			TourStitcher stitcher = new TourStitcher();
+			stitcher.stitch(subTours);
+			TravelingPath bestTour = new TravelingPath(stitcher.optimiseBoundaries(window));
+			bestTour.calculateDistance();
+			
+			// Polish the stitched tour, the seams above all
+			if( options.getInt("polish", 0) > 0 ) {
+				WindowOptimiser optimiser = new WindowOptimiser(bestTour, options.getInt("polish", 0), threads());
+				bestTour = optimiser.optimise(bestTour, 100);
+				optimiser.shutdown();
+			}
+			
+			// print the results.
+			System.out.println(ANSI_GREEN + "OPTIMAL PATH: " + ANSI_RESET);
+			ResultTuple resultTuple = new ResultTuple(bestTour);
+			if( options.getString("renumber", "none").equals("hilbert") )
+				resultTuple.restoreIds(readTuple(new IdTuple()).originalIds);
+			resultTuple.printResults(options.getDouble("lowerbound", 0), options.getDouble("boundestimate", 0));
+			
+			// Save the tour for a warm start of a later run
+			if( options.contains("savetour") ) {
+				resultTuple.saveTour(options.getString("savetour", null));
+			}
+		}
+	}
+	
+	/**
+	 * Class RegionTuple carries the cities of one region of a decomposed instance
+	 * 
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 * 
+	 */
+	private static class RegionTuple extends Tuple {
+		
+		int regionIndex;							// Index of the region
+		TravelingPath cities = new TravelingPath();	// Cities of the region
+		
+		/**
+		 * Default constructor to create region tuple object
+		 */
+		public RegionTuple() {
+			
+		}
+		
+		/**
+		 * Parameterized constructor initialize the RegionTuple object
+		 * 
+		 * @param regionIndex index of the region
+		 * @param cities cities of the region
+		 */
+		public RegionTuple( int regionIndex, TravelingPath cities ) {
+			this.regionIndex = regionIndex;
+			this.cities = cities;
+		}
+		
+		/**
+		 * Reads the object parameters from the input stream
+		 *
+		 * @param inStream Input stream
+		 * 
+		 * @exception IOException Throws the IO exception if there is an error		 
+		 */
+		public void readIn(InStream inStream) throws IOException {
+			regionIndex = inStream.readInt();
+			cities = (TravelingPath) inStream.readObject();
+		}
+
+		/**
+		 * Writes the object parameters to the out stream
+		 *
+		 * @param outStream output stream
+		 * 
+		 * @exception IOException Throws the IO exception if there is an error		 
+		 */
+		public void writeOut(OutStream outStream) throws IOException {
+			outStream.writeInt(regionIndex);
+			outStream.writeObject(cities);
+		}
+	}
+	
+	/**
+	 * Class SubTourTuple carries the best sub-tour found for one region
+	 * 
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 * 
+	 */
+	private static class SubTourTuple extends Tuple {
+		
+		int regionIndex;							// Index of the region
+		TravelingPath tour = new TravelingPath();	// Best sub-tour of the region
+		
+		/**
+		 * Default constructor to create sub-tour tuple object
+		 */
+		public SubTourTuple() {
+			
+		}
+		
+		/**
+		 * Parameterized constructor initialize the SubTourTuple object
+		 * 
+		 * @param regionIndex index of the region
+		 * @param tour best sub-tour of the region
+		 */
+		public SubTourTuple( int regionIndex, TravelingPath tour ) {
+			this.regionIndex = regionIndex;
+			this.tour = tour;
+		}
+		
+		/**
+		 * Reads the object parameters from the input stream
+		 *
+		 * @param inStream Input stream
+		 * 
+		 * @exception IOException Throws the IO exception if there is an error		 
+		 */
+		public void readIn(InStream inStream) throws IOException {
+			regionIndex = inStream.readInt();
+			tour = (TravelingPath) inStream.readObject();
+		}
+
+		/**
+		 * Writes the object parameters to the out stream
+		 *
+		 * @param outStream output stream
+		 * 
+		 * @exception IOException Throws the IO exception if there is an error		 
+		 */
+		public void writeOut(OutStream outStream) throws IOException {
+			outStream.writeInt(regionIndex);
+			outStream.writeObject(tour);
+		}
+	}
+	
+	/**
+	 * Class IdTuple carries the original ids of the renumbered cities to the tasks 
+	 * that print the result
+	 * 
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 * 
+	 */
+	private static class IdTuple extends Tuple {
+		
+		int[] originalIds = new int[0];		// Original id of every city, indexed by its current id
+		
+		/**
+		 * Default constructor to create id tuple object
+		 */
+		public IdTuple() {
+			
+		}
+		
+		/**
+		 * Parameterized constructor initialize the IdTuple object
+		 * 
+		 * @param originalIds original id of every city, indexed by its current id
+		 */
+		public IdTuple( int[] originalIds ) {
+			this.originalIds = originalIds;
+		}
+		
+		/**
+		 * Reads the object parameters from the input stream
+		 *
+		 * @param inStream Input stream
+		 * 
+		 * @exception IOException Throws the IO exception if there is an error
+		 */
+		public void readIn(InStream inStream) throws IOException {
+			originalIds = new int[inStream.readInt()];
+			for( int i = 0; i < originalIds.length; i++ ) {
+				originalIds[i] = inStream.readInt();
+			}
+		}
+
+		/**
+		 * Writes the object parameters to the out stream
+		 *
+		 * @param outStream output stream
+		 * 
+		 * @exception IOException Throws the IO exception if there is an error
+		 */
+		public void writeOut(OutStream outStream) throws IOException {
+			outStream.writeInt(originalIds.length);
+			for( int i = 0; i < originalIds.length; i++ ) {
+				outStream.writeInt(originalIds[i]);
+			}
+		}
 	}
 	
 	/**
@@ -257,6 +1051,7 @@ public class SmpTSPMain extends Job {
 		AList<TravelingPath> tourList = new AList<TravelingPath>(); // Tour list.
 		int taskRank; 		// Worker task rank
 		int threadRank;     // Thread rank of the core
+		boolean stop;		// True if the sending node has stopped early
 		
 		/**
 		 * Default constructor to create path tuple object
@@ -301,6 +1096,7 @@ public class SmpTSPMain extends Job {
 			tourList = (AList<TravelingPath>) inStream.readObject();
 			taskRank = inStream.readInt();
 			threadRank = inStream.readInt();
+			stop = inStream.readBoolean();
 		}
 
 		/**
@@ -314,6 +1110,7 @@ public class SmpTSPMain extends Job {
 			outStream.writeObject(tourList);
 			outStream.writeInt(taskRank);
 			outStream.writeInt(threadRank);
+			outStream.writeBoolean(stop);
 		}
 		
 		/**
@@ -396,10 +1193,56 @@ public class SmpTSPMain extends Job {
 		}
 		
 		/**
-		 * Print the result 
-		 * 		 
+		 * This method gives the cities of the best tour back the ids they had before
+		 * they were renumbered
+		 * 
+		 * @param originalIds original id of every city, indexed by its current id
 		 */
-		public void printResults() {					
+		public void restoreIds(int[] originalIds) {
+			ArrayList<City> cityList = bestTour.getCityList();
+			ArrayList<City> restored = new ArrayList<City>(cityList.size());
+			for( int i = 0; i < cityList.size(); i++ ) {
+				City city = cityList.get(i);
+				restored.add(new City(city.x, city.y, city.z, originalIds[city.id]));
+			}
+			double length = bestTour.getEuclideanDistance();
+			bestTour = new TravelingPath(restored);
+			bestTour.setEuclideanDistance(length);
+		}
+		
+		/**
+		 * Write the best tour to a file, one line {@literal "<id> <x> <y>"} per city, or
+		 * {@literal "<id> <x> <y> <z>"} if any city is off the plane
+		 * 
+		 * @param fileName name of the file
+		 * @throws IOException Thrown if the file cannot be written
+		 */
+		public void saveTour(String fileName) throws IOException {
+			PrintWriter writer = new PrintWriter(new FileWriter(fileName));
+			try {
+				ArrayList<City> cityList = bestTour.getCityList();
+				boolean withZ = false;
+				for( int i = 0; i < cityList.size() && !withZ; i++ ) {
+					withZ = cityList.get(i).z != 0;
+				}
+				for( int i = 0; i < cityList.size(); i++ ) {
+					City city = cityList.get(i);
+					writer.println(city.id + " " + city.x + " " + city.y + ( withZ ? " " + city.z : "" ));
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		
+		/**
+		 * Print the result, with its gap to the lower bound or to the estimate of the
+		 * lower bound if there is one
+		 * 
+		 * @param lowerBound lower bound on the optimal distance, 0 if unknown
+		 * @param estimate estimate of the lower bound which may be too high, 0 if none
+		 */
+		public void printResults(double lowerBound, double estimate) {					
 			
 			// Get the citylist from the best tour we have
 			ArrayList<City> cityList  = bestTour.getCityList();			
@@ -417,6 +1260,17 @@ public class SmpTSPMain extends Job {
 			System.out.printf ("%.3f", bestTour.getEuclideanDistance());
 			System.out.printf ("\n" + ANSI_RESET);
 			
+			// Print how far the distance is from optimal at most.
+			if( lowerBound > 0 ) {
+				System.out.println(ANSI_GREEN + "LOWER BOUND: " + ANSI_RESET);
+				System.out.printf (ANSI_CYAN + "%.3f (gap %.2f%%)\n" + ANSI_RESET, lowerBound, 
+						HeldKarpBound.gap(bestTour.getEuclideanDistance(), lowerBound));
+			}
+			else if( estimate > 0 ) {
+				System.out.println(ANSI_GREEN + "LOWER BOUND ESTIMATE: " + ANSI_RESET);
+				System.out.printf (ANSI_CYAN + "%.3f (estimated gap %.2f%%)\n" + ANSI_RESET, estimate, 
+						HeldKarpBound.gap(bestTour.getEuclideanDistance(), estimate));
+			}
 		}				
 	}
 	
@@ -447,7 +1301,15 @@ public class SmpTSPMain extends Job {
 			
 			// print the results.
 			System.out.println(ANSI_GREEN + "OPTIMAL PATH: " + ANSI_RESET);
-			resultTuple.printResults();			
+			SolverOptions options = new SolverOptions(args, 0);
+			if( options.getString("renumber", "none").equals("hilbert") )
+				resultTuple.restoreIds(readTuple(new IdTuple()).originalIds);
+			resultTuple.printResults(options.getDouble("lowerbound", 0), options.getDouble("boundestimate", 0));			
+			
+			// Save the tour for a warm start of a later run
+			if( options.contains("savetour") ) {
+				resultTuple.saveTour(options.getString("savetour", null));
+			}
 		}		
 	}
 }
\ No newline at end of file
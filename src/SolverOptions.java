@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class SolverOptions holds the optional {@literal <name>=<value>} arguments that
+ * follow the mandatory arguments of the solver programs
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class SolverOptions {
+
+	private LinkedHashMap<String, String> options = new LinkedHashMap<String, String>(); // Option name to value
+
+	/**
+	 * Default constructor, creates an empty option set
+	 */
+	public SolverOptions(){
+
+	}
+
+	/**
+	 * Parameterized constructor, parses the options from the command line arguments
+	 *
+	 * @param args Command line arguments
+	 * @param first Index of the first optional argument
+	 *
+	 * @exception IllegalArgumentException Thrown if an option is not of the form name=value
+	 */
+	public SolverOptions(String[] args, int first){
+		for (int i = first; i < args.length; i++) {
+			int split = args[i].indexOf('=');
+			if (split <= 0)
+				throw new IllegalArgumentException("Illegal option: " + args[i]);
+			options.put(args[i].substring(0, split), args[i].substring(split + 1));
+		}
+	}
+
+	/**
+	 * Tells whether the given option was specified
+	 *
+	 * @param name Name of the option
+	 * @return true if the option is present
+	 */
+	public boolean contains(String name){
+		return options.containsKey(name);
+	}
+
+	/**
+	 * Returns the value of a string option
+	 *
+	 * @param name Name of the option
+	 * @param defaultValue Value returned if the option is absent
+	 * @return value of the option
+	 */
+	public String getString(String name, String defaultValue){
+		String value = options.get(name);
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * Returns the value of an integer option
+	 *
+	 * @param name Name of the option
+	 * @param defaultValue Value returned if the option is absent
+	 * @return value of the option
+	 */
+	public int getInt(String name, int defaultValue){
+		String value = options.get(name);
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	/**
+	 * Returns the value of a long option
+	 *
+	 * @param name Name of the option
+	 * @param defaultValue Value returned if the option is absent
+	 * @return value of the option
+	 */
+	public long getLong(String name, long defaultValue){
+		String value = options.get(name);
+		return value == null ? defaultValue : Long.parseLong(value);
+	}
+
+	/**
+	 * Returns the value of a double option
+	 *
+	 * @param name Name of the option
+	 * @param defaultValue Value returned if the option is absent
+	 * @return value of the option
+	 */
+	public double getDouble(String name, double defaultValue){
+		String value = options.get(name);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+
+	/**
+	 * Sets the value of an option
+	 *
+	 * @param name Name of the option
+	 * @param value Value of the option
+	 */
+	public void set(String name, String value){
+		options.put(name, value);
+	}
+
+	/**
+	 * Returns the options in the {@literal <name>=<value>} form, so that they can be
+	 * passed on as arguments to the tasks
+	 *
+	 * @return options as arguments
+	 */
+	public String[] toArgs(){
+		ArrayList<String> args = new ArrayList<String>();
+		for (Map.Entry<String, String> entry : options.entrySet())
+			args.add(entry.getKey() + "=" + entry.getValue());
+		return args.toArray(new String[args.size()]);
+	}
+
+	/**
+	 * Appends the options to the given arguments
+	 *
+	 * @param args Arguments to which the options are appended
+	 * @return the arguments followed by the options
+	 */
+	public String[] appendTo(String... args){
+		String[] optionArgs = toArgs();
+		String[] allArgs = new String[args.length + optionArgs.length];
+		System.arraycopy(args, 0, allArgs, 0, args.length);
+		System.arraycopy(optionArgs, 0, allArgs, args.length, optionArgs.length);
+		return allArgs;
+	}
+}
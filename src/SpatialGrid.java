@@ -0,0 +1,236 @@
+/**
+ * Class SpatialGrid buckets a set of cities into a uniform grid of cells, so that
+ * nearest neighbour queries only look at the cells around the query point. Cities
+ * can be removed from the grid, which is what nearest neighbour walks need. The
+ * cities are ranked by the metric of the coordinates; the search stops before the
+ * last ring of cells once the separation bound of the metric shows that the next
+ * ring holds no nearer city. A grid is not safe for use by several threads at once.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class SpatialGrid {
+
+	private CityCoordinates coordinates;	// Coordinates of the cities indexed by city id
+	private DistanceMetric metric;			// Metric of the coordinates
+	private double minX, minY;				// Lower left corner of the grid
+	private double maxX, maxY;				// Upper right corner of the cities
+	private double cellSize;				// Width and height of a cell
+	private int cols, rows;					// Number of cells in x and y
+	private int[] cellStart;				// Index of the first city of every cell in cellCities
+	private int[] cellCount;				// Number of cities left in every cell
+	private int[] cellCities;				// City ids, grouped by cell
+	private int[] position;					// Index of every city in cellCities, indexed by city id
+	private int size;						// Number of cities left in the grid
+	private double[] distances = new double[0];	// Scratch array of the k nearest queries
+
+	/**
+	 * Parameterized constructor, buckets the given cities
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities to put in the grid
+	 * @param citiesPerCell average number of cities per cell
+	 */
+	public SpatialGrid(CityCoordinates coordinates, int[] ids, double citiesPerCell){
+		this.coordinates = coordinates;
+		this.metric = coordinates.getMetric();
+		double[] xs = coordinates.getXs();
+		double[] ys = coordinates.getYs();
+		int n = ids.length;
+
+		maxX = -Double.MAX_VALUE;
+		maxY = -Double.MAX_VALUE;
+		minX = Double.MAX_VALUE;
+		minY = Double.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, xs[ids[i]]);
+			minY = Math.min(minY, ys[ids[i]]);
+			maxX = Math.max(maxX, xs[ids[i]]);
+			maxY = Math.max(maxY, ys[ids[i]]);
+		}
+		double width = Math.max(maxX - minX, 1e-9);
+		double height = Math.max(maxY - minY, 1e-9);
+		// Cities on a line have no area, size the cells as if they filled a square then
+		double area = Math.max(width*height, Math.max(width, height)*Math.max(width, height)/Math.max(n, 1));
+		cellSize = Math.sqrt(area*citiesPerCell/Math.max(n, 1));
+		cellSize = Math.max(cellSize, Math.max(width, height)/(1 << 15));
+		cols = (int) (width/cellSize) + 1;
+		rows = (int) (height/cellSize) + 1;
+
+		// Counting sort of the cities by cell
+		cellStart = new int[cols*rows + 1];
+		cellCount = new int[cols*rows];
+		cellCities = new int[n];
+		position = new int[coordinates.size()];
+		for (int i = 0; i < n; i++)
+			cellCount[cell(xs[ids[i]], ys[ids[i]])]++;
+		for (int c = 0; c < cols*rows; c++)
+			cellStart[c + 1] = cellStart[c] + cellCount[c];
+		int[] fill = new int[cols*rows];
+		for (int i = 0; i < n; i++) {
+			int c = cell(xs[ids[i]], ys[ids[i]]);
+			int index = cellStart[c] + fill[c]++;
+			cellCities[index] = ids[i];
+			position[ids[i]] = index;
+		}
+		size = n;
+	}
+
+	/**
+	 * Returns the number of cities left in the grid
+	 *
+	 * @return number of cities
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * This method removes a city from the grid. The city must be in the grid.
+	 *
+	 * @param city id of the city
+	 */
+	public void remove(int city){
+		int c = cell(coordinates.getXs()[city], coordinates.getYs()[city]);
+		int last = cellStart[c] + cellCount[c] - 1;
+		int index = position[city];
+
+		// Swap the city with the last city of its cell and shrink the cell
+		int other = cellCities[last];
+		cellCities[index] = other;
+		position[other] = index;
+		cellCities[last] = city;
+		position[city] = last;
+		cellCount[c]--;
+		size--;
+	}
+
+	/**
+	 * This method finds the nearest city in the grid to the given city
+	 *
+	 * @param city id of the query city, skipped if it is in the grid
+	 * @return id of the nearest city, or -1 if the grid holds no other city
+	 */
+	public int nearest(int city){
+		double x = coordinates.getXs()[city];
+		double y = coordinates.getYs()[city];
+		int cx = col(x), cy = row(y);
+		int best = -1;
+		double bestDistance = Double.MAX_VALUE;
+		int maxRing = Math.max(cols, rows);
+		for (int r = 0; r <= maxRing; r++) {
+			for (int gy = Math.max(cy - r, 0), lastRow = Math.min(cy + r, rows - 1); gy <= lastRow; gy++) {
+				// Whole rows at the top and bottom of the ring, else its two side cells
+				int step = (gy == cy - r || gy == cy + r) ? 1 : 2*r;
+				for (int gx = cx - r; gx <= cx + r; gx += Math.max(step, 1)) {
+					if (gx < 0 || gx >= cols) continue;
+					int c = gy*cols + gx;
+					for (int i = cellStart[c], end = cellStart[c] + cellCount[c]; i < end; i++) {
+						int other = cellCities[i];
+						if (other == city) continue;
+						double distance = coordinates.distance(city, other);
+						if (distance < bestDistance) {
+							bestDistance = distance;
+							best = other;
+						}
+					}
+				}
+			}
+			// Cells of the next ring are at least r cells away
+			if (best != -1 && bestDistance <= ringBound(r, x, y)) break;
+		}
+		return best;
+	}
+
+	/**
+	 * This method finds the k nearest cities in the grid to the given city
+	 *
+	 * @param city id of the query city, skipped if it is in the grid
+	 * @param k number of neighbours
+	 * @param neighbours array receiving the ids of the neighbours, nearest first
+	 * @param offset index in neighbours where the first neighbour is stored
+	 * @return number of neighbours found, less than k if the grid is too small
+	 */
+	public int kNearest(int city, int k, int[] neighbours, int offset){
+		double x = coordinates.getXs()[city];
+		double y = coordinates.getYs()[city];
+		int cx = col(x), cy = row(y);
+		if (distances.length < k) distances = new double[k];
+		int found = 0;
+		int maxRing = Math.max(cols, rows);
+		for (int r = 0; r <= maxRing; r++) {
+			for (int gy = Math.max(cy - r, 0), lastRow = Math.min(cy + r, rows - 1); gy <= lastRow; gy++) {
+				// Whole rows at the top and bottom of the ring, else its two side cells
+				int step = (gy == cy - r || gy == cy + r) ? 1 : 2*r;
+				for (int gx = cx - r; gx <= cx + r; gx += Math.max(step, 1)) {
+					if (gx < 0 || gx >= cols) continue;
+					int c = gy*cols + gx;
+					for (int i = cellStart[c], end = cellStart[c] + cellCount[c]; i < end; i++) {
+						int other = cellCities[i];
+						if (other == city) continue;
+						double distance = coordinates.distance(city, other);
+						if (found == k && distance >= distances[k - 1]) continue;
+
+						// Insertion into the sorted list of neighbours
+						int j = found < k ? found++ : k - 1;
+						while (j > 0 && distances[j - 1] > distance) {
+							distances[j] = distances[j - 1];
+							neighbours[offset + j] = neighbours[offset + j - 1];
+							j--;
+						}
+						distances[j] = distance;
+						neighbours[offset + j] = other;
+					}
+				}
+			}
+			if (found == k && distances[k - 1] <= ringBound(r, x, y)) break;
+		}
+		return found;
+	}
+
+	/**
+	 * Returns a lower bound on the distance from a query point to the cities outside
+	 * the first rings. The box of the bound takes in the query point, which may lie
+	 * outside the grid.
+	 *
+	 * @param r index of the last ring searched
+	 * @param x x coordinate of the query point
+	 * @param y y coordinate of the query point
+	 * @return the bound, 0 if the metric gives none
+	 */
+	private double ringBound(int r, double x, double y){
+		if (r == 0) return 0;
+		return metric.separationBound(r*cellSize, Math.min(minX, x), Math.max(maxX, x), Math.min(minY, y), Math.max(maxY, y));
+	}
+
+	/**
+	 * Returns the cell of a point
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return cell index
+	 */
+	private int cell(double x, double y){
+		return row(y)*cols + col(x);
+	}
+
+	/**
+	 * Returns the grid column of an x coordinate
+	 *
+	 * @param x x coordinate
+	 * @return column, clamped to the grid
+	 */
+	private int col(double x){
+		return Math.max(0, Math.min(cols - 1, (int) ((x - minX)/cellSize)));
+	}
+
+	/**
+	 * Returns the grid row of a y coordinate
+	 *
+	 * @param y y coordinate
+	 * @return row, clamped to the grid
+	 */
+	private int row(double y){
+		return Math.max(0, Math.min(rows - 1, (int) ((y - minY)/cellSize)));
+	}
+}
@@ -0,0 +1,88 @@
+import java.util.Random;
+
+/**
+ * Class SplitRandom is a SplitMix64 pseudorandom number generator. Unlike
+ * java.util.Random it keeps its state in a plain field, so a generator owned by one
+ * thread costs no atomic update per number. Independent streams for the workers and
+ * islands of a job are derived from the job seed, which makes a run reproducible
+ * from its seed alone.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class SplitRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;	// Weyl sequence increment
+
+	private long state;		// Current state of the generator
+
+	/**
+	 * Parameterized constructor, creates a generator with the given seed
+	 *
+	 * @param seed Seed of the generator
+	 */
+	public SplitRandom(long seed){
+		super(0L);
+		this.state = seed;
+	}
+
+	/**
+	 * This method returns the generator for one stream of a job. Streams with
+	 * different ids are statistically independent of each other.
+	 *
+	 * @param seed Seed of the job
+	 * @param ids Identifiers of the stream, e.g. the worker rank and the island rank
+	 * @return generator for the stream
+	 */
+	public static SplitRandom stream(long seed, long... ids){
+		long streamSeed = mix64(seed);
+		for (int i = 0; i < ids.length; i++)
+			streamSeed = mix64(streamSeed ^ mix64(ids[i] + GOLDEN_GAMMA));
+		return new SplitRandom(streamSeed);
+	}
+
+	/**
+	 * This method sets the seed of the generator
+	 *
+	 * @param seed Seed of the generator
+	 */
+	@Override
+	public void setSeed(long seed){
+		this.state = seed;
+	}
+
+	/**
+	 * Returns the next pseudorandom long
+	 *
+	 * @return pseudorandom long
+	 */
+	@Override
+	public long nextLong(){
+		return mix64(state += GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Returns the next pseudorandom number with the given number of bits; all the
+	 * other methods inherited from java.util.Random are built on this one
+	 *
+	 * @param bits number of random bits
+	 * @return pseudorandom number
+	 */
+	@Override
+	protected int next(int bits){
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	/**
+	 * This method scrambles the bits of a long (the SplitMix64 finalizer)
+	 *
+	 * @param z value to scramble
+	 * @return scrambled value
+	 */
+	public static long mix64(long z){
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
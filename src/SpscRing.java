@@ -0,0 +1,100 @@
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class SpscRing is a bounded lock-free queue for one producer thread and one
+ * consumer thread. The producer writes a slot and then advances the tail, the
+ * consumer reads a slot and then advances the head; each index is written by one
+ * thread only, so an offer or a poll costs an ordered store instead of a lock.
+ * Each side caches the index of the other side and only rereads it when the ring
+ * looks full or empty.
+ * <P>
+ * The items must not be modified once offered, the ring carries the references.
+ *
+ * @param <T> type of the items
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class SpscRing<T> {
+
+	private Object[] buffer;							// Slots, a power of two
+	private int mask;									// buffer.length - 1
+	private AtomicLong head = new AtomicLong();			// Next slot to read, written by the consumer
+	private AtomicLong tail = new AtomicLong();			// Next slot to write, written by the producer
+	private long headCache;								// The producer's copy of head
+	private long tailCache;								// The consumer's copy of tail
+
+	/**
+	 * Parameterized constructor, creates an empty ring
+	 *
+	 * @param capacity minimum number of items the ring can hold, rounded up to a power of two
+	 */
+	public SpscRing(int capacity){
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.buffer = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * This method adds an item at the tail. Only the producer thread may call it.
+	 *
+	 * @param item the item, not null
+	 * @return false if the ring is full and the item was not added
+	 */
+	public boolean offer(T item){
+		long t = tail.get();
+		if (t - headCache == buffer.length) {
+			headCache = head.get();
+			if (t - headCache == buffer.length) return false;
+		}
+		buffer[(int) t & mask] = item;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * This method removes the item at the head. Only the consumer thread may call it.
+	 *
+	 * @return the item, or null if the ring is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll(){
+		long h = head.get();
+		if (h == tailCache) {
+			tailCache = tail.get();
+			if (h == tailCache) return null;
+		}
+		int slot = (int) h & mask;
+		T item = (T) buffer[slot];
+		buffer[slot] = null;
+		head.lazySet(h + 1);
+		return item;
+	}
+
+	/**
+	 * This method moves all the items in the ring to a collection. Only the consumer
+	 * thread may call it.
+	 *
+	 * @param collection collection receiving the items
+	 * @return number of items moved
+	 */
+	public int drainTo(Collection<? super T> collection){
+		int count = 0;
+		T item;
+		while ((item = poll()) != null) {
+			collection.add(item);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of items in the ring, only a snapshot while the other thread runs
+	 *
+	 * @return number of items
+	 */
+	public int size(){
+		return (int) (tail.get() - head.get());
+	}
+}
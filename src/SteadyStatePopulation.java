@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class SteadyStatePopulation runs a steady-state genetic algorithm. Instead of
+ * breeding a whole generation and then sorting and truncating the merged
+ * population, every step picks two parents by binary tournament, breeds two
+ * children by crossover and mutation, and lets each child replace the
+ * worst tour of the population if it is shorter and new. The worst tour is the top
+ * of an indexed max-heap on the tour lengths, so a replacement costs O(log
+ * populationSize) and the arena holds exactly one population.
+ * <P>
+ * A generation of startGA is as many steps as the adaptive controller asks
+ * crossover pairs for, so the generation counts of the modes compare.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class SteadyStatePopulation extends RowPopulation {
+
+	private IndexedHeap worst;		// Tour indexes, the longest tour on top
+
+	/**
+	 * Parameterized constructor to initialize tour, population arena and the
+	 * pseudorandom number generator
+	 *
+	 * @param tour contains the initial tour
+	 * @param populationSize the population size
+	 * @param prng pseudorandom number generator, owned by this population
+	 */
+	public SteadyStatePopulation(TravelingPath tour, int populationSize, Random prng){
+		super(tour, populationSize, prng, false, populationSize);
+		this.worst = new IndexedHeap(populationSize);
+	}
+
+	/**
+	 * This method creates the initial population from seed tours
+	 *
+	 * @param seeds tours of the cities of this population
+	 * @param seededFraction fraction of the population made from the seeds, 0 to 1
+	 */
+	public void createPopulation(List<TravelingPath> seeds, double seededFraction){
+		super.createPopulation(seeds, seededFraction);
+		worst.build(current.lengths, current.size);
+	}
+
+	/**
+	 * This method is the core method which starts the GA process.
+	 *
+	 * @param gaIterCount The iterations for genetic algorithm to run
+	 */
+	public void startGA(int gaIterCount){
+		if (current.size < 2) return;
+		for (int i = 0; i < gaIterCount; i++) {
+			int steps = controller.getCrossoverPairs(current.size);
+			for (int j = 0; j < steps; j++)
+				step();
+			trimLengthCache();
+			controller.endGeneration();
+		}
+	}
+
+	/**
+	 * This method breeds two children and lets them replace the worst tours
+	 */
+	private void step(){
+		int parent1 = tournament();
+		int parent2 = tournament();
+		for (int attempts = 0; parent1 == parent2 && attempts < 10; attempts++)
+			parent2 = tournament();
+		if (parent1 == parent2) return;
+		double bestParent = Math.min(current.lengths[parent1], current.lengths[parent2]);
+		crossover(parent1, parent2);
+		offspring(child1, bestParent);
+		offspring(child2, bestParent);
+	}
+
+	/**
+	 * This method evaluates a child, mutates it at the mutation rate and lets it
+	 * replace the worst tour
+	 *
+	 * @param child the child
+	 * @param bestParent length of the better parent
+	 */
+	private void offspring(int[] child, double bestParent){
+		long hash = tourHash.hash(child, 0, citySize);
+		double length = lengthOf(hash, child);
+		// A child succeeds when it is new and shorter than the better parent
+		controller.recordCrossover(length < bestParent && !members.contains(hash));
+
+		if (prng.nextInt(100) < controller.getMutationRate()) {
+			int operator = mutate(child);
+			long mutatedHash = tourHash.hash(child, 0, citySize);
+			double mutatedLength = lengthOf(mutatedHash, child);
+			controller.recordMutation(operator, mutatedLength < length && !members.contains(mutatedHash));
+			hash = mutatedHash;
+			length = mutatedLength;
+		}
+		replaceWorst(child, hash, length);
+	}
+
+	/**
+	 * This method replaces the worst tour by a tour that is shorter and not in the
+	 * population yet
+	 *
+	 * @param row the tour
+	 * @param hash hash of the tour
+	 * @param length length of the tour
+	 * @return true if the tour replaced the worst tour
+	 */
+	private boolean replaceWorst(int[] row, long hash, double length){
+		int tour = worst.top();
+		if (length >= current.lengths[tour] || members.contains(hash)) return false;
+		members.remove(current.hashes[tour]);
+		members.put(hash, length);
+		current.write(tour, row);
+		current.hashes[tour] = hash;
+		current.lengths[tour] = length;
+		worst.update(tour);
+		return true;
+	}
+
+	/**
+	 * This method picks the shorter of two random tours
+	 *
+	 * @return index of the tour
+	 */
+	private int tournament(){
+		int tour1 = prng.nextInt(current.size);
+		int tour2 = prng.nextInt(current.size);
+		return current.lengths[tour1] <= current.lengths[tour2] ? tour1 : tour2;
+	}
+
+	/**
+	 * This method receives the tour migrated from the peer node. A migrant replaces
+	 * the worst tour if it is shorter, or fills the population while it is not full.
+	 *
+	 * @param migrationPopulation Contains the migrated population
+	 */
+	public void receiveMigratingTours(ArrayList<TravelingPath> migrationPopulation){
+		for (int i = 0; i < Math.min(10, migrationPopulation.size()); i++) {
+			toRow(migrationPopulation.get(i), row1);
+			if (current.size < populationSize) {
+				if (append(row1)) worst.build(current.lengths, current.size);
+				continue;
+			}
+			long hash = tourHash.hash(row1, 0, citySize);
+			replaceWorst(row1, hash, lengthOf(hash, row1));
+		}
+	}
+}
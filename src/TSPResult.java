@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+
+/**
+ * Class TSPResult holds the best tour found by a TSPSolver and the statistics of the solve
+ * 
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ * 
+ */
+public class TSPResult {
+
+	private ArrayList<City> tour;	// Best tour, made of the cities given to the solver
+	private double length;			// Length of the best tour
+	private int epochs;				// Number of epochs run
+	private int generations;		// Number of generations run on every island
+	private long elapsedMillis;		// Wall clock time of the solve
+	
+	/**
+	 * Parameterized constructor, initializes the result
+	 * 
+	 * @param tour best tour
+	 * @param length length of the best tour
+	 * @param epochs number of epochs run
+	 * @param generations number of generations run on every island
+	 * @param elapsedMillis wall clock time of the solve in milliseconds
+	 */
+	public TSPResult(ArrayList<City> tour, double length, int epochs, int generations, long elapsedMillis){
+		this.tour = tour;
+		this.length = length;
+		this.epochs = epochs;
+		this.generations = generations;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Returns the best tour
+	 * 
+	 * @return cities in tour order
+	 */
+	public ArrayList<City> getTour() {
+		return tour;
+	}
+
+	/**
+	 * Returns the length of the best tour
+	 * 
+	 * @return length of the tour
+	 */
+	public double getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the number of epochs run
+	 * 
+	 * @return number of epochs
+	 */
+	public int getEpochs() {
+		return epochs;
+	}
+
+	/**
+	 * Returns the number of generations run on every island
+	 * 
+	 * @return number of generations
+	 */
+	public int getGenerations() {
+		return generations;
+	}
+
+	/**
+	 * Returns the wall clock time of the solve
+	 * 
+	 * @return elapsed time in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+}
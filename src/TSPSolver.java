@@ -0,0 +1,405 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class TSPSolver is the library entry point of the genetic algorithm. It runs the
+ * islands of an IslandEngine in the calling JVM, so a service can solve an instance
+ * without starting a pj2 job. Solvers are created with a Builder:
+ * <pre>
+ * TSPResult result = new TSPSolver.Builder()
+ *     .cities(cityList)
+ *     .populationSize(100)
+ *     .timeBudget(500)
+ *     .build()
+ *     .solve();
+ * </pre>
+ * Distances are measured with the metric selected in DistanceMetrics; the cities
+ * are numbered by their position in the list, which is also the row of an
+ * explicit distance matrix.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TSPSolver {
+
+	private ArrayList<City> cityList;		// Cities of the instance, as given
+	private boolean warmStart;				// True if cityList is a tour to start from
+	private List<String> seeding;			// Construction strategies of the seed tours
+	private double seedFraction;			// Fraction of every population made from the seeds
+	private String populationKind;			// Kind of island, see IslandFactory
+	private List<IslandProfile> portfolio;	// Profiles of the islands, null for identical islands
+	private int populationSize;
+	private int generationsPerEpoch;
+	private int maxEpochs;
+	private long timeBudget;				// Milliseconds, 0 for no limit
+	private int islands;
+	private int parallelism;
+	private int migrants;
+	private int polishWindow;				// Cities per window of the exact polish, 0 for none
+	private double backbone;				// Fraction of common elite edges that reduces the instance, 0 for none
+	private long seed;
+	private ProgressListener listener;
+
+	/**
+	 * Constructor used by the builder
+	 *
+	 * @param builder the builder
+	 */
+	private TSPSolver(Builder builder){
+		this.cityList = builder.cityList;
+		this.warmStart = builder.warmStart;
+		this.seeding = builder.seeding;
+		this.seedFraction = builder.seedFraction;
+		this.populationKind = builder.populationKind;
+		this.portfolio = builder.portfolio;
+		this.populationSize = builder.populationSize;
+		this.generationsPerEpoch = builder.generationsPerEpoch;
+		this.maxEpochs = builder.maxEpochs;
+		this.timeBudget = builder.timeBudget;
+		this.parallelism = builder.parallelism;
+		this.islands = builder.islands > 0 ? builder.islands : builder.parallelism;
+		this.migrants = builder.migrants;
+		this.polishWindow = builder.polishWindow;
+		this.backbone = builder.backbone;
+		this.seed = builder.seed;
+		this.listener = builder.listener;
+	}
+
+	/**
+	 * This method solves the instance. It runs epochs until the epoch limit or the
+	 * time budget is reached, or until the progress listener asks to stop.
+	 *
+	 * @return best tour and statistics of the solve
+	 */
+	public TSPResult solve(){
+		long start = System.currentTimeMillis();
+		int n = cityList.size();
+
+		// Too few cities for crossover, any order is optimal.
+		if( n < 4 ) {
+			TravelingPath path = new TravelingPath(cityList);
+			if( n > 0 ) path.calculateDistance();
+			return new TSPResult(new ArrayList<City>(cityList), path.getEuclideanDistance(), 0, 0,
+					System.currentTimeMillis() - start);
+		}
+
+		// The population works on cities numbered from 0, map them back at the end.
+		ArrayList<City> localCities = new ArrayList<City>(n);
+		for( int i = 0; i < n; i++ ) {
+			localCities.add(new City(cityList.get(i).x, cityList.get(i).y, cityList.get(i).z, i));
+		}
+
+		TravelingPath initTour = new TravelingPath(localCities);
+		ArrayList<TravelingPath> seeds = new ArrayList<TravelingPath>();
+		if( warmStart )
+			seeds.add(initTour);
+		else
+			seeds = TourConstruction.buildSeeds(seeding, initTour, parallelism);
+		IslandFactory factory = IslandFactory.forName(populationKind, Math.max(1, parallelism/islands));
+		if( portfolio != null )
+			factory = new PortfolioFactory(factory, portfolio, 0);
+		IslandEngine engine = new IslandEngine(initTour, seeds, warmStart ? 1 : seedFraction, factory, islands, 
+				populationSize, migrants, parallelism, seed, 0);
+		WindowOptimiser polisher = polishWindow > 0 ? new WindowOptimiser(initTour, polishWindow, parallelism) : null;
+		engine.setPolisher(polisher);
+		engine.setBackbone(backbone);
+		TravelingPath best;
+		try {
+			boolean proceed = true;
+			while( proceed && engine.getEpochs() < maxEpochs &&
+					( timeBudget == 0 || System.currentTimeMillis() - start < timeBudget ) ) {
+				engine.runEpoch(generationsPerEpoch);
+				if( listener != null ) {
+					proceed = listener.progress(engine.getEpochs(), System.currentTimeMillis() - start,
+							engine.getBestTour().getEuclideanDistance());
+				}
+			}
+			best = engine.getBestTour();
+		}
+		finally {
+			engine.shutdown();
+			if( polisher != null ) polisher.shutdown();
+		}
+
+		ArrayList<City> tour = new ArrayList<City>(n);
+		for( int i = 0; i < n; i++ ) {
+			tour.add(cityList.get(best.getCityList().get(i).id));
+		}
+		return new TSPResult(tour, best.getEuclideanDistance(), engine.getEpochs(),
+				engine.getEpochs()*generationsPerEpoch, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Class Builder collects the instance and the settings of a TSPSolver
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	public static class Builder {
+
+		private ArrayList<City> cityList;
+		private boolean warmStart;
+		private List<String> seeding	= new ArrayList<String>();
+		private double seedFraction		= 0.5;
+		private String populationKind	= "list";
+		private List<IslandProfile> portfolio;
+		private int populationSize		= 100;
+		private int generationsPerEpoch	= 50;
+		private int maxEpochs			= Integer.MAX_VALUE;
+		private long timeBudget			= 0;
+		private int islands				= 0;
+		private int parallelism			= Runtime.getRuntime().availableProcessors();
+		private int migrants			= 10;
+		private int polishWindow		= 0;
+		private double backbone			= 0;
+		private long seed				= System.nanoTime();
+		private ProgressListener listener;
+
+		/**
+		 * Sets the cities of the instance
+		 *
+		 * @param cityList cities of the instance
+		 * @return this builder
+		 */
+		public Builder cities(List<City> cityList){
+			this.cityList = new ArrayList<City>(cityList);
+			this.warmStart = false;
+			return this;
+		}
+
+		/**
+		 * Sets the cities of the instance from the best tour of a previous run and
+		 * the changes of the instance since then. The tour is repaired by cheapest
+		 * insertion and the populations are created around it. The result holds the
+		 * unchanged cities of the previous tour and the cities of the delta.
+		 *
+		 * @param previousTour best tour of the previous run
+		 * @param delta changes of the instance since the previous run
+		 * @return this builder
+		 */
+		public Builder warmStart(List<City> previousTour, TourDelta delta){
+			this.cityList = TourRepair.repair(previousTour, delta);
+			this.warmStart = true;
+			return this;
+		}
+
+		/**
+		 * Sets the cities of the instance from a point group
+		 *
+		 * @param pg point group, all of its points are read
+		 * @return this builder
+		 */
+		public Builder pointGroup(PointGroup pg){
+			ArrayList<City> cities = new ArrayList<City>(pg.N());
+			City city = new City();
+			for( int i = 0; i < pg.N(); i++ ) {
+				pg.nextPoint(city);
+				cities.add(new City(city.x, city.y, city.z, i));
+			}
+			this.cityList = cities;
+			this.warmStart = false;
+			return this;
+		}
+
+		/**
+		 * Sets the construction strategies of the tours the populations are seeded
+		 * with, see TourConstruction. Ignored for a warm start.
+		 *
+		 * @param strategies names of the strategies
+		 * @return this builder
+		 */
+		public Builder seeding(String... strategies){
+			this.seeding = Arrays.asList(strategies);
+			return this;
+		}
+
+		/**
+		 * Sets the fraction of every population made from the seed tours
+		 *
+		 * @param seedFraction fraction, 0 to 1 (default 0.5)
+		 * @return this builder
+		 */
+		public Builder seedFraction(double seedFraction){
+			this.seedFraction = seedFraction;
+			return this;
+		}
+
+		/**
+		 * Sets how the islands store and breed their tours, see IslandFactory
+		 *
+		 * @param populationKind list, arena, offheap, steady or cellular (default list)
+		 * @return this builder
+		 */
+		public Builder populationKind(String populationKind){
+			this.populationKind = populationKind;
+			return this;
+		}
+
+		/**
+		 * Sets the profiles of the islands, which island i takes in turn, see
+		 * IslandProfile
+		 *
+		 * @param portfolio the profiles, null for identical islands (default null)
+		 * @return this builder
+		 */
+		public Builder portfolio(List<IslandProfile> portfolio){
+			this.portfolio = portfolio == null ? null : new ArrayList<IslandProfile>(portfolio);
+			return this;
+		}
+
+		/**
+		 * Sets the population size of every island
+		 *
+		 * @param populationSize population size
+		 * @return this builder
+		 */
+		public Builder populationSize(int populationSize){
+			this.populationSize = populationSize;
+			return this;
+		}
+
+		/**
+		 * Sets the number of generations between two migrations
+		 *
+		 * @param generationsPerEpoch generations per epoch
+		 * @return this builder
+		 */
+		public Builder generationsPerEpoch(int generationsPerEpoch){
+			this.generationsPerEpoch = generationsPerEpoch;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of epochs
+		 *
+		 * @param maxEpochs maximum number of epochs
+		 * @return this builder
+		 */
+		public Builder maxEpochs(int maxEpochs){
+			this.maxEpochs = maxEpochs;
+			return this;
+		}
+
+		/**
+		 * Sets the time budget. The epoch running when the budget runs out is finished.
+		 *
+		 * @param millis time budget in milliseconds
+		 * @return this builder
+		 */
+		public Builder timeBudget(long millis){
+			this.timeBudget = millis;
+			return this;
+		}
+
+		/**
+		 * Sets the number of islands, by default one per thread
+		 *
+		 * @param islands number of islands
+		 * @return this builder
+		 */
+		public Builder islands(int islands){
+			this.islands = islands;
+			return this;
+		}
+
+		/**
+		 * Sets the number of threads, by default one per core
+		 *
+		 * @param parallelism number of threads
+		 * @return this builder
+		 */
+		public Builder parallelism(int parallelism){
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Sets the window of the exact polish of the best tour after every epoch,
+		 * see WindowOptimiser
+		 *
+		 * @param polishWindow cities per window, 2 to 16, 0 for no polish (default 0)
+		 * @return this builder
+		 */
+		public Builder polishWindow(int polishWindow){
+			this.polishWindow = polishWindow;
+			return this;
+		}
+
+		/**
+		 * Sets the fraction of the edges that must be common to the elite tours
+		 * before the search continues on the reduced instance, see BackboneReducer
+		 *
+		 * @param backbone fraction, 0 to 1, 0 for no reduction (default 0)
+		 * @return this builder
+		 */
+		public Builder backbone(double backbone){
+			this.backbone = backbone;
+			return this;
+		}
+
+		/**
+		 * Sets the number of tours migrating between neighbouring islands
+		 *
+		 * @param migrants number of migrating tours
+		 * @return this builder
+		 */
+		public Builder migrants(int migrants){
+			this.migrants = migrants;
+			return this;
+		}
+
+		/**
+		 * Sets the seed of the random streams, for reproducible solves
+		 *
+		 * @param seed the seed
+		 * @return this builder
+		 */
+		public Builder seed(long seed){
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * Sets the listener that is called after every epoch
+		 *
+		 * @param listener progress listener
+		 * @return this builder
+		 */
+		public Builder progressListener(ProgressListener listener){
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * This method creates the solver
+		 *
+		 * @return the solver
+		 *
+		 * @exception IllegalArgumentException Thrown if the settings are invalid
+		 */
+		public TSPSolver build(){
+			if( cityList == null )
+				throw new IllegalArgumentException("No cities given");
+			if( populationSize < 2 || generationsPerEpoch < 1 || parallelism < 1 || islands < 0 || migrants < 0 )
+				throw new IllegalArgumentException("Invalid solver settings");
+			if( seedFraction < 0 || seedFraction > 1 )
+				throw new IllegalArgumentException("Seed fraction must be between 0 and 1");
+			for( int i = 0; i < seeding.size(); i++ ) {
+				if( !TourConstruction.isStrategy(seeding.get(i)) )
+					throw new IllegalArgumentException("Unknown seeding " + seeding.get(i));
+			}
+			if( !IslandFactory.isKind(populationKind) )
+				throw new IllegalArgumentException("Unknown population kind " + populationKind);
+			if( polishWindow != 0 && ( polishWindow < 2 || polishWindow > WindowOptimiser.MAX_WINDOW ) )
+				throw new IllegalArgumentException("Polish window must be 0 or between 2 and " + WindowOptimiser.MAX_WINDOW);
+			if( backbone < 0 || backbone > 1 )
+				throw new IllegalArgumentException("Backbone fraction must be between 0 and 1");
+			if( portfolio != null && portfolio.isEmpty() )
+				throw new IllegalArgumentException("Empty portfolio");
+			if( maxEpochs == Integer.MAX_VALUE && timeBudget <= 0 && listener == null )
+				throw new IllegalArgumentException("No epoch limit, time budget or progress listener given");
+			return new TSPSolver(this);
+		}
+	}
+}
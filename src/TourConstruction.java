@@ -0,0 +1,470 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class TourConstruction builds good tours quickly, to seed the initial populations
+ * of the genetic algorithm. The strategies are
+ * <UL>
+ * <LI> hilbert: the cities in the order of a Hilbert space-filling curve, O(n log n)
+ * <LI> greedy: the greedy edge matching over the candidate edges, with the fragments
+ * joined by a nearest neighbour walk over their end points
+ * <LI> christofides: a shortcut Euler tour of a spanning tree of the candidate edges
+ * plus a greedy matching of its odd degree cities, in the style of Christofides
+ * </UL>
+ * Cities are addressed by their ids, as in CityCoordinates.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TourConstruction {
+
+	public static final String HILBERT = "hilbert";
+	public static final String GREEDY = "greedy";
+	public static final String CHRISTOFIDES = "christofides";
+
+	private static final int CANDIDATES = 10;		// Candidate edges per city
+	private static final int HILBERT_ORDER = 16;	// Bits per axis of the Hilbert curve
+
+	/**
+	 * This method tells whether a name is a construction strategy
+	 *
+	 * @param strategy name of the strategy
+	 * @return true if the strategy exists
+	 */
+	public static boolean isStrategy(String strategy){
+		return HILBERT.equals(strategy) || GREEDY.equals(strategy) || CHRISTOFIDES.equals(strategy);
+	}
+
+	/**
+	 * This method builds a tour with one strategy
+	 *
+	 * @param strategy name of the strategy
+	 * @param tour any tour of the cities
+	 * @return the constructed tour, holding the same city objects
+	 *
+	 * @exception IllegalArgumentException Thrown if the strategy does not exist
+	 */
+	public static TravelingPath build(String strategy, TravelingPath tour){
+		ArrayList<City> cityList = tour.getCityList();
+		CityCoordinates coordinates = new CityCoordinates(cityList);
+		int[] ids = new int[cityList.size()];
+		City[] cityById = new City[coordinates.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = cityList.get(i).id;
+			cityById[ids[i]] = cityList.get(i);
+		}
+
+		int[] order;
+		if (ids.length < 4)
+			order = ids;
+		else if (HILBERT.equals(strategy))
+			order = hilbertOrder(coordinates, ids);
+		else if (GREEDY.equals(strategy))
+			order = greedyEdgeTour(coordinates, ids, new CandidateLists(coordinates, ids, CANDIDATES));
+		else if (CHRISTOFIDES.equals(strategy))
+			order = christofidesTour(coordinates, ids, new CandidateLists(coordinates, ids, CANDIDATES));
+		else
+			throw new IllegalArgumentException("Unknown construction strategy " + strategy);
+
+		ArrayList<City> result = new ArrayList<City>(order.length);
+		for (int i = 0; i < order.length; i++)
+			result.add(cityById[order[i]]);
+		TravelingPath path = new TravelingPath(result);
+		path.setEuclideanDistance(coordinates.tourLength(result));
+		return path;
+	}
+
+	/**
+	 * This method builds one tour per strategy, the strategies running in parallel
+	 *
+	 * @param strategies names of the strategies
+	 * @param tour any tour of the cities
+	 * @param parallelism number of threads
+	 * @return the constructed tours, in the order of the strategies
+	 *
+	 * @exception IllegalArgumentException Thrown if a strategy does not exist
+	 */
+	public static ArrayList<TravelingPath> buildSeeds(List<String> strategies, final TravelingPath tour, int parallelism){
+		ArrayList<Callable<TravelingPath>> builders = new ArrayList<Callable<TravelingPath>>();
+		for (int i = 0; i < strategies.size(); i++) {
+			final String strategy = strategies.get(i);
+			if (!isStrategy(strategy))
+				throw new IllegalArgumentException("Unknown construction strategy " + strategy);
+			builders.add(new Callable<TravelingPath>(){
+				public TravelingPath call(){
+					return build(strategy, tour);
+				}
+			});
+		}
+
+		ArrayList<TravelingPath> seeds = new ArrayList<TravelingPath>(strategies.size());
+		if (builders.isEmpty()) return seeds;
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, builders.size())));
+		try {
+			List<Future<TravelingPath>> results = pool.invokeAll(builders);
+			for (int i = 0; i < results.size(); i++)
+				seeds.add(results.get(i).get());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while building the seed tours", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Building a seed tour failed", e.getCause());
+		}
+		finally {
+			pool.shutdown();
+		}
+		return seeds;
+	}
+
+	/**
+	 * This method orders cities along a Hilbert curve laid over their bounding box.
+	 * Cities close on the curve are close in the plane, so the order is a tour about
+	 * 25% longer than the optimum on uniform instances.
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities
+	 * @return the ids in curve order
+	 */
+	public static int[] hilbertOrder(CityCoordinates coordinates, int[] ids){
+		double[] xs = coordinates.getXs();
+		double[] ys = coordinates.getYs();
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < ids.length; i++) {
+			minX = Math.min(minX, xs[ids[i]]);
+			minY = Math.min(minY, ys[ids[i]]);
+			maxX = Math.max(maxX, xs[ids[i]]);
+			maxY = Math.max(maxY, ys[ids[i]]);
+		}
+		// Same scale on both axes, so the curve does not distort the instance
+		int side = (1 << HILBERT_ORDER) - 1;
+		double scale = side/Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+
+		// Sort by curve index, the position in ids breaks ties
+		long[] keys = new long[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			int x = (int) ((xs[ids[i]] - minX)*scale);
+			int y = (int) ((ys[ids[i]] - minY)*scale);
+			keys[i] = hilbertIndex(x, y, HILBERT_ORDER) << 32 | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			order[i] = ids[(int) keys[i]];
+		return order;
+	}
+
+	/**
+	 * This method returns the distance along a Hilbert curve of a grid point
+	 *
+	 * @param x x coordinate, 0 to 2^order - 1
+	 * @param y y coordinate, 0 to 2^order - 1
+	 * @param order bits per coordinate
+	 * @return index of the point on the curve
+	 */
+	public static long hilbertIndex(int x, int y, int order){
+		int n = 1 << order;
+		long d = 0;
+		for (int s = n >> 1; s > 0; s >>= 1) {
+			int rx = (x & s) != 0 ? 1 : 0;
+			int ry = (y & s) != 0 ? 1 : 0;
+			d += (long) s*s*((3*rx) ^ ry);
+
+			// Rotate the quadrant, so the curve continues in the same orientation
+			if (ry == 0) {
+				if (rx == 1) {
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * This method builds a tour by greedy edge matching: candidate edges are taken
+	 * shortest first unless they give a city a third edge or close a cycle. The
+	 * resulting paths are joined into a tour by a nearest neighbour walk.
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities
+	 * @param candidates candidate lists of the cities
+	 * @return the ids in tour order
+	 */
+	public static int[] greedyEdgeTour(CityCoordinates coordinates, int[] ids, CandidateLists candidates){
+		int size = coordinates.size();
+		int[] adjacent = new int[2*size];
+		Arrays.fill(adjacent, -1);
+		int[] degree = new int[size];
+		int[] parent = newUnionFind(size);
+
+		int[] from = new int[ids.length*candidates.getK()];
+		int[] to = new int[from.length];
+		long[] keys = sortedCandidateEdges(coordinates, ids, candidates, from, to);
+		for (int i = 0; i < keys.length; i++) {
+			int edge = (int) keys[i];
+			int a = from[edge], b = to[edge];
+			if (degree[a] == 2 || degree[b] == 2 || !union(parent, a, b)) continue;
+			adjacent[2*a + degree[a]++] = b;
+			adjacent[2*b + degree[b]++] = a;
+		}
+		return joinFragments(coordinates, ids, adjacent, degree);
+	}
+
+	/**
+	 * This method joins paths into a tour. Starting from an end point it walks along
+	 * its path and then jumps to the nearest end point of a path not yet visited.
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities
+	 * @param adjacent the up to two neighbours of every city on its path, -1 for none
+	 * @param degree number of neighbours of every city
+	 * @return the ids in tour order
+	 */
+	private static int[] joinFragments(CityCoordinates coordinates, int[] ids, int[] adjacent, int[] degree){
+		int endCount = 0;
+		for (int i = 0; i < ids.length; i++)
+			if (degree[ids[i]] < 2) endCount++;
+		int[] ends = new int[endCount];
+		for (int i = 0, j = 0; i < ids.length; i++)
+			if (degree[ids[i]] < 2) ends[j++] = ids[i];
+		SpatialGrid grid = new SpatialGrid(coordinates, ends, 2);
+
+		int[] tour = new int[ids.length];
+		int position = 0;
+		int current = ends[0];
+		while (true) {
+			grid.remove(current);
+			int previous = -1, city = current;
+			while (true) {
+				tour[position++] = city;
+				int next = adjacent[2*city] != previous ? adjacent[2*city] : adjacent[2*city + 1];
+				if (next == -1) break;
+				previous = city;
+				city = next;
+			}
+			if (city != current) grid.remove(city);
+			if (grid.size() == 0) break;
+			current = grid.nearest(city);
+		}
+		return tour;
+	}
+
+	/**
+	 * This method builds a tour in the style of Christofides: a spanning tree of the
+	 * candidate edges, plus a greedy nearest neighbour matching of the cities of odd
+	 * degree in place of the minimum weight matching, gives an Euler graph whose
+	 * Euler tour is shortcut into a tour.
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities
+	 * @param candidates candidate lists of the cities
+	 * @return the ids in tour order
+	 */
+	public static int[] christofidesTour(CityCoordinates coordinates, int[] ids, CandidateLists candidates){
+		int n = ids.length;
+		int size = coordinates.size();
+		int[] edgeA = new int[n + n/2];
+		int[] edgeB = new int[edgeA.length];
+		int edges = 0;
+		int[] degree = new int[size];
+		int[] parent = newUnionFind(size);
+
+		// Kruskal over the candidate edges gives a minimum spanning forest
+		int[] from = new int[n*candidates.getK()];
+		int[] to = new int[from.length];
+		long[] keys = sortedCandidateEdges(coordinates, ids, candidates, from, to);
+		for (int i = 0; i < keys.length && edges < n - 1; i++) {
+			int edge = (int) keys[i];
+			if (!union(parent, from[edge], to[edge])) continue;
+			edgeA[edges] = from[edge];
+			edgeB[edges++] = to[edge];
+		}
+
+		// Link the trees of the forest along the Hilbert curve
+		int[] order = hilbertOrder(coordinates, ids);
+		for (int i = 1; i < n && edges < n - 1; i++) {
+			if (!union(parent, order[i - 1], order[i])) continue;
+			edgeA[edges] = order[i - 1];
+			edgeB[edges++] = order[i];
+		}
+		for (int e = 0; e < edges; e++) {
+			degree[edgeA[e]]++;
+			degree[edgeB[e]]++;
+		}
+
+		// Match every odd degree city with the nearest odd degree city left
+		int oddCount = 0;
+		for (int i = 0; i < n; i++)
+			if ((degree[order[i]] & 1) == 1) oddCount++;
+		int[] odd = new int[oddCount];
+		for (int i = 0, j = 0; i < n; i++)
+			if ((degree[order[i]] & 1) == 1) odd[j++] = order[i];
+		SpatialGrid grid = new SpatialGrid(coordinates, odd, 2);
+		boolean[] matched = new boolean[size];
+		for (int i = 0; i < oddCount; i++) {
+			if (matched[odd[i]]) continue;
+			grid.remove(odd[i]);
+			int mate = grid.nearest(odd[i]);
+			grid.remove(mate);
+			matched[odd[i]] = matched[mate] = true;
+			edgeA[edges] = odd[i];
+			edgeB[edges++] = mate;
+		}
+
+		return shortcut(eulerTour(ids[0], edgeA, edgeB, edges, size), size, n);
+	}
+
+	/**
+	 * This method finds an Euler tour of a connected graph whose cities all have
+	 * even degree, by Hierholzer's algorithm
+	 *
+	 * @param start id of the first city
+	 * @param edgeA first city of every edge
+	 * @param edgeB second city of every edge
+	 * @param edges number of edges
+	 * @param size size of the id range
+	 * @return the cities of the Euler tour, the first city repeated at the end
+	 */
+	private static int[] eulerTour(int start, int[] edgeA, int[] edgeB, int edges, int size){
+		// Incidence lists of the cities, in one flat array
+		int[] first = new int[size + 1];
+		for (int e = 0; e < edges; e++) {
+			first[edgeA[e] + 1]++;
+			first[edgeB[e] + 1]++;
+		}
+		for (int c = 0; c < size; c++)
+			first[c + 1] += first[c];
+		int[] incident = new int[2*edges];
+		int[] next = Arrays.copyOf(first, size);
+		for (int e = 0; e < edges; e++) {
+			incident[next[edgeA[e]]++] = e;
+			incident[next[edgeB[e]]++] = e;
+		}
+
+		// Follow unused edges, backing up to extend the tour when a city is exhausted
+		boolean[] used = new boolean[edges];
+		int[] stack = new int[edges + 1];
+		int[] tour = new int[edges + 1];
+		int top = 0, length = 0;
+		int[] cursor = Arrays.copyOf(first, size);
+		stack[top++] = start;
+		while (top > 0) {
+			int city = stack[top - 1];
+			while (cursor[city] < first[city + 1] && used[incident[cursor[city]]])
+				cursor[city]++;
+			if (cursor[city] == first[city + 1]) {
+				tour[length++] = city;
+				top--;
+			}
+			else {
+				int e = incident[cursor[city]++];
+				used[e] = true;
+				stack[top++] = edgeA[e] == city ? edgeB[e] : edgeA[e];
+			}
+		}
+		return tour;
+	}
+
+	/**
+	 * This method turns a walk visiting every city into a tour, by skipping the
+	 * cities visited before
+	 *
+	 * @param walk the walk
+	 * @param size size of the id range
+	 * @param n number of cities
+	 * @return the ids in tour order
+	 */
+	private static int[] shortcut(int[] walk, int size, int n){
+		boolean[] visited = new boolean[size];
+		int[] tour = new int[n];
+		int position = 0;
+		for (int i = 0; i < walk.length && position < n; i++) {
+			if (visited[walk[i]]) continue;
+			visited[walk[i]] = true;
+			tour[position++] = walk[i];
+		}
+		return tour;
+	}
+
+	/**
+	 * This method lists the candidate edges, sorted from shortest to longest
+	 *
+	 * @param coordinates coordinates of the cities indexed by city id
+	 * @param ids ids of the cities
+	 * @param candidates candidate lists of the cities
+	 * @param from array receiving the first city of every edge
+	 * @param to array receiving the second city of every edge
+	 * @return edge indexes in the low 32 bits, sorted by length
+	 */
+	private static long[] sortedCandidateEdges(CityCoordinates coordinates, int[] ids, CandidateLists candidates,
+			int[] from, int[] to){
+		int edges = 0;
+		for (int i = 0; i < ids.length; i++) {
+			int a = ids[i];
+			for (int j = 0; j < candidates.count(a); j++) {
+				from[edges] = a;
+				to[edges++] = candidates.get(a, j);
+			}
+		}
+		// Non-negative floats order like their bit patterns
+		long[] keys = new long[edges];
+		for (int e = 0; e < edges; e++)
+			keys[e] = (long) Float.floatToIntBits((float) coordinates.distance(from[e], to[e])) << 32 | e;
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	/**
+	 * This method creates a union-find structure of single cities
+	 *
+	 * @param size size of the id range
+	 * @return the parent of every city
+	 */
+	private static int[] newUnionFind(int size){
+		int[] parent = new int[size];
+		for (int i = 0; i < size; i++)
+			parent[i] = i;
+		return parent;
+	}
+
+	/**
+	 * This method merges the sets of two cities
+	 *
+	 * @param parent the union-find structure
+	 * @param a first city
+	 * @param b second city
+	 * @return false if the cities already were in the same set
+	 */
+	private static boolean union(int[] parent, int a, int b){
+		int rootA = find(parent, a), rootB = find(parent, b);
+		if (rootA == rootB) return false;
+		parent[rootA] = rootB;
+		return true;
+	}
+
+	/**
+	 * This method finds the set of a city, halving the path on the way
+	 *
+	 * @param parent the union-find structure
+	 * @param city the city
+	 * @return root of the set
+	 */
+	private static int find(int[] parent, int city){
+		while (parent[city] != city) {
+			parent[city] = parent[parent[city]];
+			city = parent[city];
+		}
+		return city;
+	}
+}
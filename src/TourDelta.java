@@ -0,0 +1,149 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Class TourDelta describes how the cities of an instance changed since a previous
+ * run: the ids of the deleted cities, the inserted cities and the cities that moved
+ * to new coordinates
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TourDelta {
+
+	private HashSet<Integer> deleted	= new HashSet<Integer>();	// Ids of the deleted cities
+	private ArrayList<City> inserted	= new ArrayList<City>();	// New cities
+	private ArrayList<City> moved		= new ArrayList<City>();	// Cities with their new coordinates
+
+	/**
+	 * Default constructor, creates an empty delta
+	 */
+	public TourDelta(){
+
+	}
+
+	/**
+	 * This method computes the delta between the cities of a previous tour and the
+	 * current cities. Cities are matched by id; a city whose coordinates differ has
+	 * moved.
+	 *
+	 * @param previousTour cities of the previous tour, with their old coordinates
+	 * @param currentCities current cities of the instance
+	 * @return the delta
+	 */
+	public static TourDelta between(List<City> previousTour, List<City> currentCities){
+		TourDelta delta = new TourDelta();
+		HashMap<Integer, City> current = new HashMap<Integer, City>();
+		for (int i = 0; i < currentCities.size(); i++)
+			current.put(currentCities.get(i).id, currentCities.get(i));
+
+		HashSet<Integer> previous = new HashSet<Integer>();
+		for (int i = 0; i < previousTour.size(); i++) {
+			City city = previousTour.get(i);
+			previous.add(city.id);
+			City now = current.get(city.id);
+			if (now == null)
+				delta.delete(city.id);
+			else if (now.x != city.x || now.y != city.y || now.z != city.z)
+				delta.move(now);
+		}
+		for (int i = 0; i < currentCities.size(); i++)
+			if (!previous.contains(currentCities.get(i).id))
+				delta.insert(currentCities.get(i));
+		return delta;
+	}
+
+	/**
+	 * This method reads a tour written one city per line as {@literal "<id> <x> <y>"},
+	 * or as {@literal "<id> <x> <y> <z>"} for cities in three dimensions
+	 *
+	 * @param fileName name of the tour file
+	 * @return cities in tour order
+	 * @throws IOException Thrown if the file cannot be read
+	 */
+	public static ArrayList<City> readTour(String fileName) throws IOException {
+		ArrayList<City> tour = new ArrayList<City>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) continue;
+				String[] fields = line.trim().split("\\s+");
+				tour.add(new City(Double.parseDouble(fields[1]), Double.parseDouble(fields[2]),
+						fields.length > 3 ? Double.parseDouble(fields[3]) : 0, Integer.parseInt(fields[0])));
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return tour;
+	}
+
+	/**
+	 * This method records a deleted city
+	 *
+	 * @param id id of the deleted city
+	 */
+	public void delete(int id){
+		deleted.add(id);
+	}
+
+	/**
+	 * This method records a new city
+	 *
+	 * @param city the new city
+	 */
+	public void insert(City city){
+		inserted.add(city);
+	}
+
+	/**
+	 * This method records a city that moved
+	 *
+	 * @param city the city with its new coordinates
+	 */
+	public void move(City city){
+		moved.add(city);
+	}
+
+	/**
+	 * Returns the ids of the deleted cities
+	 *
+	 * @return deleted ids
+	 */
+	public HashSet<Integer> getDeleted(){
+		return deleted;
+	}
+
+	/**
+	 * Returns the new cities
+	 *
+	 * @return inserted cities
+	 */
+	public ArrayList<City> getInserted(){
+		return inserted;
+	}
+
+	/**
+	 * Returns the cities that moved, with their new coordinates
+	 *
+	 * @return moved cities
+	 */
+	public ArrayList<City> getMoved(){
+		return moved;
+	}
+
+	/**
+	 * Returns the number of changed cities
+	 *
+	 * @return size of the delta
+	 */
+	public int size(){
+		return deleted.size() + inserted.size() + moved.size();
+	}
+}
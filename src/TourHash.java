@@ -0,0 +1,194 @@
+import java.util.List;
+
+/**
+ * Class TourHash computes a Zobrist style hash of a tour over its undirected edges.
+ * Every edge gets a pseudorandom key and the hash of a tour is the XOR of the keys
+ * of its edges, so all rotations and both directions of a tour hash alike, and a
+ * move that replaces a few edges updates the hash in constant time.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TourHash {
+
+	private static final long KEY_SEED = 0x5deece66dL;	// Same keys in every process of a job
+
+	private static volatile TourHash shared = new TourHash(0);	// Largest key set created so far
+
+	private long[] keys;	// Pseudorandom key of every city, indexed by city id
+
+	/**
+	 * Parameterized constructor, creates the keys of the cities
+	 *
+	 * @param size number of cities, one more than the largest city id
+	 */
+	public TourHash(int size){
+		keys = new long[size];
+		SplitRandom prng = new SplitRandom(KEY_SEED);
+		for (int i = 0; i < size; i++)
+			keys[i] = prng.nextLong();
+	}
+
+	/**
+	 * This method returns a TourHash for at least the given number of cities. The
+	 * keys only depend on the city id, so one immutable key set serves every
+	 * population and thread of the process and is only replaced when a larger
+	 * instance comes along.
+	 *
+	 * @param size number of cities, one more than the largest city id
+	 * @return shared TourHash
+	 */
+	public static TourHash shared(int size){
+		TourHash hash = shared;
+		if (hash.keys.length < size) {
+			hash = new TourHash(size);
+			shared = hash;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the key of the undirected edge between two cities
+	 *
+	 * @param city1 id of city one
+	 * @param city2 id of city two
+	 * @return key of the edge
+	 */
+	public long edgeKey(int city1, int city2){
+		return SplitRandom.mix64(keys[city1] + keys[city2]);
+	}
+
+	/**
+	 * This method computes the hash of a tour
+	 *
+	 * @param cityList cities in tour order
+	 * @return hash of the tour
+	 */
+	public long hash(List<City> cityList){
+		int size = cityList.size();
+		long hash = 0;
+		int previous = cityList.get(size - 1).id;
+		for (int i = 0; i < size; i++) {
+			int current = cityList.get(i).id;
+			hash ^= edgeKey(previous, current);
+			previous = current;
+		}
+		return hash;
+	}
+
+	/**
+	 * This method computes the hash of a tour stored as city ids in
+	 * tour[offset] .. tour[offset+size-1]
+	 *
+	 * @param tour city ids in tour order
+	 * @param offset index of the first city of the tour
+	 * @param size number of cities in the tour
+	 * @return hash of the tour
+	 */
+	public long hash(int[] tour, int offset, int size){
+		long hash = 0;
+		int previous = tour[offset + size - 1];
+		for (int i = offset; i < offset + size; i++) {
+			hash ^= edgeKey(previous, tour[i]);
+			previous = tour[i];
+		}
+		return hash;
+	}
+
+	/**
+	 * This method swaps the cities at two positions of a tour and returns the
+	 * updated hash of the tour
+	 *
+	 * @param hash hash of the tour before the swap
+	 * @param cityList cities in tour order, modified in place
+	 * @param pos1 first position
+	 * @param pos2 second position
+	 * @return hash of the tour after the swap
+	 */
+	public long swap(long hash, List<City> cityList, int pos1, int pos2){
+		int size = cityList.size();
+
+		// The edges leaving positions pos1-1, pos1, pos2-1 and pos2 are replaced,
+		// an edge shared by both cities is only counted once.
+		int e1 = (pos1 - 1 + size) % size, e2 = pos1;
+		int e3 = (pos2 - 1 + size) % size, e4 = pos2;
+		boolean use3 = e3 != e1 && e3 != e2;
+		boolean use4 = e4 != e1 && e4 != e2;
+
+		hash ^= edgeAt(cityList, e1) ^ edgeAt(cityList, e2);
+		if (use3) hash ^= edgeAt(cityList, e3);
+		if (use4) hash ^= edgeAt(cityList, e4);
+
+		City temp = cityList.get(pos1);
+		cityList.set(pos1, cityList.get(pos2));
+		cityList.set(pos2, temp);
+
+		hash ^= edgeAt(cityList, e1) ^ edgeAt(cityList, e2);
+		if (use3) hash ^= edgeAt(cityList, e3);
+		if (use4) hash ^= edgeAt(cityList, e4);
+		return hash;
+	}
+
+	/**
+	 * This method reverses the cities between two positions of a tour and returns
+	 * the updated hash of the tour. Only the two edges at the ends of the reversed
+	 * section change, the edges inside it are undirected.
+	 *
+	 * @param hash hash of the tour before the reversal
+	 * @param cityList cities in tour order, modified in place
+	 * @param from first position of the section
+	 * @param to last position of the section, not smaller than from
+	 * @return hash of the tour after the reversal
+	 */
+	public long reverse(long hash, List<City> cityList, int from, int to){
+		int size = cityList.size();
+		int before = (from - 1 + size) % size;
+		hash ^= edgeAt(cityList, before) ^ edgeAt(cityList, to);
+		for (int i = from, j = to; i < j; i++, j--) {
+			City temp = cityList.get(i);
+			cityList.set(i, cityList.get(j));
+			cityList.set(j, temp);
+		}
+		hash ^= edgeAt(cityList, before) ^ edgeAt(cityList, to);
+		return hash;
+	}
+
+	/**
+	 * This method moves the city at one position of a tour to another position and
+	 * returns the updated hash of the tour. The move is undone by moving the city
+	 * from the second position back to the first one.
+	 *
+	 * @param hash hash of the tour before the move
+	 * @param cityList cities in tour order, modified in place
+	 * @param from position of the city
+	 * @param to position of the city after the move
+	 * @return hash of the tour after the move
+	 */
+	public long move(long hash, List<City> cityList, int from, int to){
+		int size = cityList.size();
+
+		// Close the gap left by the city
+		int previous = cityList.get((from - 1 + size) % size).id;
+		int next = cityList.get((from + 1) % size).id;
+		City city = cityList.remove(from);
+		hash ^= edgeKey(previous, city.id) ^ edgeKey(city.id, next) ^ edgeKey(previous, next);
+
+		// Insert the city between its new neighbours
+		previous = cityList.get((to - 1 + size - 1) % (size - 1)).id;
+		next = cityList.get(to % (size - 1)).id;
+		cityList.add(to, city);
+		hash ^= edgeKey(previous, next) ^ edgeKey(previous, city.id) ^ edgeKey(city.id, next);
+		return hash;
+	}
+
+	/**
+	 * Returns the key of the edge from the given position to the next one
+	 *
+	 * @param cityList cities in tour order
+	 * @param pos position of the first city of the edge
+	 * @return key of the edge
+	 */
+	private long edgeAt(List<City> cityList, int pos){
+		return edgeKey(cityList.get(pos).id, cityList.get((pos + 1) % cityList.size()).id);
+	}
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+
+/**
+ * Class TourHashTable is an open addressing hash table from tour hashes to tour
+ * lengths. It is used both as the set of tours already in a population and as a
+ * cache of the lengths of tours evaluated before.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TourHashTable {
+
+	private long[] keys;		// Tour hashes, 0 marks an empty slot
+	private double[] values;	// Tour lengths
+	private int size;			// Number of entries
+	private int mask;			// Capacity minus one
+
+	/**
+	 * Parameterized constructor, creates an empty table
+	 *
+	 * @param expectedSize number of entries the table should hold without growing
+	 */
+	public TourHashTable(int expectedSize){
+		int capacity = 16;
+		while (capacity < 2*expectedSize) capacity <<= 1;
+		keys = new long[capacity];
+		values = new double[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Tells whether the table holds the given tour hash
+	 *
+	 * @param hash hash of the tour
+	 * @return true if the hash is present
+	 */
+	public boolean contains(long hash){
+		return keys[find(key(hash))] != 0;
+	}
+
+	/**
+	 * Returns the length stored for the given tour hash
+	 *
+	 * @param hash hash of the tour
+	 * @return length of the tour, or NaN if the hash is not present
+	 */
+	public double get(long hash){
+		int slot = find(key(hash));
+		return keys[slot] == 0 ? Double.NaN : values[slot];
+	}
+
+	/**
+	 * This method stores the length of a tour
+	 *
+	 * @param hash hash of the tour
+	 * @param length length of the tour
+	 * @return true if the hash was not present before
+	 */
+	public boolean put(long hash, double length){
+		long key = key(hash);
+		int slot = find(key);
+		boolean added = keys[slot] == 0;
+		keys[slot] = key;
+		values[slot] = length;
+		if (added && ++size*2 > keys.length) grow();
+		return added;
+	}
+
+	/**
+	 * This method removes a tour hash. The entries after it in the same run of
+	 * slots are moved back, so lookups never need deleted markers.
+	 *
+	 * @param hash hash of the tour
+	 * @return true if the hash was present
+	 */
+	public boolean remove(long hash){
+		int slot = find(key(hash));
+		if (keys[slot] == 0) return false;
+		keys[slot] = 0;
+		size--;
+		for (int next = (slot + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+			int home = (int) (keys[next] ^ (keys[next] >>> 32)) & mask;
+			// Move the entry back unless its home slot lies after the hole
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				keys[next] = 0;
+				slot = next;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of entries in the table
+	 *
+	 * @return number of entries
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * This method removes all the entries
+	 */
+	public void clear(){
+		Arrays.fill(keys, 0L);
+		size = 0;
+	}
+
+	/**
+	 * Returns the slot holding the key, or the empty slot where it belongs
+	 *
+	 * @param key key to look for
+	 * @return slot index
+	 */
+	private int find(long key){
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		while (keys[slot] != 0 && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Maps a hash to a key, 0 is reserved for empty slots
+	 *
+	 * @param hash hash of the tour
+	 * @return key stored in the table
+	 */
+	private static long key(long hash){
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * This method doubles the capacity of the table
+	 */
+	private void grow(){
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		keys = new long[oldKeys.length*2];
+		values = new double[oldKeys.length*2];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
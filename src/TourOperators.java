@@ -0,0 +1,273 @@
+import java.util.Random;
+
+/**
+ * Class TourOperators performs the crossover and the mutation operators on tours
+ * stored as rows of city ids. The crossover is ordered crossover unless another
+ * one is chosen, e.g. by an IslandProfile. It owns the random stream and the
+ * scratch arrays of the operators, so an instance is used by one thread at a time;
+ * an island that breeds on several threads gives every thread its own instance.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TourOperators {
+
+	public static final int ORDERED				= 0;	// Section of one parent, order of the other
+	public static final int PARTIALLY_MAPPED	= 1;	// Section of one parent, positions of the other
+	public static final int CYCLE				= 2;	// Every city at the position of one of the parents
+
+	private int citySize;				// Number of cities of a tour
+	private Random prng;				// pseudorandom number generator of the operators
+	private int crossover = ORDERED;	// Crossover operator
+	private int[] inChild1, inChild2;	// Stamp of the crossover that put a city in a child
+	private int[] position1, position2;	// Position of every city in the parents, indexed by city id
+	private int[] cycleOf;				// Stamp of the cycle crossover that visited a position
+	private int stamp;
+
+	/**
+	 * Parameterized constructor
+	 *
+	 * @param citySize number of cities of a tour
+	 * @param idCount one more than the largest city id
+	 * @param prng pseudorandom number generator, owned by the caller's thread
+	 */
+	public TourOperators(int citySize, int idCount, Random prng){
+		this.citySize = citySize;
+		this.prng = prng;
+		this.inChild1 = new int[idCount];
+		this.inChild2 = new int[idCount];
+		this.position1 = new int[idCount];
+		this.position2 = new int[idCount];
+		this.cycleOf = new int[citySize];
+	}
+
+	/**
+	 * This method prepares the operators for the tours of another instance. The
+	 * scratch arrays are reused if they are large enough, and the crossover is kept.
+	 *
+	 * @param citySize number of cities of a tour
+	 * @param idCount one more than the largest city id
+	 * @param prng pseudorandom number generator, owned by the caller's thread
+	 */
+	public void reset(int citySize, int idCount, Random prng){
+		this.citySize = citySize;
+		this.prng = prng;
+		if (inChild1.length < idCount) {
+			this.inChild1 = new int[idCount];
+			this.inChild2 = new int[idCount];
+			this.position1 = new int[idCount];
+			this.position2 = new int[idCount];
+		}
+		if (cycleOf.length < citySize) this.cycleOf = new int[citySize];
+	}
+
+	/**
+	 * This method returns the crossover operator of a name
+	 *
+	 * @param name ox, pmx or cx
+	 * @return the crossover operator
+	 *
+	 * @exception IllegalArgumentException Thrown if the name is not a crossover operator
+	 */
+	public static int crossoverOf(String name){
+		if ("ox".equals(name)) return ORDERED;
+		if ("pmx".equals(name)) return PARTIALLY_MAPPED;
+		if ("cx".equals(name)) return CYCLE;
+		throw new IllegalArgumentException("Unknown crossover " + name);
+	}
+
+	/**
+	 * Sets the crossover operator
+	 *
+	 * @param crossover ORDERED, PARTIALLY_MAPPED or CYCLE
+	 */
+	public void setCrossover(int crossover){
+		this.crossover = crossover;
+	}
+
+	/**
+	 * This method performs the crossover of two tour rows with the chosen operator
+	 *
+	 * @param parent1 the first parent
+	 * @param parent2 the second parent
+	 * @param child1 receives the first child
+	 * @param child2 receives the second child
+	 */
+	public void crossover(int[] parent1, int[] parent2, int[] child1, int[] child2){
+		if (crossover == PARTIALLY_MAPPED)
+			partiallyMappedCrossover(parent1, parent2, child1, child2);
+		else if (crossover == CYCLE)
+			cycleCrossover(parent1, parent2, child1, child2);
+		else
+			orderedCrossover(parent1, parent2, child1, child2);
+	}
+
+	/**
+	 * This method performs the ordered crossover of two tour rows in O(n)
+	 *
+	 * @param parent1 the first parent
+	 * @param parent2 the second parent
+	 * @param child1 receives the section of parent2 and the other cities of parent1
+	 * @param child2 receives the section of parent1 and the other cities of parent2
+	 */
+	public void orderedCrossover(int[] parent1, int[] parent2, int[] child1, int[] child2){
+		int pivot1 = prng.nextInt(citySize);
+		int pivot2 = prng.nextInt(citySize);
+		while (pivot1 == pivot2) pivot2 = prng.nextInt(citySize);
+		if (pivot1 > pivot2) {
+			int t = pivot1;
+			pivot1 = pivot2;
+			pivot2 = t;
+		}
+
+		int mark = ++stamp;
+		for (int i = pivot1; i <= pivot2; i++) {
+			child1[i] = parent2[i];
+			inChild1[parent2[i]] = mark;
+			child2[i] = parent1[i];
+			inChild2[parent1[i]] = mark;
+		}
+		int pointer1 = (pivot2 + 1) % citySize;
+		int pointer2 = pointer1;
+		for (int k = 0, check = pointer1; k < citySize; k++, check = check + 1 == citySize ? 0 : check + 1) {
+			if (inChild1[parent1[check]] != mark) {
+				child1[pointer1] = parent1[check];
+				pointer1 = pointer1 + 1 == citySize ? 0 : pointer1 + 1;
+			}
+			if (inChild2[parent2[check]] != mark) {
+				child2[pointer2] = parent2[check];
+				pointer2 = pointer2 + 1 == citySize ? 0 : pointer2 + 1;
+			}
+		}
+	}
+
+	/**
+	 * This method performs the partially mapped crossover of two tour rows. Each
+	 * child takes a section of one parent; the other positions keep the city of the
+	 * other parent, and a city that is already in the section is replaced through
+	 * the mapping between the two sections.
+	 *
+	 * @param parent1 the first parent
+	 * @param parent2 the second parent
+	 * @param child1 receives the section of parent2 and the other positions of parent1
+	 * @param child2 receives the section of parent1 and the other positions of parent2
+	 */
+	public void partiallyMappedCrossover(int[] parent1, int[] parent2, int[] child1, int[] child2){
+		int pivot1 = prng.nextInt(citySize);
+		int pivot2 = prng.nextInt(citySize);
+		while (pivot1 == pivot2) pivot2 = prng.nextInt(citySize);
+		if (pivot1 > pivot2) {
+			int t = pivot1;
+			pivot1 = pivot2;
+			pivot2 = t;
+		}
+
+		int mark = ++stamp;
+		for (int i = 0; i < citySize; i++) {
+			position1[parent1[i]] = i;
+			position2[parent2[i]] = i;
+		}
+		for (int i = pivot1; i <= pivot2; i++) {
+			child1[i] = parent2[i];
+			inChild1[parent2[i]] = mark;
+			child2[i] = parent1[i];
+			inChild2[parent1[i]] = mark;
+		}
+		for (int i = 0; i < citySize; i++) {
+			if (i >= pivot1 && i <= pivot2) continue;
+			int city = parent1[i];
+			while (inChild1[city] == mark) city = parent1[position2[city]];
+			child1[i] = city;
+			city = parent2[i];
+			while (inChild2[city] == mark) city = parent2[position1[city]];
+			child2[i] = city;
+		}
+	}
+
+	/**
+	 * This method performs the cycle crossover of two tour rows. The positions fall
+	 * into cycles on which the parents hold the same cities; the children take the
+	 * cycles from the parents in turn, so every city keeps the position it has in
+	 * one of the parents.
+	 *
+	 * @param parent1 the first parent
+	 * @param parent2 the second parent
+	 * @param child1 receives the first, third ... cycle of parent1, the others of parent2
+	 * @param child2 receives the first, third ... cycle of parent2, the others of parent1
+	 */
+	public void cycleCrossover(int[] parent1, int[] parent2, int[] child1, int[] child2){
+		int mark = ++stamp;
+		for (int i = 0; i < citySize; i++)
+			position1[parent1[i]] = i;
+		boolean fromFirst = true;
+		for (int start = 0; start < citySize; start++) {
+			if (cycleOf[start] == mark) continue;
+			int i = start;
+			do {
+				cycleOf[i] = mark;
+				child1[i] = fromFirst ? parent1[i] : parent2[i];
+				child2[i] = fromFirst ? parent2[i] : parent1[i];
+				i = position1[parent2[i]];
+			} while (i != start);
+			fromFirst = !fromFirst;
+		}
+	}
+
+	/**
+	 * This method applies the mutation operator picked by an adaptive controller to
+	 * a row: a swap of two cities, the reversal of a section or the move of one
+	 * city, between two random positions
+	 *
+	 * @param row the tour
+	 * @param controller picks the operator
+	 * @return the operator applied
+	 */
+	public int mutate(int[] row, AdaptiveController controller){
+		int pivot1 = prng.nextInt(citySize);
+		int pivot2 = prng.nextInt(citySize);
+		while (pivot1 == pivot2) pivot2 = prng.nextInt(citySize);
+		int operator = controller.selectMutation(prng);
+		if (operator == AdaptiveController.INVERSION)
+			reverse(row, Math.min(pivot1, pivot2), Math.max(pivot1, pivot2));
+		else if (operator == AdaptiveController.INSERTION)
+			move(row, pivot1, pivot2);
+		else {
+			int t = row[pivot1];
+			row[pivot1] = row[pivot2];
+			row[pivot2] = t;
+		}
+		return operator;
+	}
+
+	/**
+	 * This method reverses the section row[from] .. row[to]
+	 *
+	 * @param row the tour
+	 * @param from first position of the section
+	 * @param to last position of the section
+	 */
+	public static void reverse(int[] row, int from, int to){
+		for (int i = from, j = to; i < j; i++, j--) {
+			int t = row[i];
+			row[i] = row[j];
+			row[j] = t;
+		}
+	}
+
+	/**
+	 * This method moves the city at one position to another position, shifting the
+	 * cities in between
+	 *
+	 * @param row the tour
+	 * @param from position of the city
+	 * @param to position of the city after the move
+	 */
+	public static void move(int[] row, int from, int to){
+		int city = row[from];
+		if (from < to)
+			System.arraycopy(row, from + 1, row, from, to - from);
+		else
+			System.arraycopy(row, to, row, to + 1, from - to);
+		row[to] = city;
+	}
+}
@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Class TourRepair turns the best tour of a previous run into a tour of the changed
+ * instance. Deleted and moved cities are taken out of the tour, then new and moved
+ * cities are put back one by one at the position where they add the least length.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TourRepair {
+
+	/**
+	 * This method repairs a tour
+	 *
+	 * @param previousTour cities of the previous tour
+	 * @param delta changes of the instance since the previous tour
+	 * @return the repaired tour, holding the current cities
+	 */
+	public static ArrayList<City> repair(List<City> previousTour, TourDelta delta){
+		// Remove the deleted cities and the cities that moved
+		HashSet<Integer> removed = new HashSet<Integer>(delta.getDeleted());
+		for (int i = 0; i < delta.getMoved().size(); i++)
+			removed.add(delta.getMoved().get(i).id);
+		ArrayList<City> tour = new ArrayList<City>(previousTour.size() + delta.getInserted().size());
+		for (int i = 0; i < previousTour.size(); i++)
+			if (!removed.contains(previousTour.get(i).id))
+				tour.add(previousTour.get(i));
+
+		// Put the new and moved cities back by cheapest insertion
+		ArrayList<City> insertions = new ArrayList<City>(delta.getInserted());
+		insertions.addAll(delta.getMoved());
+		for (int i = 0; i < insertions.size(); i++)
+			insertCheapest(tour, insertions.get(i));
+		return tour;
+	}
+
+	/**
+	 * This method inserts a city between the two neighbouring cities of the tour where
+	 * it increases the length of the tour the least
+	 *
+	 * @param tour the tour, modified in place
+	 * @param city the city to insert
+	 */
+	public static void insertCheapest(ArrayList<City> tour, City city){
+		int size = tour.size();
+		if (size < 2) {
+			tour.add(city);
+			return;
+		}
+		int bestPosition = 0;
+		double bestIncrease = Double.MAX_VALUE;
+		DistanceMetric metric = DistanceMetrics.get();
+		City previous = tour.get(size - 1);
+		double toPrevious = metric.distance(city, previous);
+		for (int i = 0; i < size; i++) {
+			City next = tour.get(i);
+			double toNext = metric.distance(city, next);
+			double increase = toPrevious + toNext - metric.distance(previous, next);
+			if (increase < bestIncrease) {
+				bestIncrease = increase;
+				bestPosition = i;
+			}
+			previous = next;
+			toPrevious = toNext;
+		}
+		tour.add(bestPosition, city);
+	}
+}
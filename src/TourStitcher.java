@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class TourStitcher joins the sub-tours of the regions into one global tour
+ * and repairs the tour around the seams between the regions
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class TourStitcher {
+
+	private ArrayList<City> tour = new ArrayList<City>();		// The stitched tour
+	private ArrayList<Integer> seams = new ArrayList<Integer>(); // Tour positions where a new region starts
+	private DistanceMetric metric = DistanceMetrics.get();		// Metric of the job
+
+	/**
+	 * This method stitches the sub-tours into a single tour. The regions are visited
+	 * in nearest neighbour order of their centroids; each sub-tour is entered at the
+	 * city closest to the exit of the previous region and is walked in the direction
+	 * that leaves it closest to the next region.
+	 *
+	 * @param subTours closed sub-tours, one per region
+	 * @return the stitched tour
+	 */
+	public ArrayList<City> stitch(List<ArrayList<City>> subTours){
+		tour.clear();
+		seams.clear();
+		int[] order = regionOrder(subTours);
+
+		City exit = null;
+		for (int r = 0; r < order.length; r++) {
+			ArrayList<City> subTour = subTours.get(order[r]);
+			int size = subTour.size();
+			if (size == 0) continue;
+
+			// Enter the region at the city closest to the previous exit
+			int entry = 0;
+			if (exit != null) {
+				double minDistance = Double.MAX_VALUE;
+				for (int i = 0; i < size; i++) {
+					double distance = findDistance(exit, subTour.get(i));
+					if (distance < minDistance) {
+						minDistance = distance;
+						entry = i;
+					}
+				}
+			}
+
+			// Leave the region towards the next region, or back to the start
+			City target = r + 1 < order.length ?
+					RegionPartitioner.centroid(subTours.get(order[r + 1])) :
+					(tour.isEmpty() ? subTour.get(entry) : tour.get(0));
+			City forwardExit = subTour.get((entry - 1 + size) % size);
+			City backwardExit = subTour.get((entry + 1) % size);
+			int step = findDistance(forwardExit, target) <= findDistance(backwardExit, target) ? 1 : -1;
+
+			seams.add(tour.size());
+			for (int i = 0; i < size; i++)
+				tour.add(subTour.get(((entry + step*i) % size + size) % size));
+			exit = tour.get(tour.size() - 1);
+		}
+		return tour;
+	}
+
+	/**
+	 * This method improves the stitched tour with 2-opt moves whose both ends lie
+	 * within the given number of positions from a seam. The cities deep inside a
+	 * region were already optimised by the region's own genetic algorithm.
+	 *
+	 * @param window number of positions on each side of a seam that may change
+	 * @return the improved tour
+	 */
+	public ArrayList<City> optimiseBoundaries(int window){
+		int n = tour.size();
+		if (n < 4) return tour;
+		window = Math.min(window, n/2 - 1);
+
+		for (int s = 0; s < seams.size(); s++) {
+			int start = seams.get(s) - window;
+			int end = seams.get(s) + window;
+			boolean improved = true;
+			while (improved) {
+				improved = false;
+				for (int i = start; i < end - 1; i++) {
+					City a = tour.get((i + n) % n);
+					City b = tour.get((i + 1 + n) % n);
+					for (int j = i + 2; j <= end; j++) {
+						City c = tour.get((j + n) % n);
+						City d = tour.get((j + 1 + n) % n);
+						double delta = findDistance(a, c) + findDistance(b, d)
+								- findDistance(a, b) - findDistance(c, d);
+						if (delta < -1e-10) {
+							reverse(i + 1, j);
+							b = tour.get((i + 1 + n) % n);
+							improved = true;
+						}
+					}
+				}
+			}
+		}
+		return tour;
+	}
+
+	/**
+	 * This method reverses the tour between the positions from and to, both
+	 * inclusive; positions wrap around the end of the tour
+	 *
+	 * @param from first position
+	 * @param to last position
+	 */
+	private void reverse(int from, int to){
+		int n = tour.size();
+		for (int i = from, j = to; i < j; i++, j--) {
+			int p = (i % n + n) % n;
+			int q = (j % n + n) % n;
+			City temp = tour.get(p);
+			tour.set(p, tour.get(q));
+			tour.set(q, temp);
+		}
+	}
+
+	/**
+	 * This method orders the regions by a nearest neighbour walk over their centroids
+	 *
+	 * @param subTours sub-tours of the regions
+	 * @return order in which the regions are visited
+	 */
+	private int[] regionOrder(List<ArrayList<City>> subTours){
+		int k = subTours.size();
+		City[] centroids = new City[k];
+		for (int r = 0; r < k; r++)
+			centroids[r] = subTours.get(r).isEmpty() ? new City() : RegionPartitioner.centroid(subTours.get(r));
+
+		int[] order = new int[k];
+		boolean[] visited = new boolean[k];
+		for (int r = 0; r < k; r++) {
+			int next = 0;
+			if (r > 0) {
+				double minDistance = Double.MAX_VALUE;
+				for (int c = 0; c < k; c++) {
+					if (visited[c]) continue;
+					double distance = findDistance(centroids[order[r - 1]], centroids[c]);
+					if (distance < minDistance) {
+						minDistance = distance;
+						next = c;
+					}
+				}
+			}
+			order[r] = next;
+			visited[next] = true;
+		}
+		return order;
+	}
+
+	/**
+	 * This method finds distance between two cities
+	 *
+	 * @param city1 city one
+	 * @param city2 city two
+	 * @return Returns the distance between two cities.
+	 */
+	private double findDistance(City city1, City city2){
+		return metric.distance(city1, city2);
+	}
+
+	/**
+	 * This method returns the stitched tour
+	 *
+	 * @return stitched tour
+	 */
+	public ArrayList<City> getTour() {
+		return tour;
+	}
+}
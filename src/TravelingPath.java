@@ -22,6 +22,7 @@ public class TravelingPath extends Tuple{
 	private double probability;				// Stores the probability
 	private double euclideanDistance;		// Stores the total distance of the tour
 	private int sampling;					// Stores the sampling of the tour
+	private long hash;						// Stores the edge hash of the tour, not sent to tuple space
 	
 	/**
 	 * Default constructor
@@ -56,14 +57,16 @@ public class TravelingPath extends Tuple{
 		this.fitness = path.fitness;
 		this.probability = path.probability;
 		this.sampling = path.sampling;
+		this.hash = path.hash;
 	}
 	
 	/**
 	 * This method shuffles the tour
 	 * 
+	 * @param prng pseudorandom number generator of the caller
 	 */
-	public void shuffleTravellingPath(){
-		Collections.shuffle(this.cityList,new Random(12345));		
+	public void shuffleTravellingPath(Random prng){
+		Collections.shuffle(this.cityList,prng);		
 	}	
 	
 	/**
@@ -94,31 +97,32 @@ public class TravelingPath extends Tuple{
 	}
 	
 	/**
-	 * This method calculates the euclidean distance for this traveling path
+	 * This method calculates the length of this traveling path with the metric of
+	 * the job
 	 * 
 	 */
 	public void calculateDistance(){
-		double x1,x2;
-		double y1,y2;		
+		DistanceMetric metric = DistanceMetrics.get();
+		double distance = 0;
+		City previous = cityList.get(cityList.size()-1);
 		
-		// Loop through the citylist and calculate the euclidean distance
-		for (int i = 0; i < cityList.size() - 1; i++){
-			x1 = cityList.get(i).getX();
-			y1 = cityList.get(i).getY();
-			
-			x2 = cityList.get(i+1).getX();
-			y2 = cityList.get(i+1).getY();
-			
-			
-			this.setEuclideanDistance(this.getEuclideanDistance() + Math.sqrt((Math.pow(x1 - x2 , 2) + Math.pow(y1 - y2 , 2))));
+		// Loop through the citylist and add up the edges
+		for (int i = 0; i < cityList.size(); i++){
+			City current = cityList.get(i);
+			distance += metric.distance(previous, current);
+			previous = current;
 		}
-		
-		x1 = cityList.get(0).getX();
-		y1 = cityList.get(0).getY();
-		
-		x2 = cityList.get(cityList.size()-1).getX();
-		y2 = cityList.get(cityList.size()-1).getY();				
-		this.setEuclideanDistance(this.getEuclideanDistance() + Math.sqrt((Math.pow(x1 - x2 , 2) + Math.pow(y1 - y2 , 2))));		
+		this.setEuclideanDistance(distance);
+	}
+	
+	/**
+	 * This method calculates the length of this traveling path using the coordinate
+	 * arrays of the instance
+	 * 
+	 * @param coordinates coordinates of the cities indexed by city id
+	 */
+	public void calculateDistance(CityCoordinates coordinates){
+		this.setEuclideanDistance(coordinates.tourLength(cityList));
 	}
 
 	/**
@@ -220,6 +224,24 @@ public class TravelingPath extends Tuple{
 		this.sampling = sampling;
 	}	
 
+	/**
+	 * Returns the edge hash of this tour
+	 * 
+	 * @return hash of the tour
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Sets the edge hash of this tour
+	 * 
+	 * @param hash hash of the tour
+	 */
+	public void setHash(long hash) {
+		this.hash = hash;
+	}
+
 	/**
 	 * Reads the object parameters from the input stream
 	 *
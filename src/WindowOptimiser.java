@@ -0,0 +1,244 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class WindowOptimiser polishes tours by exact dynamic programming on windows of
+ * k consecutive cities. The city before and the city after a window stay in place,
+ * and the order of the k cities between them is replaced by the shortest one, found
+ * by the Held-Karp recursion over subsets in O(2^k k^2). Unlike 2-opt, which only
+ * reverses sections, a window can take any of its k! orders, so it repairs local
+ * tangles of several cities at a cost that is bounded per window.
+ * <P>
+ * A pass lays windows side by side along the tour; neighbouring windows share an
+ * end city, which neither changes, so the windows of a pass are independent and
+ * are solved in parallel, one chunk of windows per thread with its own tables.
+ * Successive passes shift the windows by half a window, so every seam is inside a
+ * window of the next pass.
+ *
+ * @author Sahil Jasrotia, Lokesh Agrawal
+ *
+ */
+public class WindowOptimiser {
+
+	public static final int MAX_WINDOW	= 16;		// Largest window, the tables grow as 2^k k
+
+	private static final double EPSILON	= 1e-9;		// Smallest gain that counts as an improvement
+
+	private int citySize;					// Number of cities
+	private City[] cityById;				// City objects indexed by city id
+	private CityCoordinates coordinates;	// Coordinates of the cities indexed by city id
+	private int window;						// Cities per window
+	private Chunk[] chunks;					// Tables of every thread
+	private ForkJoinPool pool;				// Runs the chunks, null for one chunk
+
+	/**
+	 * Parameterized constructor
+	 *
+	 * @param tour contains the cities
+	 * @param window cities per window, 2 to MAX_WINDOW
+	 * @param threads number of threads solving the windows
+	 *
+	 * @exception IllegalArgumentException Thrown if the window is out of range
+	 */
+	public WindowOptimiser(TravelingPath tour, int window, int threads){
+		if (window < 2 || window > MAX_WINDOW)
+			throw new IllegalArgumentException("window must be between 2 and " + MAX_WINDOW);
+		ArrayList<City> cityList = tour.getCityList();
+		this.citySize = cityList.size();
+		this.coordinates = new CityCoordinates(cityList);
+		this.cityById = new City[coordinates.size()];
+		for (int i = 0; i < citySize; i++)
+			cityById[cityList.get(i).id] = cityList.get(i);
+		this.window = Math.max(0, Math.min(window, citySize - 2));
+		int chunkCount = Math.max(1, threads);
+		this.chunks = new Chunk[chunkCount];
+		for (int c = 0; c < chunkCount; c++)
+			chunks[c] = new Chunk(c, chunkCount);
+		this.pool = chunkCount > 1 ? new ForkJoinPool(chunkCount) : null;
+	}
+
+	/**
+	 * This method polishes a tour
+	 *
+	 * @param tour the tour, of the cities of this optimiser
+	 * @param maxPasses largest number of passes
+	 * @return a polished copy of the tour
+	 */
+	public TravelingPath optimise(TravelingPath tour, int maxPasses){
+		ArrayList<City> cityList = tour.getCityList();
+		int[] row = new int[citySize];
+		for (int i = 0; i < citySize; i++)
+			row[i] = cityList.get(i).id;
+		optimise(row, maxPasses);
+		ArrayList<City> polished = new ArrayList<City>(citySize);
+		for (int i = 0; i < citySize; i++)
+			polished.add(cityById[row[i]]);
+		TravelingPath path = new TravelingPath(polished);
+		path.calculateDistance();
+		return path;
+	}
+
+	/**
+	 * This method polishes a tour in place. It stops after two passes in a row
+	 * without improvement, or after the last pass.
+	 *
+	 * @param tour city ids in tour order
+	 * @param maxPasses largest number of passes
+	 * @return the change of the tour length, zero or negative
+	 */
+	public double optimise(int[] tour, int maxPasses){
+		if (window < 2) return 0;
+		double change = 0;
+		int idle = 0;
+		for (int pass = 0; pass < maxPasses && idle < 2; pass++) {
+			double gain = pass(tour, (int) ((long) pass*(window/2 + 1) % citySize));
+			change -= gain;
+			idle = gain > 0 ? 0 : idle + 1;
+		}
+		return change;
+	}
+
+	/**
+	 * This method solves the windows of one pass
+	 *
+	 * @param tour the tour
+	 * @param offset position of the first city of the first window
+	 * @return the gain of the pass, zero or positive
+	 */
+	private double pass(final int[] tour, final int offset){
+		final int windows = citySize/(window + 1);
+		final RecursiveAction[] actions = new RecursiveAction[chunks.length];
+		for (int c = 0; c < chunks.length; c++) {
+			final Chunk chunk = chunks[c];
+			actions[c] = new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+				protected void compute(){
+					chunk.solveWindows(tour, offset, windows);
+				}
+			};
+		}
+		IslandEngine.invokeActions(pool, actions);
+		double gain = 0;
+		for (int c = 0; c < chunks.length; c++)
+			gain += chunks[c].gain;
+		return gain;
+	}
+
+	/**
+	 * This method stops the threads of the optimiser
+	 */
+	public void shutdown(){
+		if (pool != null) pool.shutdown();
+	}
+
+	/**
+	 * Class Chunk solves every chunkCount-th window of a pass. It is run by one
+	 * thread at a time.
+	 *
+	 * @author Sahil Jasrotia, Lokesh Agrawal
+	 *
+	 */
+	private class Chunk {
+
+		private int first, step;			// Windows first, first + step, ...
+		private double gain;				// Gain of the latest pass
+		private int[] cities;				// Start city, the window, end city
+		private double[] distance;			// Distances between the cities, (window + 2)^2
+		private double[] cost;				// Shortest path from the start city through a subset, ending at a city
+		private byte[] parent;				// City before the last one on that path
+		private int[] order;
+
+		/**
+		 * Parameterized constructor
+		 *
+		 * @param first first window of the chunk
+		 * @param step number of chunks
+		 */
+		public Chunk(int first, int step){
+			this.first = first;
+			this.step = step;
+			this.cities = new int[window + 2];
+			this.distance = new double[(window + 2)*(window + 2)];
+			this.cost = new double[(1 << window)*window];
+			this.parent = new byte[(1 << window)*window];
+			this.order = new int[window];
+		}
+
+		/**
+		 * This method solves the windows of this chunk
+		 *
+		 * @param tour the tour
+		 * @param offset position of the first city of the first window
+		 * @param windows number of windows of the pass
+		 */
+		public void solveWindows(int[] tour, int offset, int windows){
+			gain = 0;
+			for (int w = first; w < windows; w += step)
+				gain += solve(tour, (offset + w*(window + 1)) % citySize);
+		}
+
+		/**
+		 * This method replaces the order of a window by the shortest one
+		 *
+		 * @param tour the tour
+		 * @param start position of the first city of the window
+		 * @return the gain, zero or positive
+		 */
+		private double solve(int[] tour, int start){
+			int k = window, size = k + 2;
+			for (int i = 0; i < size; i++)
+				cities[i] = tour[(start - 1 + i + citySize) % citySize];
+			for (int i = 0; i < size; i++)
+				for (int j = 0; j < size; j++)
+					distance[i*size + j] = coordinates.distance(cities[i], cities[j]);
+			double before = 0;
+			for (int i = 0; i + 1 < size; i++)
+				before += distance[i*size + i + 1];
+
+			// Window city j is city j + 1 of the tables, the start city is 0 and the end city k + 1
+			int full = (1 << k) - 1;
+			for (int i = 0; i < cost.length; i++)
+				cost[i] = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < k; j++)
+				cost[(1 << j)*k + j] = distance[j + 1];
+			for (int mask = 1; mask <= full; mask++) {
+				for (int j = 0; j < k; j++) {
+					double c = cost[mask*k + j];
+					if (c == Double.POSITIVE_INFINITY) continue;
+					int row = (j + 1)*size + 1;
+					for (int l = 0; l < k; l++) {
+						if ((mask & (1 << l)) != 0) continue;
+						int next = (mask | (1 << l))*k + l;
+						double through = c + distance[row + l];
+						if (through < cost[next]) {
+							cost[next] = through;
+							parent[next] = (byte) j;
+						}
+					}
+				}
+			}
+			int last = 0;
+			double after = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < k; j++) {
+				double c = cost[full*k + j] + distance[(j + 1)*size + k + 1];
+				if (c < after) {
+					after = c;
+					last = j;
+				}
+			}
+			if (after >= before - EPSILON) return 0;
+
+			// Follow the parents back from the end of the window
+			for (int i = k - 1, mask = full, j = last; i >= 0; i--) {
+				order[i] = j;
+				int previous = parent[mask*k + j];
+				mask &= ~(1 << j);
+				j = previous;
+			}
+			for (int i = 0; i < k; i++)
+				tour[(start + i) % citySize] = cities[order[i] + 1];
+			return before - after;
+		}
+	}
+}